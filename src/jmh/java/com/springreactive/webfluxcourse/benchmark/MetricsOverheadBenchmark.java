@@ -0,0 +1,60 @@
+package com.springreactive.webfluxcourse.benchmark;
+
+import com.springreactive.webfluxcourse.metrics.FlowTimer;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the repository timers on an otherwise free flow, against a Prometheus registry with
+ * percentile histograms enabled as in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    private FlowTimer timer;
+    private Flux<Integer> page;
+
+    @Setup
+    public void setup() {
+        timer = new FlowTimer(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), "users.repository",
+                Tags.of("method", "findById"));
+        page = Flux.range(0, 20);
+    }
+
+    @Benchmark
+    public Integer plainMono() {
+        return Mono.fromCallable(() -> 1).block();
+    }
+
+    @Benchmark
+    public Integer timedMono() {
+        return timer.time(Mono.fromCallable(() -> 1)).block();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer timedMonoContended() {
+        return timer.time(Mono.fromCallable(() -> 1)).block();
+    }
+
+    @Benchmark
+    public Integer plainFlux() {
+        return page.reduce(0, Integer::sum).block();
+    }
+
+    @Benchmark
+    public Integer timedFlux() {
+        return timer.time(page).reduce(0, Integer::sum).block();
+    }
+}
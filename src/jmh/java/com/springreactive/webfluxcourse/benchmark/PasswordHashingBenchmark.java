@@ -0,0 +1,58 @@
+package com.springreactive.webfluxcourse.benchmark;
+
+import com.springreactive.webfluxcourse.config.HashingProperties;
+import com.springreactive.webfluxcourse.service.BCryptPasswordHasher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of a trivial task on a single "event loop" thread while the hashing
+ * scheduler is idle versus saturated. With hashing offloaded the two distributions should match.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    @Param({"false", "true"})
+    public boolean saturated;
+
+    private BCryptPasswordHasher hasher;
+    private Scheduler eventLoop;
+    private Disposable load;
+
+    @Setup
+    public void setup() {
+        hasher = new BCryptPasswordHasher(new HashingProperties(10, 0, 64), new SimpleMeterRegistry());
+        eventLoop = Schedulers.newSingle("event-loop");
+        if (saturated) {
+            load = Flux.range(0, Integer.MAX_VALUE)
+                    .flatMap(i -> hasher.hash("Ad123456789@").onErrorResume(ex -> Mono.empty()), 256)
+                    .subscribe();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (load != null) {
+            load.dispose();
+        }
+        eventLoop.dispose();
+        hasher.destroy();
+    }
+
+    @Benchmark
+    public Integer eventLoopRoundTrip() {
+        return Mono.fromCallable(() -> 1).subscribeOn(eventLoop).block();
+    }
+}
@@ -0,0 +1,69 @@
+package com.springreactive.webfluxcourse.benchmark;
+
+import com.springreactive.webfluxcourse.model.request.UserRequest;
+import com.springreactive.webfluxcourse.utils.Password;
+import com.springreactive.webfluxcourse.utils.PasswordConstraintsValidator;
+import org.openjdk.jmh.annotations.*;
+import org.passay.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the previous validator, which rebuilt the passay rule set and rendered every
+ * failure message on each call, with the cached, short-circuiting one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordValidatorBenchmark {
+
+    private static final String VALID_PASSWORD = "Ad123456789@";
+    private static final String INVALID_PASSWORD = "ad 56";
+
+    private PasswordConstraintsValidator validator;
+
+    @Setup
+    public void setup() throws NoSuchFieldException {
+        validator = new PasswordConstraintsValidator();
+        validator.initialize(UserRequest.class.getDeclaredField("password").getAnnotation(Password.class));
+    }
+
+    @Benchmark
+    public Object rebuiltValidPassword() {
+        return rebuiltFirstViolation(VALID_PASSWORD);
+    }
+
+    @Benchmark
+    public Object rebuiltInvalidPassword() {
+        return rebuiltFirstViolation(INVALID_PASSWORD);
+    }
+
+    @Benchmark
+    public Object cachedValidPassword() {
+        return validator.firstViolation(VALID_PASSWORD);
+    }
+
+    @Benchmark
+    public Object cachedInvalidPassword() {
+        return validator.firstViolation(INVALID_PASSWORD);
+    }
+
+    private static String rebuiltFirstViolation(String password) {
+        PasswordValidator passwordValidator = new PasswordValidator(
+                Arrays.asList(
+                        new LengthRule(10, 128),
+                        new CharacterRule(EnglishCharacterData.UpperCase, 1),
+                        new CharacterRule(EnglishCharacterData.LowerCase, 1),
+                        new CharacterRule(EnglishCharacterData.Digit, 1),
+                        new CharacterRule(EnglishCharacterData.Special, 1),
+                        new WhitespaceRule()
+                )
+        );
+        RuleResult result = passwordValidator.validate(new PasswordData(password));
+        return result.isValid() ? null : passwordValidator.getMessages(result).stream().findFirst().get();
+    }
+}
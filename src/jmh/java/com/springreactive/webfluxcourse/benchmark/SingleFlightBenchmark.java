@@ -0,0 +1,64 @@
+package com.springreactive.webfluxcourse.benchmark;
+
+import com.springreactive.webfluxcourse.service.cache.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sixteen threads reading a handful of hot keys through an expensive loader, once straight to the
+ * loader and once through the single-flight layer, so the saved loads show up as throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class SingleFlightBenchmark {
+
+    private static final int LOAD_TOKENS = 20_000;
+
+    @Param({"4", "64"})
+    private int hotKeys;
+
+    private SingleFlight<String, String> singleFlight;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        singleFlight = new SingleFlight<>("benchmark", true, 10_000, new SimpleMeterRegistry());
+        keys = new String[hotKeys];
+        for (int i = 0; i < hotKeys; i++) {
+            keys[i] = "user-" + i;
+        }
+    }
+
+    @Benchmark
+    public String direct() {
+        return load(randomKey()).block();
+    }
+
+    @Benchmark
+    public String singleFlight() {
+        String key = randomKey();
+        return singleFlight.execute(key, () -> load(key)).block();
+    }
+
+    private String randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    }
+
+    private static Mono<String> load(final String key) {
+        return Mono.fromCallable(() -> {
+            Blackhole.consumeCPU(LOAD_TOKENS);
+            return key;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,27 @@
+package com.springreactive.webfluxcourse.benchmark;
+
+import com.springreactive.webfluxcourse.utils.TrimStringValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrimStringValidatorBenchmark {
+
+    private final TrimStringValidator validator = new TrimStringValidator();
+
+    @Benchmark
+    public boolean trimmed() {
+        return validator.isValid("ademir@email.com", null);
+    }
+
+    @Benchmark
+    public boolean padded() {
+        return validator.isValid(" ademir@email.com ", null);
+    }
+}
@@ -0,0 +1,43 @@
+package com.springreactive.webfluxcourse.benchmark;
+
+import com.springreactive.webfluxcourse.entity.User;
+import com.springreactive.webfluxcourse.mapper.UserMapper;
+import com.springreactive.webfluxcourse.model.request.UserRequest;
+import com.springreactive.webfluxcourse.model.response.UserResponse;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+
+    private final UserMapper mapper = Mappers.getMapper(UserMapper.class);
+    private final UserRequest request = new UserRequest("Ademir", "ademir@email.com", "Ad123456789@");
+    private final User entity = User.builder()
+            .id("66a0f1c2e4b0a1b2c3d4e5f6")
+            .name("Ademir")
+            .email("ademir@email.com")
+            .password("$2a$10$abcdefghijklmnopqrstuv")
+            .build();
+
+    @Benchmark
+    public User toEntity() {
+        return mapper.toEntity(request);
+    }
+
+    @Benchmark
+    public User toEntityOntoExisting() {
+        return mapper.toEntity(request, entity.toBuilder().build());
+    }
+
+    @Benchmark
+    public UserResponse toResponse() {
+        return mapper.toResponse(entity);
+    }
+}
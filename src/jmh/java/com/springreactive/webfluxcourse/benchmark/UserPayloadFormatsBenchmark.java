@@ -0,0 +1,87 @@
+package com.springreactive.webfluxcourse.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.springreactive.webfluxcourse.controller.codec.UserProtobuf;
+import com.springreactive.webfluxcourse.controller.codec.UserProtobufEncoder;
+import com.springreactive.webfluxcourse.model.response.PageResponse;
+import com.springreactive.webfluxcourse.model.response.UserResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Size, encoding and decoding cost of a {@code GET /users} page in each negotiable format.
+ * The {@code payloadBytes} counter reports the encoded size of the page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserPayloadFormatsBenchmark {
+
+    private static final TypeReference<PageResponse<UserResponse>> PAGE_TYPE = new TypeReference<>() { };
+
+    @Param({"json", "smile", "cbor", "protobuf"})
+    public String format;
+
+    @Param({"20", "100"})
+    public int size;
+
+    private final UserProtobufEncoder protobufEncoder = new UserProtobufEncoder();
+    private ObjectMapper objectMapper;
+    private PageResponse<UserResponse> page;
+    private byte[] encoded;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+        public long payloadBytes;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = switch (format) {
+            case "smile" -> new ObjectMapper(new SmileFactory());
+            case "cbor" -> new ObjectMapper(new CBORFactory());
+            default -> new ObjectMapper();
+        };
+        page = new PageResponse<>(IntStream.range(0, size)
+                .mapToObj(i -> new UserResponse(String.format("66a0f1c2e4b0a1b2c3d4%04x", i), "User " + i, "user" + i + "@email.com"))
+                .toList(), "NjZhMGYxYzJlNGIwYTFiMmMzZDQwMDEz");
+        encoded = encode();
+    }
+
+    @Benchmark
+    public byte[] encode(final PayloadSize payloadSize) throws IOException {
+        final byte[] bytes = encode();
+        payloadSize.payloadBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public PageResponse<UserResponse> decode() throws IOException {
+        if ("protobuf".equals(format)) {
+            return UserProtobuf.readPage(encoded);
+        }
+        return objectMapper.readValue(encoded, PAGE_TYPE);
+    }
+
+    private byte[] encode() throws IOException {
+        if ("protobuf".equals(format)) {
+            final DataBuffer buffer = protobufEncoder.encode(page, DefaultDataBufferFactory.sharedInstance, false);
+            final byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            return bytes;
+        }
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
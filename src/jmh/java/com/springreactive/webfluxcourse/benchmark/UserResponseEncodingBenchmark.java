@@ -0,0 +1,92 @@
+package com.springreactive.webfluxcourse.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springreactive.webfluxcourse.controller.codec.UserJsonEncoder;
+import com.springreactive.webfluxcourse.model.response.PageResponse;
+import com.springreactive.webfluxcourse.model.response.UserResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Encoding cost of {@code UserResponse} lists, both through a bare {@link ObjectMapper} and
+ * through the {@link Jackson2JsonEncoder} WebFlux falls back to, against {@link UserJsonEncoder};
+ * the {@code page} pair encodes the {@code PageResponse} body of {@code GET /users}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserResponseEncodingBenchmark {
+
+    private static final ResolvableType ELEMENT_TYPE = ResolvableType.forClass(UserResponse.class);
+    private static final ResolvableType PAGE_TYPE = ResolvableType.forClassWithGenerics(PageResponse.class, UserResponse.class);
+
+    @Param({"20", "100"})
+    public int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper);
+    private final UserJsonEncoder userJsonEncoder = new UserJsonEncoder();
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private List<UserResponse> users;
+    private PageResponse<UserResponse> page;
+
+    @Setup
+    public void setup() {
+        users = IntStream.range(0, size)
+                .mapToObj(i -> new UserResponse(String.format("66a0f1c2e4b0a1b2c3d4%04x", i), "User " + i, "user" + i + "@email.com"))
+                .toList();
+        page = new PageResponse<>(users, "NjZhMGYxYzJlNGIwYTFiMmMzZDQwMDEz");
+    }
+
+    @Benchmark
+    public byte[] objectMapper() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public long webFluxEncoder() {
+        return encoder.encode(Flux.fromIterable(users), bufferFactory, ELEMENT_TYPE, MediaType.APPLICATION_JSON, Map.of())
+                .map(UserResponseEncodingBenchmark::releaseAndCount)
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    @Benchmark
+    public long userJsonEncoder() {
+        return userJsonEncoder.encode(Flux.fromIterable(users), bufferFactory, ELEMENT_TYPE, MediaType.APPLICATION_JSON, Map.of())
+                .map(UserResponseEncodingBenchmark::releaseAndCount)
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    @Benchmark
+    public long pageWebFluxEncoder() {
+        return releaseAndCount(encoder.encodeValue(page, bufferFactory, PAGE_TYPE, MediaType.APPLICATION_JSON, Map.of()));
+    }
+
+    @Benchmark
+    public long pageUserJsonEncoder() {
+        return releaseAndCount(userJsonEncoder.encodeValue(page, bufferFactory, PAGE_TYPE, MediaType.APPLICATION_JSON, Map.of()));
+    }
+
+    private static long releaseAndCount(DataBuffer buffer) {
+        long bytes = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return bytes;
+    }
+}
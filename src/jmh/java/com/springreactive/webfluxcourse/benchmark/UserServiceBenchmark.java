@@ -0,0 +1,158 @@
+package com.springreactive.webfluxcourse.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springreactive.webfluxcourse.config.*;
+import com.springreactive.webfluxcourse.entity.User;
+import com.springreactive.webfluxcourse.mapper.UserMapper;
+import com.springreactive.webfluxcourse.model.request.UserRequest;
+import com.springreactive.webfluxcourse.model.response.PageResponse;
+import com.springreactive.webfluxcourse.respository.InMemoryUserRepository;
+import com.springreactive.webfluxcourse.service.BatchGetResult;
+import com.springreactive.webfluxcourse.service.EmailBloomFilter;
+import com.springreactive.webfluxcourse.service.PasswordHasher;
+import com.springreactive.webfluxcourse.service.UserService;
+import com.springreactive.webfluxcourse.service.cache.BatchLoader;
+import com.springreactive.webfluxcourse.service.cache.InMemoryKeyValueStore;
+import com.springreactive.webfluxcourse.service.cache.KeyValueDistributedUserCache;
+import com.springreactive.webfluxcourse.service.cache.SingleFlight;
+import com.springreactive.webfluxcourse.service.cache.UserCache;
+import com.springreactive.webfluxcourse.utils.FieldSelection;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Full {@link UserService} chains (mapping, hashing hand-off, caching, pagination) against the
+ * embedded {@link InMemoryUserRepository}. Hashing is replaced by an identity function so the
+ * numbers reflect the reactive plumbing, not bcrypt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    private static final UserRequest REQUEST = new UserRequest("Ademir", "ademir@email.com", "Ad123456789@");
+    private static final int USERS = 1_000;
+    private static final int BATCH_SIZE = 20;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private UserService service;
+    private String existingId;
+    private List<String> batchIds;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        InMemoryUserRepository repository = new InMemoryUserRepository(1_000);
+        UserMapper mapper = Mappers.getMapper(UserMapper.class);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        KeyValueDistributedUserCache distributedCache = new KeyValueDistributedUserCache(
+                new InMemoryKeyValueStore(USERS), new ObjectMapper(),
+                new DistributedCacheProperties(false, "in-memory", Duration.ofMinutes(30), USERS));
+        UserCache userCache = new UserCache(repository, distributedCache, new SingleFlight<>("users.byId", true, USERS, registry),
+                new BatchLoader<>("users.byId", new MicroBatchProperties(false, Duration.ofMillis(1), 100),
+                        repository::findAllById, User::getId, repository::findById, Schedulers.parallel(), registry),
+                new CacheProperties(true, USERS, Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ofSeconds(5)),
+                registry);
+        StreamingProperties streaming = new StreamingProperties(256, Duration.ofMillis(100), 512);
+        EmailBloomFilter emailFilter = new EmailBloomFilter(repository,
+                new EmailFilterProperties(true, 1_000_000, 0.01), streaming, registry);
+
+        service = new UserService(
+                repository,
+                mapper,
+                new PaginationProperties(20, 100),
+                streaming,
+                new BulkProperties(500, Duration.ofMillis(200), 2),
+                new BatchGetProperties(100),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new IdentityPasswordHasher(),
+                userCache,
+                emailFilter,
+                new SingleFlight<>("users.firstPage", true, USERS, registry)
+        );
+        emailFilter.rebuild().block();
+
+        batchIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = service.save(uniqueRequest()).block();
+            existingId = user.getId();
+            if (i % (USERS / BATCH_SIZE) == 0) {
+                batchIds.add(user.getId());
+            }
+        }
+    }
+
+    @Benchmark
+    public User save() {
+        return service.save(uniqueRequest()).block();
+    }
+
+    /**
+     * Unknown emails still go through the user cache to the repository; the Bloom filter is only
+     * trusted to skip the existence check on signup.
+     */
+    @Benchmark
+    public Throwable findByUnknownEmail() {
+        return service.findByEmail("nobody@email.com")
+                .flatMap(user -> Mono.<Throwable>empty())
+                .onErrorResume(Mono::just)
+                .block();
+    }
+
+    @Benchmark
+    public User findById() {
+        return service.findById(existingId).block();
+    }
+
+    /**
+     * {@value #BATCH_SIZE} ids resolved through one cache bulk lookup.
+     */
+    @Benchmark
+    public List<BatchGetResult> findAllById() {
+        return service.findAllById(batchIds).collectList().block();
+    }
+
+    @Benchmark
+    public PageResponse<User> findFirstPage() {
+        return service.findPage(null, 20, FieldSelection.ALL).block();
+    }
+
+    @Benchmark
+    public User update() {
+        return service.update(existingId, REQUEST, null).block();
+    }
+
+    private UserRequest uniqueRequest() {
+        return new UserRequest(REQUEST.name(), "ademir" + sequence.incrementAndGet() + "@email.com", REQUEST.password());
+    }
+
+    private static final class IdentityPasswordHasher implements PasswordHasher {
+
+        @Override
+        public Mono<String> hash(String rawPassword) {
+            return Mono.just(rawPassword);
+        }
+
+        @Override
+        public Mono<Boolean> matches(String rawPassword, String hashedPassword) {
+            return Mono.just(rawPassword.equals(hashedPassword));
+        }
+
+        @Override
+        public boolean isHashed(String storedPassword) {
+            return true;
+        }
+    }
+}
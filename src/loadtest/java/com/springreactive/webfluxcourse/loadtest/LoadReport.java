@@ -0,0 +1,26 @@
+package com.springreactive.webfluxcourse.loadtest;
+
+import java.util.Map;
+
+/**
+ * JSON report written by {@link UserLoadTest}. Latencies are in microseconds.
+ */
+public record LoadReport(
+        String timestamp,
+        int concurrency,
+        long requests,
+        double durationSeconds,
+        double throughput,
+        Map<String, OperationStats> operations
+) {
+
+    public record OperationStats(
+            long count,
+            long errors,
+            long p50,
+            long p99,
+            long p999,
+            long max
+    ) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.springreactive.webfluxcourse.loadtest;
+
+import com.springreactive.webfluxcourse.entity.User;
+import com.springreactive.webfluxcourse.respository.UserRepository;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import reactor.test.StepVerifier;
+
+/**
+ * Conditional writes of the Mongo engine against a real mongod, where the converter's type key
+ * and documents written by other code paths behave as in production.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class MongoUserRepositoryIT {
+
+    private static final String DATABASE = "webflux-course-repository";
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        mongod = Mongod.instance().start(Version.Main.V7_0);
+        ServerAddress address = mongod.current().getServerAddress();
+        registry.add("spring.data.mongodb.uri", () -> "mongodb://" + address + "/" + DATABASE);
+    }
+
+    @AfterAll
+    static void stopMongod() {
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private UserRepository repository;
+
+    @BeforeEach
+    void clean() {
+        mongoTemplate.remove(new Query(), User.class).block();
+    }
+
+    @Test
+    void emptyPatchReturnsTheUserWithoutBumpingTheVersion() {
+        User saved = repository.save(User.builder().name("Ademir").email("ademir@email.com").password("hashed").build())
+                .block();
+
+        StepVerifier.create(repository.findAndModify(saved.getId(), User.builder().build(), saved.getVersion()))
+                .expectNextMatches(user -> saved.getVersion().equals(user.getVersion())
+                        && "Ademir".equals(user.getName()))
+                .verifyComplete();
+        StepVerifier.create(repository.findAndModify(saved.getId(), User.builder().name("Ana").build(), saved.getVersion()))
+                .expectNextMatches(user -> user.getVersion() == saved.getVersion() + 1 && "Ana".equals(user.getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void versionZeroMatchesDocumentsWrittenBeforeVersioning() {
+        ObjectId id = new ObjectId();
+        mongoTemplate.insert(new Document("_id", id).append("name", "Ademir").append("email", "ademir@email.com")
+                .append("password", "hashed"), mongoTemplate.getCollectionName(User.class)).block();
+
+        StepVerifier.create(repository.findAndModify(id.toHexString(), User.builder().build(), 0L))
+                .expectNextMatches(user -> user.getVersion() == null)
+                .verifyComplete();
+        StepVerifier.create(repository.findAndModify(id.toHexString(), User.builder().name("Ana").build(), 0L))
+                .expectNextMatches(user -> user.getVersion() == 1L && "Ana".equals(user.getName()))
+                .verifyComplete();
+        StepVerifier.create(repository.findAndRemove(id.toHexString(), 0L)).verifyComplete();
+        StepVerifier.create(repository.findAndRemove(id.toHexString(), 1L)).expectNextCount(1).verifyComplete();
+    }
+}
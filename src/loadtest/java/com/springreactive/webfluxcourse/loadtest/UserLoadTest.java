@@ -0,0 +1,267 @@
+package com.springreactive.webfluxcourse.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.springreactive.webfluxcourse.model.request.UserRequest;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mixed create/read/update/delete/list workload against the full application backed by an
+ * embedded mongod. Tunables are system properties:
+ * <ul>
+ *     <li>{@code load.concurrency} - concurrent clients (default 32)</li>
+ *     <li>{@code load.requests} - total requests after seeding (default 20000)</li>
+ *     <li>{@code load.seed} - users created before the run (default 5000)</li>
+ *     <li>{@code load.mix} - operation weights (default {@code create=20,read=50,update=15,delete=5,list=10})</li>
+ *     <li>{@code load.report} - JSON report path (default {@code target/load-test/report.json})</li>
+ *     <li>{@code load.baseline} - baseline report to compare against (default {@code src/loadtest/resources/baseline.json})</li>
+ *     <li>{@code load.tolerance} - allowed regression against the baseline (default 0.2)</li>
+ *     <li>{@code load.update-baseline} - write the report as the new baseline instead of comparing</li>
+ * </ul>
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"users.hashing.work-factor=4", "users.rate-limit.enabled=false"}
+)
+class UserLoadTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 32);
+    private static final long REQUESTS = Long.getLong("load.requests", 20_000);
+    private static final int SEED = Integer.getInteger("load.seed", 5_000);
+    private static final String MIX = System.getProperty("load.mix", "create=20,read=50,update=15,delete=5,list=10");
+    private static final Path REPORT = Path.of(System.getProperty("load.report", "target/load-test/report.json"));
+    private static final Path BASELINE = Path.of(System.getProperty("load.baseline", "src/loadtest/resources/baseline.json"));
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("load.tolerance", "0.2"));
+    private static final boolean UPDATE_BASELINE = Boolean.getBoolean("load.update-baseline");
+    private static final String PASSWORD = "Ad123456789@";
+    private static final long MAX_LATENCY_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        mongod = Mongod.instance().start(Version.Main.V7_0);
+        ServerAddress address = mongod.current().getServerAddress();
+        registry.add("spring.data.mongodb.uri", () -> "mongodb://" + address + "/webflux-course-load");
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final AtomicLong emails = new AtomicLong();
+
+    @Test
+    void mixedWorkload() throws Exception {
+        WebTestClient client = webTestClient.mutate().responseTimeout(Duration.ofSeconds(30)).build();
+        List<String> ids = seed(client);
+        int deletable = ids.size() / 10;
+        ConcurrentLinkedQueue<String> toDelete = new ConcurrentLinkedQueue<>(ids.subList(0, deletable));
+        List<String> stable = ids.subList(deletable, ids.size());
+
+        Map<Operation, Integer> weights = Operation.parseMix(MIX);
+        int totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+        Map<Operation, Histogram> latencies = new LinkedHashMap<>();
+        Map<Operation, AtomicLong> errors = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+            errors.put(operation, new AtomicLong());
+        }
+
+        AtomicLong remaining = new AtomicLong(REQUESTS);
+        ExecutorService workers = Executors.newFixedThreadPool(CONCURRENCY);
+        long start = System.nanoTime();
+        for (int i = 0; i < CONCURRENCY; i++) {
+            workers.submit(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    Operation operation = Operation.pick(weights, totalWeight);
+                    long begin = System.nanoTime();
+                    boolean ok;
+                    try {
+                        ok = execute(client, operation, stable, toDelete);
+                    } catch (Throwable ex) {
+                        ok = false;
+                    }
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin);
+                    latencies.get(operation).recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+                    if (!ok) {
+                        errors.get(operation).incrementAndGet();
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        assertTrue(workers.awaitTermination(30, TimeUnit.MINUTES), "load run did not finish");
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        LoadReport report = report(latencies, errors, seconds);
+        Files.createDirectories(REPORT.toAbsolutePath().getParent());
+        objectMapper.writeValue(REPORT.toFile(), report);
+
+        errors.forEach((operation, count) -> assertEquals(0, count.get(), operation + " requests failed"));
+        if (UPDATE_BASELINE) {
+            Files.createDirectories(BASELINE.toAbsolutePath().getParent());
+            objectMapper.writeValue(BASELINE.toFile(), report);
+        } else if (Files.exists(BASELINE)) {
+            compareWithBaseline(report, objectMapper.readValue(BASELINE.toFile(), LoadReport.class));
+        }
+    }
+
+    private List<String> seed(WebTestClient client) {
+        Flux<UserRequest> users = Flux.range(0, SEED).map(i -> newUser());
+        List<SeedResult> results = client.post().uri("/users/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .body(users, UserRequest.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(SeedResult.class)
+                .returnResult()
+                .getResponseBody();
+        List<String> ids = new ArrayList<>(SEED);
+        results.stream().filter(result -> result.id() != null).forEach(result -> ids.add(result.id()));
+        assertEquals(SEED, ids.size(), "seeding failed");
+        return ids;
+    }
+
+    private boolean execute(WebTestClient client, Operation operation, List<String> stable,
+                            ConcurrentLinkedQueue<String> toDelete) {
+        String id = stable.get(ThreadLocalRandom.current().nextInt(stable.size()));
+        return switch (operation) {
+            case CREATE -> client.post().uri("/users")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(newUser())
+                    .exchange()
+                    .returnResult(Void.class)
+                    .getStatus().is2xxSuccessful();
+            case READ -> client.get().uri("/users/{id}", id)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .returnResult(String.class)
+                    .getStatus().is2xxSuccessful();
+            case UPDATE -> client.patch().uri("/users/{id}", id)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new UserRequest("Load " + ThreadLocalRandom.current().nextInt(1000), null, null))
+                    .exchange()
+                    .returnResult(String.class)
+                    .getStatus().is2xxSuccessful();
+            case DELETE -> {
+                String victim = toDelete.poll();
+                yield victim == null || client.delete().uri("/users/{id}", victim)
+                        .exchange()
+                        .returnResult(Void.class)
+                        .getStatus().is2xxSuccessful();
+            }
+            case LIST -> client.get().uri("/users?limit=20")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .returnResult(String.class)
+                    .getStatus().is2xxSuccessful();
+        };
+    }
+
+    private UserRequest newUser() {
+        return new UserRequest("Load User", "load" + emails.incrementAndGet() + "@email.com", PASSWORD);
+    }
+
+    private LoadReport report(Map<Operation, Histogram> latencies, Map<Operation, AtomicLong> errors, double seconds) {
+        Map<String, LoadReport.OperationStats> operations = new LinkedHashMap<>();
+        Histogram all = new Histogram(MAX_LATENCY_MICROS, 3);
+        latencies.forEach((operation, histogram) -> {
+            all.add(histogram);
+            operations.put(operation.name().toLowerCase(), stats(histogram, errors.get(operation).get()));
+        });
+        operations.put("all", stats(all, errors.values().stream().mapToLong(AtomicLong::get).sum()));
+        return new LoadReport(Instant.now().toString(), CONCURRENCY, all.getTotalCount(), seconds,
+                all.getTotalCount() / seconds, operations);
+    }
+
+    private static LoadReport.OperationStats stats(Histogram histogram, long errors) {
+        return new LoadReport.OperationStats(histogram.getTotalCount(), errors,
+                histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99),
+                histogram.getValueAtPercentile(99.9), histogram.getMaxValue());
+    }
+
+    private static void compareWithBaseline(LoadReport current, LoadReport baseline) throws IOException {
+        List<String> regressions = new ArrayList<>();
+        if (current.throughput() < baseline.throughput() * (1 - TOLERANCE)) {
+            regressions.add(String.format("throughput %.1f req/s < baseline %.1f req/s",
+                    current.throughput(), baseline.throughput()));
+        }
+        baseline.operations().forEach((operation, expected) -> {
+            LoadReport.OperationStats actual = current.operations().get(operation);
+            if (actual != null && actual.count() > 0 && actual.p99() > expected.p99() * (1 + TOLERANCE)) {
+                regressions.add(String.format("%s p99 %dus > baseline %dus", operation, actual.p99(), expected.p99()));
+            }
+        });
+        assertTrue(regressions.isEmpty(), "Load regressions against " + BASELINE + ": " + regressions);
+    }
+
+    record SeedResult(long index, String id) {
+    }
+
+    enum Operation {
+        CREATE, READ, UPDATE, DELETE, LIST;
+
+        static Map<Operation, Integer> parseMix(String mix) {
+            Map<Operation, Integer> weights = new LinkedHashMap<>();
+            for (String entry : mix.split(",")) {
+                String[] pair = entry.trim().split("=");
+                weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+            }
+            return weights;
+        }
+
+        static Operation pick(Map<Operation, Integer> weights, int totalWeight) {
+            int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+            for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+                roll -= entry.getValue();
+                if (roll < 0) {
+                    return entry.getKey();
+                }
+            }
+            throw new IllegalStateException("empty operation mix");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.springreactive.webfluxcourse.loadtest;
+
+import com.springreactive.webfluxcourse.entity.User;
+import com.springreactive.webfluxcourse.respository.UserRepository;
+import com.springreactive.webfluxcourse.utils.SearchCursor;
+import com.springreactive.webfluxcourse.utils.SearchField;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the repository's search queries against a real mongod with the profiler on and checks
+ * the recorded plans: every page must be answered by an index scan on the expected index,
+ * never by a collection scan.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class UserSearchQueryPlanIT {
+
+    private static final String DATABASE = "webflux-course-plan";
+    private static final String[] NAMES = {"Ademir", "adriana", "ADRIANO", "Bruna", "bruno", "Carla", "Ágata"};
+    private static final int PAGE_SIZE = 5;
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        mongod = Mongod.instance().start(Version.Main.V7_0);
+        ServerAddress address = mongod.current().getServerAddress();
+        registry.add("spring.data.mongodb.uri", () -> "mongodb://" + address + "/" + DATABASE);
+    }
+
+    @AfterAll
+    static void stopMongod() {
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private UserRepository repository;
+
+    @BeforeEach
+    void seed() {
+        awaitIndex(User.NAME_INDEX);
+        awaitIndex(User.EMAIL_INDEX);
+        mongoTemplate.remove(new Query(), User.class).block();
+        List<User> users = IntStream.range(0, 300)
+                .mapToObj(i -> User.builder()
+                        .name(NAMES[i % NAMES.length] + " " + i)
+                        .email(NAMES[i % NAMES.length].toLowerCase(Locale.ROOT) + i + "@email.com")
+                        .password("hashed")
+                        .build())
+                .toList();
+        repository.insertAll(users).block();
+        mongoTemplate.executeCommand(new Document("profile", 0)).block();
+        mongoTemplate.dropCollection("system.profile").block();
+        mongoTemplate.executeCommand(new Document("profile", 2)).block();
+    }
+
+    @Test
+    void nameSearchIsCaseInsensitiveAndUsesTheCollatedIndex() {
+        List<User> matches = searchAll(SearchField.NAME, "adr");
+
+        assertEquals(86, matches.size());
+        assertTrue(matches.stream().allMatch(user -> user.getName().toLowerCase(Locale.ROOT).startsWith("adr")));
+        assertEquals(matches.size(), matches.stream().map(User::getId).distinct().count());
+        assertIndexedPlans("{ name: 1, _id: 1 }");
+    }
+
+    @Test
+    void emailSearchUsesTheUniqueIndex() {
+        List<User> matches = searchAll(SearchField.EMAIL, "bru");
+
+        assertEquals(86, matches.size());
+        assertTrue(matches.stream().allMatch(user -> user.getEmail().startsWith("bru")));
+        assertIndexedPlans("{ email: 1 }");
+    }
+
+    /**
+     * Walks every page the way the service does: one extra row decides whether a cursor follows.
+     */
+    private List<User> searchAll(SearchField field, String prefix) {
+        List<User> all = new ArrayList<>();
+        SearchCursor cursor = null;
+        while (true) {
+            List<User> page = repository.search(field, prefix, cursor, PAGE_SIZE + 1, Set.of("id"))
+                    .collectList()
+                    .block();
+            if (page.size() <= PAGE_SIZE) {
+                all.addAll(page);
+                return all;
+            }
+            List<User> content = page.subList(0, PAGE_SIZE);
+            all.addAll(content);
+            User last = content.get(PAGE_SIZE - 1);
+            cursor = new SearchCursor(field.keyOf(last), last.getId());
+        }
+    }
+
+    private void assertIndexedPlans(String keyPattern) {
+        List<Document> queries = mongoTemplate.find(
+                        new Query(Criteria.where("ns").is(DATABASE + "." + mongoTemplate.getCollectionName(User.class))
+                                .and("op").is("query")),
+                        Document.class, "system.profile")
+                .collectList()
+                .block();
+
+        assertFalse(queries.isEmpty(), "profiler recorded no queries");
+        for (Document query : queries) {
+            String plan = query.getString("planSummary");
+            assertFalse(plan.contains("COLLSCAN"), () -> "collection scan: " + query.toJson());
+            assertTrue(plan.contains("IXSCAN " + keyPattern), () -> "not an index scan on " + keyPattern + ": " + query.toJson());
+        }
+    }
+
+    private void awaitIndex(String name) {
+        Flux.defer(() -> mongoTemplate.indexOps(User.class).getIndexInfo())
+                .filter(index -> name.equals(index.getName()))
+                .next()
+                .repeatWhenEmpty(100, repeats -> repeats.delayElements(Duration.ofMillis(100)))
+                .block(Duration.ofSeconds(15));
+    }
+}
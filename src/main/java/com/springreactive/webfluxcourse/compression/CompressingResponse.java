@@ -0,0 +1,119 @@
+package com.springreactive.webfluxcourse.compression;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Response whose body is compressed with {@code encoding} when its content type is configured
+ * for compression. Bodies that already carry a {@code Content-Encoding} or {@code Content-Range},
+ * and responses without a body, are written untouched.
+ */
+final class CompressingResponse extends ServerHttpResponseDecorator {
+
+    private final ServerWebExchange exchange;
+    private final String encoding;
+    private final ResponseCompressionFilter filter;
+
+    CompressingResponse(final ServerWebExchange exchange, final String encoding,
+                        final ResponseCompressionFilter filter) {
+        super(exchange.getResponse());
+        this.exchange = exchange;
+        this.encoding = encoding;
+        this.filter = filter;
+    }
+
+    /**
+     * Holds buffers back until {@code min-response-size} bytes have been seen; a body that ends
+     * before that is written as it is.
+     */
+    @Override
+    public Mono<Void> writeWith(final Publisher<? extends DataBuffer> body) {
+        final ResponseCompressionFilter.Rule rule = rule();
+        final long contentLength = getHeaders().getContentLength();
+        if (rule == null || (contentLength >= 0 && contentLength < rule.minResponseSize())) {
+            return super.writeWith(body);
+        }
+        final AtomicLong seen = new AtomicLong();
+        return Flux.<DataBuffer>from(body)
+                .bufferUntil(buffer -> seen.addAndGet(buffer.readableByteCount()) >= rule.minResponseSize())
+                .switchOnFirst((first, buffers) -> {
+                    final Flux<DataBuffer> flattened = buffers.flatMapIterable(list -> list);
+                    if (!first.hasValue() || size(first.get()) < rule.minResponseSize()) {
+                        return super.writeWith(flattened);
+                    }
+                    final StreamCompressor compressor = start(rule);
+                    return super.writeWith(flattened
+                            .mapNotNull(compressor::compress)
+                            .concatWith(finish(compressor))
+                            .doFinally(signal -> compressor.end()));
+                })
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                .then();
+    }
+
+    /**
+     * Compresses regardless of size and ends every flushed group with a sync flush.
+     */
+    @Override
+    public Mono<Void> writeAndFlushWith(final Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        final ResponseCompressionFilter.Rule rule = rule();
+        if (rule == null) {
+            return super.writeAndFlushWith(body);
+        }
+        final StreamCompressor compressor = start(rule);
+        return super.writeAndFlushWith(Flux.from(body)
+                .<Publisher<DataBuffer>>map(group -> Flux.<DataBuffer>from(group)
+                        .mapNotNull(compressor::compress)
+                        .concatWith(Mono.fromSupplier(compressor::flush)))
+                .concatWith(Mono.just(finish(compressor)))
+                .doFinally(signal -> compressor.end())
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release));
+    }
+
+    private ResponseCompressionFilter.Rule rule() {
+        final HttpStatusCode status = getStatusCode();
+        if (status != null && (status.value() == HttpStatus.NO_CONTENT.value()
+                || status.value() == HttpStatus.NOT_MODIFIED.value())) {
+            return null;
+        }
+        final HttpHeaders headers = getHeaders();
+        if (headers.containsKey(HttpHeaders.CONTENT_ENCODING) || headers.containsKey(HttpHeaders.CONTENT_RANGE)) {
+            return null;
+        }
+        return filter.ruleFor(headers.getContentType());
+    }
+
+    private StreamCompressor start(final ResponseCompressionFilter.Rule rule) {
+        final HttpHeaders headers = getHeaders();
+        headers.set(HttpHeaders.CONTENT_ENCODING, encoding);
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        return new StreamCompressor(encoding, rule.level(), bufferFactory());
+    }
+
+    private Mono<DataBuffer> finish(final StreamCompressor compressor) {
+        return Mono.fromSupplier(() -> {
+            final DataBuffer trailer = compressor.finish();
+            filter.record(exchange, encoding, compressor);
+            return trailer;
+        });
+    }
+
+    private static long size(final List<DataBuffer> buffers) {
+        long size = 0;
+        for (DataBuffer buffer : buffers) {
+            size += buffer.readableByteCount();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,183 @@
+package com.springreactive.webfluxcourse.compression;
+
+import com.springreactive.webfluxcourse.config.CompressionProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses responses of the configured media types with the first encoding in
+ * {@code users.compression.encodings} that the client accepts. The decision is taken when the
+ * body is written, once the handler has set the content type: bodies that end before
+ * {@code min-response-size} bytes go out as they are, so small lookups do not pay for deflate.
+ * Streamed exports are always compressed and sync-flushed at each flush the handler asks for
+ * (once per window of records), so a client can decompress records as they arrive instead of
+ * waiting for the end of the response.
+ * <p>
+ * Records {@value #RATIO_METRIC} (compressed size over original size) and {@value #CPU_METRIC}
+ * (thread CPU time spent deflating) per route and encoding.
+ */
+@Component
+public class ResponseCompressionFilter implements WebFilter, Ordered {
+
+    public static final String RATIO_METRIC = "users.compression.ratio";
+    public static final String CPU_METRIC = "users.compression.cpu";
+
+    private static final String UNKNOWN_ROUTE = "UNKNOWN";
+
+    private final boolean enabled;
+    private final List<String> encodings;
+    private final List<Rule> rules;
+    private final MeterRegistry registry;
+
+    public ResponseCompressionFilter(final CompressionProperties properties, final MeterRegistry registry) {
+        this.enabled = properties.enabled();
+        this.encodings = properties.encodings().stream()
+                .map(encoding -> encoding.trim().toLowerCase(Locale.ROOT))
+                .peek(ResponseCompressionFilter::checkEncoding)
+                .toList();
+        this.rules = properties.mediaTypes().entrySet().stream()
+                .filter(entry -> entry.getValue().enabled())
+                .map(entry -> Rule.of(entry, properties))
+                .toList();
+        this.registry = registry;
+    }
+
+    /**
+     * Outside the rate limiter, so rejections are compressed like any other response.
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+        final ServerHttpRequest request = exchange.getRequest();
+        if (!enabled || rules.isEmpty() || HttpMethod.HEAD.equals(request.getMethod())) {
+            return chain.filter(exchange);
+        }
+        final String encoding = negotiate(request.getHeaders().get(HttpHeaders.ACCEPT_ENCODING));
+        exchange.getResponse().beforeCommit(() -> Mono.fromRunnable(() -> varyByAcceptEncoding(exchange)));
+        if (encoding == null) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange.mutate()
+                .response(new CompressingResponse(exchange, encoding, this))
+                .build());
+    }
+
+    /**
+     * Settings for a response of {@code contentType}, or null if it is not compressed.
+     */
+    Rule ruleFor(final MediaType contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (Rule rule : rules) {
+            if (rule.mediaType().includes(contentType)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    void record(final ServerWebExchange exchange, final String encoding, final StreamCompressor compressor) {
+        if (compressor.bytesIn() == 0) {
+            return;
+        }
+        final String method = exchange.getRequest().getMethod().name();
+        final PathPattern pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        final String uri = pattern == null ? UNKNOWN_ROUTE : pattern.getPatternString();
+        DistributionSummary.builder(RATIO_METRIC)
+                .tags("method", method, "uri", uri, "encoding", encoding)
+                .register(registry)
+                .record((double) compressor.bytesOut() / compressor.bytesIn());
+        Timer.builder(CPU_METRIC)
+                .tags("method", method, "uri", uri, "encoding", encoding)
+                .register(registry)
+                .record(compressor.cpuNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The first supported encoding the client accepts with a non-zero quality; {@code identity}
+     * and unknown codings are ignored, and {@code *} accepts any encoding not listed explicitly.
+     */
+    private String negotiate(final List<String> acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        final Map<String, Double> accepted = new HashMap<>();
+        for (String header : acceptEncoding) {
+            for (String token : header.split(",")) {
+                final String[] parts = token.trim().split(";");
+                double quality = 1.0;
+                for (int i = 1; i < parts.length; i++) {
+                    final String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            quality = Double.parseDouble(parameter.substring(2));
+                        } catch (NumberFormatException ex) {
+                            quality = 0;
+                        }
+                    }
+                }
+                accepted.put(parts[0].trim().toLowerCase(Locale.ROOT), quality);
+            }
+        }
+        for (String encoding : encodings) {
+            final Double quality = accepted.getOrDefault(encoding, accepted.get("*"));
+            if (quality != null && quality > 0) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Added on commit, since a handler's {@code ResponseEntity} headers replace a {@code Vary}
+     * set earlier.
+     */
+    private static void varyByAcceptEncoding(final ServerWebExchange exchange) {
+        final HttpHeaders headers = exchange.getResponse().getHeaders();
+        final List<String> vary = headers.getVary();
+        if (!vary.contains(HttpHeaders.ACCEPT_ENCODING) && !vary.contains("*")) {
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+    }
+
+    private static void checkEncoding(final String encoding) {
+        if (!StreamCompressor.GZIP.equals(encoding) && !StreamCompressor.DEFLATE.equals(encoding)) {
+            throw new IllegalArgumentException("Unsupported compression encoding: " + encoding);
+        }
+    }
+
+    record Rule(MediaType mediaType, int level, long minResponseSize) {
+
+        static Rule of(final Map.Entry<String, CompressionProperties.MediaTypeSettings> entry,
+                       final CompressionProperties properties) {
+            final CompressionProperties.MediaTypeSettings settings = entry.getValue();
+            return new Rule(MediaType.parseMediaType(entry.getKey()),
+                    settings.level() != null ? settings.level() : properties.level(),
+                    (settings.minResponseSize() != null ? settings.minResponseSize() : properties.minResponseSize()).toBytes());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.springreactive.webfluxcourse.compression;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Incremental {@code gzip} or {@code deflate} (zlib) encoder of one response body. Input is
+ * compressed as it arrives, but deflate keeps what it has not emitted yet; {@link #flush()}
+ * ends the current block on a byte boundary (a sync flush) so that everything written so far
+ * can be decompressed by the client, at the cost of a few bytes each time.
+ * <p>
+ * Calls are synchronized because the body may be cancelled, and {@link #end()} called, from
+ * another thread while a chunk is being compressed. The CPU time spent deflating is measured
+ * per thread when the JVM supports it, and as wall time otherwise.
+ */
+final class StreamCompressor {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Deflater deflater;
+    private final CRC32 crc;
+    private final DataBufferFactory bufferFactory;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private boolean started;
+    private boolean ended;
+    private long bytesIn;
+    private long bytesOut;
+    private long cpuNanos;
+
+    StreamCompressor(final String encoding, final int level, final DataBufferFactory bufferFactory) {
+        final boolean gzip = GZIP.equals(encoding);
+        this.deflater = new Deflater(level, gzip);
+        this.crc = gzip ? new CRC32() : null;
+        this.bufferFactory = bufferFactory;
+    }
+
+    /**
+     * Compresses and releases {@code input}; returns null when deflate has nothing to emit yet.
+     */
+    synchronized DataBuffer compress(final DataBuffer input) {
+        try {
+            if (ended) {
+                return null;
+            }
+            final long start = now();
+            bytesIn += input.readableByteCount();
+            DataBuffer output = header();
+            try (DataBuffer.ByteBufferIterator buffers = input.readableByteBuffers()) {
+                while (buffers.hasNext()) {
+                    final ByteBuffer buffer = buffers.next();
+                    if (crc != null) {
+                        crc.update(buffer.duplicate());
+                    }
+                    deflater.setInput(buffer);
+                    while (!deflater.needsInput()) {
+                        output = deflate(output, Deflater.NO_FLUSH);
+                    }
+                }
+            }
+            cpuNanos += now() - start;
+            return output;
+        } finally {
+            DataBufferUtils.release(input);
+        }
+    }
+
+    synchronized DataBuffer flush() {
+        if (ended) {
+            return null;
+        }
+        final long start = now();
+        DataBuffer output = header();
+        int written;
+        do {
+            final int before = output == null ? 0 : output.readableByteCount();
+            output = deflate(output, Deflater.SYNC_FLUSH);
+            written = (output == null ? 0 : output.readableByteCount()) - before;
+        } while (written == CHUNK_SIZE);
+        cpuNanos += now() - start;
+        return output;
+    }
+
+    /**
+     * Ends the stream, with the gzip trailer when applicable, and frees the deflater.
+     */
+    synchronized DataBuffer finish() {
+        if (ended) {
+            return null;
+        }
+        final long start = now();
+        DataBuffer output = header();
+        deflater.finish();
+        while (!deflater.finished()) {
+            output = deflate(output, Deflater.NO_FLUSH);
+        }
+        if (crc != null) {
+            output = output != null ? output : bufferFactory.allocateBuffer(8);
+            writeIntLittleEndian(output, (int) crc.getValue());
+            writeIntLittleEndian(output, (int) bytesIn);
+            bytesOut += 8;
+        }
+        cpuNanos += now() - start;
+        end();
+        return output;
+    }
+
+    synchronized void end() {
+        if (!ended) {
+            ended = true;
+            deflater.end();
+        }
+    }
+
+    synchronized long bytesIn() {
+        return bytesIn;
+    }
+
+    synchronized long bytesOut() {
+        return bytesOut;
+    }
+
+    synchronized long cpuNanos() {
+        return cpuNanos;
+    }
+
+    private DataBuffer header() {
+        if (started) {
+            return null;
+        }
+        started = true;
+        if (crc == null) {
+            return null;
+        }
+        bytesOut += GZIP_HEADER.length;
+        return bufferFactory.allocateBuffer(CHUNK_SIZE).write(GZIP_HEADER);
+    }
+
+    private DataBuffer deflate(final DataBuffer output, final int mode) {
+        final int length = deflater.deflate(chunk, 0, chunk.length, mode);
+        if (length == 0) {
+            return output;
+        }
+        bytesOut += length;
+        final DataBuffer target = output != null ? output : bufferFactory.allocateBuffer(CHUNK_SIZE);
+        return target.write(chunk, 0, length);
+    }
+
+    private static void writeIntLittleEndian(final DataBuffer buffer, final int value) {
+        buffer.write(new byte[] {(byte) value, (byte) (value >>> 8), (byte) (value >>> 16), (byte) (value >>> 24)});
+    }
+
+    private static long now() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
@@ -0,0 +1,13 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param maxIds upper bound on distinct ids resolved by a single batch read
+ */
+@ConfigurationProperties(prefix = "users.batch-get")
+public record BatchGetProperties(
+        @DefaultValue("100") int maxIds
+) {
+}
@@ -0,0 +1,14 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "users.bulk")
+public record BulkProperties(
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("200ms") Duration maxWait,
+        @DefaultValue("2") int concurrency
+) {
+}
@@ -0,0 +1,19 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param negativeTtl how long an id that was not found stays cached as absent
+ */
+@ConfigurationProperties(prefix = "users.cache")
+public record CacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("10m") Duration ttl,
+        @DefaultValue("1m") Duration refreshAfterWrite,
+        @DefaultValue("5s") Duration negativeTtl
+) {
+}
@@ -0,0 +1,15 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param heartbeat interval of the comment events that keep idle change feeds open through proxies
+ */
+@ConfigurationProperties(prefix = "users.changes")
+public record ChangeStreamProperties(
+        @DefaultValue("15s") Duration heartbeat
+) {
+}
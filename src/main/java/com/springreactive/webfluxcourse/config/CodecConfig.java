@@ -0,0 +1,66 @@
+package com.springreactive.webfluxcourse.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.springreactive.webfluxcourse.controller.codec.BinaryObjectMappers;
+import com.springreactive.webfluxcourse.controller.codec.UserJsonEncoder;
+import com.springreactive.webfluxcourse.controller.codec.UserPayloadTypes;
+import com.springreactive.webfluxcourse.controller.codec.UserProtobufDecoder;
+import com.springreactive.webfluxcourse.controller.codec.UserProtobufEncoder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+
+@Configuration
+public class CodecConfig {
+
+    /**
+     * Built from Boot's {@link Jackson2ObjectMapperBuilder} (a new one per call), so CBOR and
+     * Smile follow the same {@code spring.jackson.*} settings as JSON.
+     */
+    @Bean
+    BinaryObjectMappers binaryObjectMappers(ObjectProvider<Jackson2ObjectMapperBuilder> builder) {
+        return new BinaryObjectMappers(
+                builder.getObject().factory(new CBORFactory()).build(),
+                builder.getObject().factory(new SmileFactory()).build());
+    }
+
+    /**
+     * Custom codecs that only handle specific types are tried before the default ones, in
+     * registration order, so {@link UserJsonEncoder} comes first to keep JSON the answer to
+     * {@code Accept: *}{@code /*}. CBOR is limited to the user payloads for the same reason:
+     * a catch-all custom encoder would be preferred over JSON for every other type. Smile
+     * replaces the default codecs, which come after JSON.
+     */
+    @Bean
+    CodecCustomizer userCodecCustomizer(UserJsonEncoder jsonEncoder, BinaryObjectMappers mappers,
+                                        UserProtobufEncoder protobufEncoder, UserProtobufDecoder protobufDecoder) {
+        return configurer -> {
+            configurer.customCodecs().register(jsonEncoder);
+            configurer.customCodecs().register(protobufEncoder);
+            configurer.customCodecs().register(protobufDecoder);
+            configurer.customCodecs().register(new Jackson2CborEncoder(mappers.cbor()) {
+                @Override
+                public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+                    return UserPayloadTypes.isUserPayload(elementType) && super.canEncode(elementType, mimeType);
+                }
+            });
+            configurer.customCodecs().register(new Jackson2CborDecoder(mappers.cbor()) {
+                @Override
+                public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+                    return UserPayloadTypes.isUserPayload(elementType) && super.canDecode(elementType, mimeType);
+                }
+            });
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(mappers.smile()));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(mappers.smile()));
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @param encodings       supported {@code Content-Encoding}s ({@code gzip}, {@code deflate}), in
+ *                        order of preference when the client accepts several
+ * @param minResponseSize responses known to be smaller than this are sent uncompressed;
+ *                        streamed exports are always compressed
+ * @param level           deflate level, 1 (fastest) to 9 (smallest)
+ * @param mediaTypes      only responses of these media types are compressed, keyed by media type
+ *                        (wildcards allowed), each optionally overriding the level and threshold
+ */
+@ConfigurationProperties(prefix = "users.compression")
+public record CompressionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue({"gzip", "deflate"}) List<String> encodings,
+        @DefaultValue("2KB") DataSize minResponseSize,
+        @DefaultValue("6") int level,
+        Map<String, MediaTypeSettings> mediaTypes
+) {
+
+    public CompressionProperties {
+        mediaTypes = mediaTypes == null ? Map.of() : Map.copyOf(mediaTypes);
+    }
+
+    public record MediaTypeSettings(
+            @DefaultValue("true") boolean enabled,
+            Integer level,
+            DataSize minResponseSize
+    ) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.springreactive.webfluxcourse.config;
+
+import com.springreactive.webfluxcourse.service.cache.InMemoryKeyValueStore;
+import com.springreactive.webfluxcourse.service.cache.KeyValueStore;
+import com.springreactive.webfluxcourse.service.cache.RedisKeyValueStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+
+@Configuration
+public class DistributedCacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "users.distributed-cache.store", havingValue = "redis")
+    KeyValueStore redisKeyValueStore(ReactiveRedisConnectionFactory connectionFactory) {
+        return new RedisKeyValueStore(connectionFactory);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(KeyValueStore.class)
+    KeyValueStore inMemoryKeyValueStore(DistributedCacheProperties properties) {
+        return new InMemoryKeyValueStore(properties.maximumSize());
+    }
+}
@@ -0,0 +1,19 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param store       {@code in-memory} (embedded, single node) or {@code redis}
+ * @param maximumSize entry bound for the embedded store only
+ */
+@ConfigurationProperties(prefix = "users.distributed-cache")
+public record DistributedCacheProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("in-memory") String store,
+        @DefaultValue("30m") Duration ttl,
+        @DefaultValue("100000") long maximumSize
+) {
+}
@@ -0,0 +1,16 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param expectedInsertions number of registered emails the filter is sized for; past it the
+ *                           false-positive rate degrades gracefully until the next rebuild
+ */
+@ConfigurationProperties(prefix = "users.email-filter")
+public record EmailFilterProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1000000") long expectedInsertions,
+        @DefaultValue("0.01") double falsePositiveRate
+) {
+}
@@ -0,0 +1,21 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param workFactor    bcrypt log rounds; each increment doubles the hashing cost
+ * @param threads       hashing threads; {@code 0} uses one per available processor
+ * @param queueCapacity hashing tasks allowed to wait for a thread before requests are shed with 503
+ */
+@ConfigurationProperties(prefix = "users.hashing")
+public record HashingProperties(
+        @DefaultValue("10") int workFactor,
+        @DefaultValue("0") int threads,
+        @DefaultValue("1000") int queueCapacity
+) {
+
+    public int resolveThreads() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,24 @@
+package com.springreactive.webfluxcourse.config;
+
+import com.springreactive.webfluxcourse.entity.User;
+import com.springreactive.webfluxcourse.respository.UserRepository;
+import com.springreactive.webfluxcourse.service.cache.BatchLoader;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+public class MicroBatchConfig {
+
+    /**
+     * Reads of a single user by id that miss every cache tier, gathered into {@code $in} queries.
+     */
+    @Bean
+    BatchLoader<String, User> userByIdBatchLoader(final UserRepository repository,
+                                                  final MicroBatchProperties properties,
+                                                  final MeterRegistry meterRegistry) {
+        return new BatchLoader<>("users.byId", properties, repository::findAllById, User::getId,
+                repository::findById, Schedulers.parallel(), meterRegistry);
+    }
+}
@@ -0,0 +1,18 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param window       how long the first id of a batch waits for others to join it
+ * @param maxBatchSize ids that dispatch a batch immediately, without waiting for the window
+ */
+@ConfigurationProperties(prefix = "users.micro-batch")
+public record MicroBatchProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("500us") Duration window,
+        @DefaultValue("100") int maxBatchSize
+) {
+}
@@ -0,0 +1,18 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "users.pagination")
+public record PaginationProperties(
+        @DefaultValue("20") int defaultLimit,
+        @DefaultValue("100") int maxLimit
+) {
+
+    public int resolveLimit(final Integer requested) {
+        if (requested == null) {
+            return Math.min(defaultLimit, maxLimit);
+        }
+        return Math.max(1, Math.min(requested, maxLimit));
+    }
+}
@@ -0,0 +1,54 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * @param clientHeader header identifying the client (first value of a comma-separated list);
+ *                     when absent or not sent, the remote address is used
+ * @param maxClients   bound on tracked client buckets; idle clients are evicted first
+ * @param routes       buckets shared by every client of a route, keyed {@code "METHOD /path/{var}"}
+ */
+@ConfigurationProperties(prefix = "users.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        String clientHeader,
+        @DefaultValue("100000") long maxClients,
+        @DefaultValue Bucket perClient,
+        Map<String, Bucket> routes,
+        @DefaultValue Concurrency concurrency
+) {
+
+    public RateLimitProperties {
+        routes = routes == null ? Map.of() : Map.copyOf(routes);
+    }
+
+    /**
+     * @param capacity        burst size
+     * @param refillPerSecond sustained rate
+     */
+    public record Bucket(
+            @DefaultValue("100") long capacity,
+            @DefaultValue("50") double refillPerSecond
+    ) {
+    }
+
+    /**
+     * AIMD limit on in-flight requests, driven by repository latency.
+     *
+     * @param latencyThreshold repository calls slower than this (or failing) shrink the limit
+     * @param backoffRatio     multiplicative decrease, applied at most once per threshold window
+     */
+    public record Concurrency(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("64") int initialLimit,
+            @DefaultValue("8") int minLimit,
+            @DefaultValue("512") int maxLimit,
+            @DefaultValue("50ms") Duration latencyThreshold,
+            @DefaultValue("0.9") double backoffRatio
+    ) {
+    }
+}
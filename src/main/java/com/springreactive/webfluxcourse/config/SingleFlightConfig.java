@@ -0,0 +1,31 @@
+package com.springreactive.webfluxcourse.config;
+
+import com.springreactive.webfluxcourse.entity.User;
+import com.springreactive.webfluxcourse.service.cache.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class SingleFlightConfig {
+
+    /**
+     * Reads of a single user by id that reach the shared cache tier or Mongo.
+     */
+    @Bean
+    SingleFlight<String, User> userByIdSingleFlight(final SingleFlightProperties properties,
+                                                    final MeterRegistry meterRegistry) {
+        return new SingleFlight<>("users.byId", properties.enabled(), properties.maxKeys(), meterRegistry);
+    }
+
+    /**
+     * First page of {@code GET /users}, keyed by page size and field selection.
+     */
+    @Bean
+    SingleFlight<String, List<User>> firstPageSingleFlight(final SingleFlightProperties properties,
+                                                           final MeterRegistry meterRegistry) {
+        return new SingleFlight<>("users.firstPage", properties.enabled(), properties.maxKeys(), meterRegistry);
+    }
+}
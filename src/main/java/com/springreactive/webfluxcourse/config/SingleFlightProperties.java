@@ -0,0 +1,14 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param maxKeys bound on concurrently tracked flights per coalesced operation
+ */
+@ConfigurationProperties(prefix = "users.single-flight")
+public record SingleFlightProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") int maxKeys
+) {
+}
@@ -0,0 +1,14 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "users.streaming")
+public record StreamingProperties(
+        @DefaultValue("256") int flushSize,
+        @DefaultValue("100ms") Duration flushInterval,
+        @DefaultValue("512") int cursorBatchSize
+) {
+}
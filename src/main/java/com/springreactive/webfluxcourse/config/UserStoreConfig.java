@@ -0,0 +1,37 @@
+package com.springreactive.webfluxcourse.config;
+
+import com.springreactive.webfluxcourse.respository.InMemoryUserRepository;
+import com.springreactive.webfluxcourse.respository.MongoUserRepository;
+import com.springreactive.webfluxcourse.respository.UserRepository;
+import com.springreactive.webfluxcourse.respository.WriteBehindUserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+@Configuration
+public class UserStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "users.write-behind.enabled", havingValue = "true")
+    UserRepository writeBehindUserRepository(ReactiveMongoTemplate mongoTemplate, WriteBehindProperties writeBehind,
+                                             UserStoreProperties properties, MeterRegistry meterRegistry) {
+        return new WriteBehindUserRepository(new MongoUserRepository(mongoTemplate), writeBehind,
+                properties.changeHistory(), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(UserRepository.class)
+    @ConditionalOnProperty(name = "users.store.engine", havingValue = "in-memory")
+    UserRepository inMemoryUserRepository(UserStoreProperties properties) {
+        return new InMemoryUserRepository(properties.changeHistory());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(UserRepository.class)
+    UserRepository mongoUserRepository(ReactiveMongoTemplate mongoTemplate) {
+        return new MongoUserRepository(mongoTemplate);
+    }
+}
@@ -0,0 +1,15 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param engine        {@code mongo} or {@code in-memory} (embedded, single node, not durable)
+ * @param changeHistory changes the embedded engine keeps for resuming change feeds
+ */
+@ConfigurationProperties(prefix = "users.store")
+public record UserStoreProperties(
+        @DefaultValue("mongo") String engine,
+        @DefaultValue("10000") int changeHistory
+) {
+}
@@ -0,0 +1,25 @@
+package com.springreactive.webfluxcourse.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * @param directory         where the log segments live; must be on local, durable storage
+ * @param segmentSize       size of each memory-mapped log segment
+ * @param flushInterval     how often pending mutations are written to Mongo
+ * @param batchSize         users per bulk write to Mongo
+ * @param maxSealedSegments full segments kept before live entries are rewritten into the active one
+ */
+@ConfigurationProperties(prefix = "users.write-behind")
+public record WriteBehindProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("data/users-log") String directory,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("200ms") Duration flushInterval,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("4") int maxSealedSegments
+) {
+}
@@ -1,28 +1,87 @@
 package com.springreactive.webfluxcourse.controller;
 
+import com.springreactive.webfluxcourse.model.request.BatchGetRequest;
+import com.springreactive.webfluxcourse.model.request.PasswordVerificationRequest;
 import com.springreactive.webfluxcourse.model.request.UserRequest;
+import com.springreactive.webfluxcourse.model.response.BatchGetItemResponse;
+import com.springreactive.webfluxcourse.model.response.BulkItemResponse;
+import com.springreactive.webfluxcourse.model.response.PageResponse;
+import com.springreactive.webfluxcourse.model.response.PasswordVerificationResponse;
+import com.springreactive.webfluxcourse.model.response.UserChangeResponse;
 import com.springreactive.webfluxcourse.model.response.UserResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface UserController {
 
     @PostMapping
     ResponseEntity<Mono<Void>> save(@Valid @RequestBody UserRequest request);
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<Flux<BulkItemResponse>> saveAll(@RequestBody Flux<UserRequest> requests, ServerHttpRequest request);
+
     @GetMapping(value = "/{id}")
-    ResponseEntity<Mono<UserResponse>> findById(@PathVariable String id);
+    Mono<ResponseEntity<UserResponse>> findById(@PathVariable String id,
+                                                @RequestParam(required = false) String fields,
+                                                ServerWebExchange exchange);
 
     @GetMapping
-    ResponseEntity<Flux<UserResponse>> findAll();
+    ResponseEntity<Mono<PageResponse<UserResponse>>> findAll(@RequestParam(required = false) String after,
+                                                            @RequestParam(required = false) Integer limit,
+                                                            @RequestParam(required = false) String fields);
+
+    @PostMapping(value = "/batch-get")
+    ResponseEntity<Flux<BatchGetItemResponse>> batchGet(@Valid @RequestBody BatchGetRequest request,
+                                                        @RequestParam(required = false) String fields,
+                                                        ServerHttpRequest httpRequest);
+
+    @GetMapping(params = "ids", produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<Flux<BatchGetItemResponse>> findAllById(@RequestParam List<String> ids,
+                                                           @RequestParam(required = false) String fields,
+                                                           ServerHttpRequest httpRequest);
+
+    @GetMapping(value = "/by-email")
+    Mono<ResponseEntity<UserResponse>> findByEmail(@RequestParam String email,
+                                                   @RequestParam(required = false) String fields,
+                                                   ServerWebExchange exchange);
+
+    @GetMapping(value = "/search")
+    ResponseEntity<Mono<PageResponse<UserResponse>>> search(@RequestParam String q,
+                                                           @RequestParam(required = false) String field,
+                                                           @RequestParam(required = false) String after,
+                                                           @RequestParam(required = false) Integer limit,
+                                                           @RequestParam(required = false) String fields);
+
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE,
+            "application/stream+x-jackson-smile", "application/cbor-seq", "application/stream+x-protobuf"})
+    Mono<Void> stream(@RequestParam(required = false) String fields, ServerWebExchange exchange);
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    Flux<ServerSentEvent<UserChangeResponse>> changes(@RequestParam(required = false) String resumeToken,
+                                                      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId);
 
     @PatchMapping(value = "/{id}")
-    ResponseEntity<Mono<UserResponse>> update(@PathVariable String id, @RequestBody UserRequest request);
+    Mono<ResponseEntity<UserResponse>> update(@PathVariable String id,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @RequestBody UserRequest request,
+                                              ServerWebExchange exchange);
+
+    @PostMapping(value = "/{id}/password/verify")
+    ResponseEntity<Mono<PasswordVerificationResponse>> verifyPassword(@PathVariable String id,
+                                                                      @Valid @RequestBody PasswordVerificationRequest request);
 
     @DeleteMapping(value = "/{id}")
-    ResponseEntity<Mono<Void>> delete(@PathVariable String id);
+    ResponseEntity<Mono<Void>> delete(@PathVariable String id,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch);
 
 }
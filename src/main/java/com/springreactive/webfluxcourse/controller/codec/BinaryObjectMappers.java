@@ -0,0 +1,14 @@
+package com.springreactive.webfluxcourse.controller.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@code ObjectMapper}s for the binary Jackson formats, configured like the JSON one. They are
+ * grouped here instead of being beans themselves, because an {@code ObjectMapper} bean would
+ * replace Spring Boot's JSON mapper.
+ */
+public record BinaryObjectMappers(
+        ObjectMapper cbor,
+        ObjectMapper smile
+) {
+}
@@ -0,0 +1,349 @@
+package com.springreactive.webfluxcourse.controller.codec;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.springreactive.webfluxcourse.controller.exceptions.StandardError;
+import com.springreactive.webfluxcourse.controller.exceptions.ValidationError;
+import com.springreactive.webfluxcourse.model.response.PageResponse;
+import com.springreactive.webfluxcourse.model.response.UserResponse;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON encoder for {@link UserResponse}, {@code PageResponse<UserResponse>} and the error bodies,
+ * registered ahead of the Jackson encoder. Property names are encoded once up front; each value
+ * is measured first so it is written into a single buffer of the exact size, and strings that
+ * need no escaping are copied as they are.
+ * <p>
+ * The output is byte-for-byte what the application's {@code ObjectMapper} writes for these
+ * types with Spring Boot's defaults (ISO timestamps, nulls written except where
+ * {@code @JsonInclude(NON_NULL)} says otherwise); changing those settings, or the types, needs a
+ * matching change here.
+ */
+@Component
+public class UserJsonEncoder implements Encoder<Object> {
+
+    private static final List<MimeType> MIME_TYPES = List.of(MediaType.APPLICATION_JSON);
+    private static final JsonStringEncoder STRINGS = JsonStringEncoder.getInstance();
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] QUOTE = ascii("\"");
+    private static final byte[] EMPTY_OBJECT = ascii("{}");
+    private static final byte[] OBJECT_END = ascii("}");
+    private static final byte[] ARRAY_START = ascii("[");
+    private static final byte[] ARRAY_END = ascii("]");
+    private static final byte[] EMPTY_ARRAY = ascii("[]");
+    private static final byte[] SEPARATOR = ascii(",");
+
+    private static final Field USER_ID = new Field("id");
+    private static final Field USER_NAME = new Field("name");
+    private static final Field USER_EMAIL = new Field("email");
+    private static final Field PAGE_CONTENT = new Field("content");
+    private static final Field PAGE_TOKEN = new Field("nextPageToken");
+    private static final Field TIMESTAMP_FIELD = new Field("timestamp");
+    private static final Field PATH = new Field("path");
+    private static final Field STATUS = new Field("status");
+    private static final Field ERROR = new Field("error");
+    private static final Field ERROR_MESSAGE = new Field("errorMessage");
+    private static final Field ERRORS = new Field("errors");
+    private static final Field FIELD_NAME = new Field("fieldName");
+    private static final Field MESSAGE = new Field("message");
+
+    @Override
+    public boolean canEncode(final ResolvableType elementType, final MimeType mimeType) {
+        if (mimeType != null && !MediaType.APPLICATION_JSON.isCompatibleWith(mimeType)) {
+            return false;
+        }
+        final Class<?> type = elementType.toClass();
+        if (type == UserResponse.class || type == StandardError.class || type == ValidationError.class) {
+            return true;
+        }
+        return type == PageResponse.class && elementType.getGeneric(0).toClass() == UserResponse.class;
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    /**
+     * A single value for a {@link Mono}, otherwise a JSON array with one buffer per element,
+     * like the Jackson encoder for non-streaming media types.
+     */
+    @Override
+    public Flux<DataBuffer> encode(final Publisher<?> inputStream, final DataBufferFactory bufferFactory,
+                                   final ResolvableType elementType, final MimeType mimeType,
+                                   final Map<String, Object> hints) {
+        if (inputStream instanceof Mono<?> mono) {
+            return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+        }
+        return Flux.defer(() -> {
+            final boolean[] first = {true};
+            return Flux.from(inputStream)
+                    .map(value -> {
+                        final byte[] prefix = first[0] ? ARRAY_START : SEPARATOR;
+                        first[0] = false;
+                        return encode(value, bufferFactory, prefix, null);
+                    })
+                    .concatWith(Mono.fromSupplier(() -> bufferFactory.wrap(first[0] ? EMPTY_ARRAY : ARRAY_END)))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    @Override
+    public DataBuffer encodeValue(final Object value, final DataBufferFactory bufferFactory,
+                                  final ResolvableType valueType, final MimeType mimeType,
+                                  final Map<String, Object> hints) {
+        return encode(value, bufferFactory, null, null);
+    }
+
+    /**
+     * Encodes {@code value} into one buffer, between the optional raw {@code prefix} and
+     * {@code suffix}, which callers use for framing such as NDJSON or server-sent events.
+     */
+    public DataBuffer encode(final Object value, final DataBufferFactory bufferFactory,
+                             final byte[] prefix, final byte[] suffix) {
+        final int size = length(prefix) + sizeOf(value) + length(suffix);
+        final DataBuffer buffer = bufferFactory.allocateBuffer(size);
+        try {
+            if (prefix != null) {
+                buffer.write(prefix);
+            }
+            write(value, buffer);
+            if (suffix != null) {
+                buffer.write(suffix);
+            }
+            return buffer;
+        } catch (RuntimeException ex) {
+            DataBufferUtils.release(buffer);
+            throw ex;
+        }
+    }
+
+    private static int sizeOf(final Object value) {
+        if (value instanceof UserResponse user) {
+            return sizeOf(user);
+        }
+        if (value instanceof PageResponse<?> page) {
+            int size = PAGE_CONTENT.first.length + PAGE_TOKEN.next.length + OBJECT_END.length
+                    + stringSize(page.nextPageToken());
+            if (page.content() == null) {
+                return size + NULL.length;
+            }
+            size += EMPTY_ARRAY.length + Math.max(0, page.content().size() - 1) * SEPARATOR.length;
+            for (Object user : page.content()) {
+                size += sizeOf((UserResponse) user);
+            }
+            return size;
+        }
+        if (value instanceof StandardError error) {
+            int size = TIMESTAMP_FIELD.first.length + PATH.next.length + STATUS.next.length
+                    + ERROR.next.length + ERROR_MESSAGE.next.length + OBJECT_END.length
+                    + (error.getTimestamp() == null ? NULL.length : 2 * QUOTE.length + 29)
+                    + stringSize(error.getPath())
+                    + (error.getStatus() == null ? NULL.length : 11)
+                    + stringSize(error.getError())
+                    + stringSize(error.getErrorMessage());
+            if (error instanceof ValidationError validation) {
+                size += ERRORS.next.length + EMPTY_ARRAY.length
+                        + Math.max(0, validation.getErrors().size() - 1) * SEPARATOR.length;
+                for (ValidationError.FieldError field : validation.getErrors()) {
+                    size += FIELD_NAME.first.length + MESSAGE.next.length + OBJECT_END.length
+                            + stringSize(field.getFieldName()) + stringSize(field.getMessage());
+                }
+            }
+            return size;
+        }
+        throw new EncodingException("Unsupported value: " + value.getClass().getName());
+    }
+
+    private static int sizeOf(final UserResponse user) {
+        // the opening brace is part of the first property, and "first" and "next" are as long
+        int size = 0;
+        size += user.id() == null ? 0 : USER_ID.first.length + stringSize(user.id());
+        size += user.name() == null ? 0 : USER_NAME.first.length + stringSize(user.name());
+        size += user.email() == null ? 0 : USER_EMAIL.first.length + stringSize(user.email());
+        return size == 0 ? EMPTY_OBJECT.length : size + OBJECT_END.length;
+    }
+
+    private static void write(final Object value, final DataBuffer buffer) {
+        if (value instanceof UserResponse user) {
+            write(user, buffer);
+        } else if (value instanceof PageResponse<?> page) {
+            buffer.write(PAGE_CONTENT.first);
+            if (page.content() == null) {
+                buffer.write(NULL);
+            } else {
+                buffer.write(ARRAY_START);
+                for (int i = 0; i < page.content().size(); i++) {
+                    if (i > 0) {
+                        buffer.write(SEPARATOR);
+                    }
+                    write((UserResponse) page.content().get(i), buffer);
+                }
+                buffer.write(ARRAY_END);
+            }
+            buffer.write(PAGE_TOKEN.next);
+            writeString(page.nextPageToken(), buffer);
+            buffer.write(OBJECT_END);
+        } else {
+            final StandardError error = (StandardError) value;
+            buffer.write(TIMESTAMP_FIELD.first);
+            if (error.getTimestamp() == null) {
+                buffer.write(NULL);
+            } else {
+                buffer.write(QUOTE);
+                buffer.write(TIMESTAMP.format(error.getTimestamp()), StandardCharsets.US_ASCII);
+                buffer.write(QUOTE);
+            }
+            buffer.write(PATH.next);
+            writeString(error.getPath(), buffer);
+            buffer.write(STATUS.next);
+            if (error.getStatus() == null) {
+                buffer.write(NULL);
+            } else {
+                buffer.write(Integer.toString(error.getStatus()), StandardCharsets.US_ASCII);
+            }
+            buffer.write(ERROR.next);
+            writeString(error.getError(), buffer);
+            buffer.write(ERROR_MESSAGE.next);
+            writeString(error.getErrorMessage(), buffer);
+            if (error instanceof ValidationError validation) {
+                buffer.write(ERRORS.next);
+                buffer.write(ARRAY_START);
+                for (int i = 0; i < validation.getErrors().size(); i++) {
+                    final ValidationError.FieldError field = validation.getErrors().get(i);
+                    if (i > 0) {
+                        buffer.write(SEPARATOR);
+                    }
+                    buffer.write(FIELD_NAME.first);
+                    writeString(field.getFieldName(), buffer);
+                    buffer.write(MESSAGE.next);
+                    writeString(field.getMessage(), buffer);
+                    buffer.write(OBJECT_END);
+                }
+                buffer.write(ARRAY_END);
+            }
+            buffer.write(OBJECT_END);
+        }
+    }
+
+    /**
+     * Only non-null properties, as {@code @JsonInclude(NON_NULL)} on {@link UserResponse} asks.
+     */
+    private static void write(final UserResponse user, final DataBuffer buffer) {
+        boolean empty = true;
+        if (user.id() != null) {
+            buffer.write(USER_ID.first);
+            writeString(user.id(), buffer);
+            empty = false;
+        }
+        if (user.name() != null) {
+            buffer.write(empty ? USER_NAME.first : USER_NAME.next);
+            writeString(user.name(), buffer);
+            empty = false;
+        }
+        if (user.email() != null) {
+            buffer.write(empty ? USER_EMAIL.first : USER_EMAIL.next);
+            writeString(user.email(), buffer);
+            empty = false;
+        }
+        buffer.write(empty ? EMPTY_OBJECT : OBJECT_END);
+    }
+
+    /**
+     * Upper bound of the encoded size: exact for strings needing no escaping, and at most six
+     * bytes per char (a {@code \}{@code uXXXX} escape) otherwise.
+     */
+    private static int stringSize(final String value) {
+        if (value == null) {
+            return NULL.length;
+        }
+        final int plain = plainUtf8Length(value);
+        return 2 * QUOTE.length + (plain >= 0 ? plain : 6 * value.length());
+    }
+
+    private static void writeString(final String value, final DataBuffer buffer) {
+        if (value == null) {
+            buffer.write(NULL);
+            return;
+        }
+        buffer.write(QUOTE);
+        if (plainUtf8Length(value) >= 0) {
+            buffer.write(value, StandardCharsets.UTF_8);
+        } else {
+            buffer.write(STRINGS.quoteAsUTF8(value));
+        }
+        buffer.write(QUOTE);
+    }
+
+    /**
+     * UTF-8 length of {@code value}, or -1 if JSON needs some of its chars escaped (quotes,
+     * backslashes and control chars) or it holds a lone surrogate.
+     */
+    private static int plainUtf8Length(final String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c < 0x20 || c == '"' || c == '\\') {
+                    return -1;
+                }
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                if (i + 1 == value.length() || !Character.isLowSurrogate(value.charAt(i + 1))) {
+                    return -1;
+                }
+                length += 4;
+                i++;
+            } else if (Character.isLowSurrogate(c)) {
+                return -1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int length(final byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static byte[] ascii(final String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * A property name pre-encoded as the start of an object ({@code {"name":}) and as a
+     * following property ({@code ,"name":}).
+     */
+    private static final class Field {
+
+        private final byte[] first;
+        private final byte[] next;
+
+        private Field(final String name) {
+            final String quoted = '"' + new String(new SerializedString(name).asQuotedUTF8(), StandardCharsets.UTF_8) + "\":";
+            this.first = ascii('{' + quoted);
+            this.next = ascii(',' + quoted);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.springreactive.webfluxcourse.controller.codec;
+
+import com.springreactive.webfluxcourse.controller.exceptions.StandardError;
+import com.springreactive.webfluxcourse.model.request.UserRequest;
+import com.springreactive.webfluxcourse.model.response.PageResponse;
+import com.springreactive.webfluxcourse.model.response.UserResponse;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * The payloads offered in the binary formats: {@link UserResponse}, {@link UserRequest},
+ * {@code PageResponse<UserResponse>} and the error bodies. Codecs limited to them are ordered
+ * before the generic ones, so they must not claim other types.
+ */
+public final class UserPayloadTypes {
+
+    public static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+    /**
+     * Formats a payload is written in; JSON first, as it answers wildcards.
+     */
+    private static final List<MediaType> FORMATS = List.of(
+            MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, SMILE, UserProtobufEncoder.PROTOBUF);
+
+    private UserPayloadTypes() {
+    }
+
+    /**
+     * The format a payload is written in for {@code requested}, as sorted by the content type
+     * resolver: the first format compatible with the most preferred requested type, JSON when
+     * nothing matches.
+     */
+    public static MediaType negotiate(final List<MediaType> requested) {
+        for (MediaType accept : requested) {
+            if (accept.getQualityValue() == 0) {
+                continue;
+            }
+            for (MediaType format : FORMATS) {
+                if (accept.isCompatibleWith(format)) {
+                    return format;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    public static boolean isUserPayload(final ResolvableType type) {
+        final Class<?> resolved = type.toClass();
+        if (resolved == UserResponse.class || resolved == UserRequest.class
+                || StandardError.class.isAssignableFrom(resolved)) {
+            return true;
+        }
+        return resolved == PageResponse.class && type.getGeneric(0).toClass() == UserResponse.class;
+    }
+}
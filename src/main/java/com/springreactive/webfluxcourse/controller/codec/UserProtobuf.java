@@ -0,0 +1,330 @@
+package com.springreactive.webfluxcourse.controller.codec;
+
+import com.springreactive.webfluxcourse.controller.exceptions.StandardError;
+import com.springreactive.webfluxcourse.controller.exceptions.ValidationError;
+import com.springreactive.webfluxcourse.model.request.UserRequest;
+import com.springreactive.webfluxcourse.model.response.PageResponse;
+import com.springreactive.webfluxcourse.model.response.UserResponse;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Protocol Buffers wire format of the user payloads, as published in {@code /proto/users.proto}:
+ * {@code User} ({@link UserResponse}), {@code UserRequest}, {@code UserPage}
+ * ({@code PageResponse<UserResponse>}) and {@code Error} ({@link StandardError} and
+ * {@link ValidationError}). The messages are small and flat, so they are written and parsed
+ * here directly rather than through generated classes.
+ * <p>
+ * Null properties are left out, like proto3 defaults, and fields that are absent when parsing
+ * come back as null. Unknown fields are skipped so the schema can grow.
+ */
+public final class UserProtobuf {
+
+    private static final int VARINT = 0;
+    private static final int FIXED64 = 1;
+    private static final int LENGTH_DELIMITED = 2;
+    private static final int FIXED32 = 5;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private UserProtobuf() {
+    }
+
+    /**
+     * Encoded size of {@code value}, one of the supported payload types.
+     */
+    public static int sizeOf(final Object value) {
+        if (value instanceof UserResponse user) {
+            return stringField(1, user.id()) + stringField(2, user.name()) + stringField(3, user.email());
+        }
+        if (value instanceof UserRequest request) {
+            return stringField(1, request.name()) + stringField(2, request.email()) + stringField(3, request.password());
+        }
+        if (value instanceof PageResponse<?> page) {
+            int size = stringField(2, page.nextPageToken());
+            if (page.content() != null) {
+                for (Object user : page.content()) {
+                    size += messageField(1, sizeOf(user));
+                }
+            }
+            return size;
+        }
+        if (value instanceof StandardError error) {
+            int size = stringField(1, error.getTimestamp() == null ? null : TIMESTAMP.format(error.getTimestamp()))
+                    + stringField(2, error.getPath())
+                    + (error.getStatus() == null ? 0 : 1 + varintSize(error.getStatus()))
+                    + stringField(4, error.getError())
+                    + stringField(5, error.getErrorMessage());
+            if (error instanceof ValidationError validation) {
+                for (ValidationError.FieldError field : validation.getErrors()) {
+                    size += messageField(6, fieldErrorSize(field));
+                }
+            }
+            return size;
+        }
+        throw new IllegalArgumentException("Unsupported value: " + value.getClass().getName());
+    }
+
+    /**
+     * Writes {@code value}; the buffer should have {@link #sizeOf(Object)} bytes available.
+     */
+    public static void write(final Object value, final DataBuffer buffer) {
+        if (value instanceof UserResponse user) {
+            writeString(buffer, 1, user.id());
+            writeString(buffer, 2, user.name());
+            writeString(buffer, 3, user.email());
+        } else if (value instanceof UserRequest request) {
+            writeString(buffer, 1, request.name());
+            writeString(buffer, 2, request.email());
+            writeString(buffer, 3, request.password());
+        } else if (value instanceof PageResponse<?> page) {
+            if (page.content() != null) {
+                for (Object user : page.content()) {
+                    writeTag(buffer, 1, LENGTH_DELIMITED);
+                    writeVarint(buffer, sizeOf(user));
+                    write(user, buffer);
+                }
+            }
+            writeString(buffer, 2, page.nextPageToken());
+        } else if (value instanceof StandardError error) {
+            writeString(buffer, 1, error.getTimestamp() == null ? null : TIMESTAMP.format(error.getTimestamp()));
+            writeString(buffer, 2, error.getPath());
+            if (error.getStatus() != null) {
+                writeTag(buffer, 3, VARINT);
+                writeVarint(buffer, error.getStatus());
+            }
+            writeString(buffer, 4, error.getError());
+            writeString(buffer, 5, error.getErrorMessage());
+            if (error instanceof ValidationError validation) {
+                for (ValidationError.FieldError field : validation.getErrors()) {
+                    writeTag(buffer, 6, LENGTH_DELIMITED);
+                    writeVarint(buffer, fieldErrorSize(field));
+                    writeString(buffer, 1, field.getFieldName());
+                    writeString(buffer, 2, field.getMessage());
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported value: " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * Writes the varint length prefix that frames a message in a stream of messages.
+     */
+    public static void writeLength(final DataBuffer buffer, final int length) {
+        writeVarint(buffer, length);
+    }
+
+    public static int lengthSize(final int length) {
+        return varintSize(length);
+    }
+
+    public static UserResponse readUser(final byte[] bytes) {
+        return readUser(new Reader(bytes, 0, bytes.length));
+    }
+
+    public static UserRequest readUserRequest(final byte[] bytes) {
+        final Reader reader = new Reader(bytes, 0, bytes.length);
+        String name = null;
+        String email = null;
+        String password = null;
+        while (reader.hasMore()) {
+            final int tag = reader.readTag();
+            switch (tag >>> 3) {
+                case 1 -> name = reader.readString(tag);
+                case 2 -> email = reader.readString(tag);
+                case 3 -> password = reader.readString(tag);
+                default -> reader.skip(tag);
+            }
+        }
+        return new UserRequest(name, email, password);
+    }
+
+    public static PageResponse<UserResponse> readPage(final byte[] bytes) {
+        final Reader reader = new Reader(bytes, 0, bytes.length);
+        final List<UserResponse> content = new ArrayList<>();
+        String nextPageToken = null;
+        while (reader.hasMore()) {
+            final int tag = reader.readTag();
+            switch (tag >>> 3) {
+                case 1 -> content.add(readUser(reader.readMessage(tag)));
+                case 2 -> nextPageToken = reader.readString(tag);
+                default -> reader.skip(tag);
+            }
+        }
+        return new PageResponse<>(content, nextPageToken);
+    }
+
+    private static UserResponse readUser(final Reader reader) {
+        String id = null;
+        String name = null;
+        String email = null;
+        while (reader.hasMore()) {
+            final int tag = reader.readTag();
+            switch (tag >>> 3) {
+                case 1 -> id = reader.readString(tag);
+                case 2 -> name = reader.readString(tag);
+                case 3 -> email = reader.readString(tag);
+                default -> reader.skip(tag);
+            }
+        }
+        return new UserResponse(id, name, email);
+    }
+
+    private static int fieldErrorSize(final ValidationError.FieldError field) {
+        return stringField(1, field.getFieldName()) + stringField(2, field.getMessage());
+    }
+
+    private static int stringField(final int number, final String value) {
+        return value == null ? 0 : messageField(number, utf8Length(value));
+    }
+
+    private static int messageField(final int number, final int length) {
+        return varintSize(number << 3) + varintSize(length) + length;
+    }
+
+    private static void writeString(final DataBuffer buffer, final int number, final String value) {
+        if (value == null) {
+            return;
+        }
+        writeTag(buffer, number, LENGTH_DELIMITED);
+        writeVarint(buffer, utf8Length(value));
+        buffer.write(value, StandardCharsets.UTF_8);
+    }
+
+    private static void writeTag(final DataBuffer buffer, final int number, final int wireType) {
+        writeVarint(buffer, number << 3 | wireType);
+    }
+
+    /**
+     * Negative values take ten bytes, sign-extended as protobuf does for {@code int32}.
+     */
+    private static void writeVarint(final DataBuffer buffer, final long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            buffer.write((byte) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        buffer.write((byte) remaining);
+    }
+
+    private static int varintSize(final long value) {
+        int size = 1;
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            size++;
+            remaining >>>= 7;
+        }
+        return size;
+    }
+
+    /**
+     * Lone surrogates count as the one byte {@code '?'} they are replaced with.
+     */
+    private static int utf8Length(final String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private final int end;
+        private int position;
+
+        private Reader(final byte[] bytes, final int offset, final int end) {
+            this.bytes = bytes;
+            this.position = offset;
+            this.end = end;
+        }
+
+        boolean hasMore() {
+            return position < end;
+        }
+
+        int readTag() {
+            final long tag = readVarint();
+            if (tag >>> 3 == 0 || tag > Integer.MAX_VALUE) {
+                throw new DecodingException("Invalid protobuf field tag " + tag);
+            }
+            return (int) tag;
+        }
+
+        String readString(final int tag) {
+            final int length = readLength(tag);
+            final String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        Reader readMessage(final int tag) {
+            final int length = readLength(tag);
+            final Reader message = new Reader(bytes, position, position + length);
+            position += length;
+            return message;
+        }
+
+        void skip(final int tag) {
+            switch (tag & 0x7) {
+                case VARINT -> readVarint();
+                case FIXED64 -> advance(Long.BYTES);
+                case LENGTH_DELIMITED -> advance(readLength(tag));
+                case FIXED32 -> advance(Integer.BYTES);
+                default -> throw new DecodingException("Unsupported protobuf wire type in tag " + tag);
+            }
+        }
+
+        private int readLength(final int tag) {
+            if ((tag & 0x7) != LENGTH_DELIMITED) {
+                throw new DecodingException("Field " + (tag >>> 3) + " is not length-delimited");
+            }
+            final long length = readVarint();
+            if (length > end - position) {
+                throw new DecodingException("Truncated protobuf message");
+            }
+            return (int) length;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= end) {
+                    throw new DecodingException("Truncated protobuf varint");
+                }
+                final byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new DecodingException("Malformed protobuf varint");
+        }
+
+        private void advance(final int length) {
+            if (length > end - position) {
+                throw new DecodingException("Truncated protobuf message");
+            }
+            position += length;
+        }
+    }
+}
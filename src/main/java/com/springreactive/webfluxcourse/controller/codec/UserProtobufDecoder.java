@@ -0,0 +1,89 @@
+package com.springreactive.webfluxcourse.controller.codec;
+
+import com.springreactive.webfluxcourse.model.request.UserRequest;
+import com.springreactive.webfluxcourse.model.response.PageResponse;
+import com.springreactive.webfluxcourse.model.response.UserResponse;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads {@link UserRequest} bodies, and the {@link UserResponse} payloads for clients, from the
+ * {@link UserProtobuf} wire format. A body is one bare message, joined up to
+ * {@code maxMessageSize} bytes; request streams are not supported in this format.
+ */
+@Component
+public class UserProtobufDecoder implements Decoder<Object> {
+
+    private static final int DEFAULT_MAX_MESSAGE_SIZE = 256 * 1024;
+    private static final List<MimeType> MIME_TYPES = List.of(UserProtobufEncoder.PROTOBUF);
+
+    private final int maxMessageSize;
+
+    public UserProtobufDecoder() {
+        this(DEFAULT_MAX_MESSAGE_SIZE);
+    }
+
+    public UserProtobufDecoder(final int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    @Override
+    public boolean canDecode(final ResolvableType elementType, final MimeType mimeType) {
+        if (mimeType != null && !UserProtobufEncoder.PROTOBUF.isCompatibleWith(mimeType)) {
+            return false;
+        }
+        final Class<?> type = elementType.toClass();
+        if (type == UserRequest.class || type == UserResponse.class) {
+            return true;
+        }
+        return type == PageResponse.class && elementType.getGeneric(0).toClass() == UserResponse.class;
+    }
+
+    @Override
+    public List<MimeType> getDecodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    @Override
+    public Flux<Object> decode(final Publisher<DataBuffer> inputStream, final ResolvableType elementType,
+                               final MimeType mimeType, final Map<String, Object> hints) {
+        return decodeToMono(inputStream, elementType, mimeType, hints).flux();
+    }
+
+    @Override
+    public Mono<Object> decodeToMono(final Publisher<DataBuffer> inputStream, final ResolvableType elementType,
+                                     final MimeType mimeType, final Map<String, Object> hints) {
+        return DataBufferUtils.join(inputStream, maxMessageSize)
+                .map(buffer -> decode(buffer, elementType, mimeType, hints))
+                .onErrorMap(DataBufferLimitException.class,
+                        ex -> new DecodingException("Protobuf message exceeds " + maxMessageSize + " bytes", ex));
+    }
+
+    @Override
+    public Object decode(final DataBuffer buffer, final ResolvableType targetType,
+                         final MimeType mimeType, final Map<String, Object> hints) {
+        final byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        DataBufferUtils.release(buffer);
+        final Class<?> type = targetType.toClass();
+        if (type == UserRequest.class) {
+            return UserProtobuf.readUserRequest(bytes);
+        }
+        if (type == UserResponse.class) {
+            return UserProtobuf.readUser(bytes);
+        }
+        return UserProtobuf.readPage(bytes);
+    }
+}
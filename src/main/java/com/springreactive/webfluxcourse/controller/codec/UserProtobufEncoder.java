@@ -0,0 +1,86 @@
+package com.springreactive.webfluxcourse.controller.codec;
+
+import com.springreactive.webfluxcourse.utils.StreamingMediaTypes;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the user payloads in the {@link UserProtobuf} wire format. A single value is a bare
+ * message; a stream, or anything sent as {@link StreamingMediaTypes#PROTOBUF_STREAM}, is a sequence of
+ * varint-length-prefixed messages (the {@code writeDelimitedTo} framing), one buffer each.
+ */
+@Component
+public class UserProtobufEncoder implements HttpMessageEncoder<Object> {
+
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+
+    private static final List<MimeType> MIME_TYPES = List.of(PROTOBUF, StreamingMediaTypes.PROTOBUF_STREAM);
+
+    @Override
+    public boolean canEncode(final ResolvableType elementType, final MimeType mimeType) {
+        if (mimeType != null && MIME_TYPES.stream().noneMatch(type -> type.isCompatibleWith(mimeType))) {
+            return false;
+        }
+        return UserPayloadTypes.isUserPayload(elementType);
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return List.of(StreamingMediaTypes.PROTOBUF_STREAM);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(final Publisher<?> inputStream, final DataBufferFactory bufferFactory,
+                                   final ResolvableType elementType, final MimeType mimeType,
+                                   final Map<String, Object> hints) {
+        if (inputStream instanceof Mono<?> mono) {
+            return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+        }
+        return Flux.from(inputStream)
+                .map(value -> encode(value, bufferFactory, true))
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    @Override
+    public DataBuffer encodeValue(final Object value, final DataBufferFactory bufferFactory,
+                                  final ResolvableType valueType, final MimeType mimeType,
+                                  final Map<String, Object> hints) {
+        return encode(value, bufferFactory, mimeType != null && StreamingMediaTypes.PROTOBUF_STREAM.isCompatibleWith(mimeType));
+    }
+
+    /**
+     * Encodes {@code value} into one buffer, length-prefixed when {@code delimited}.
+     */
+    public DataBuffer encode(final Object value, final DataBufferFactory bufferFactory, final boolean delimited) {
+        final int size = UserProtobuf.sizeOf(value);
+        final DataBuffer buffer = bufferFactory.allocateBuffer(
+                delimited ? UserProtobuf.lengthSize(size) + size : size);
+        try {
+            if (delimited) {
+                UserProtobuf.writeLength(buffer, size);
+            }
+            UserProtobuf.write(value, buffer);
+            return buffer;
+        } catch (RuntimeException ex) {
+            DataBufferUtils.release(buffer);
+            throw ex;
+        }
+    }
+}
@@ -1,7 +1,17 @@
 package com.springreactive.webfluxcourse.controller.exceptions;
 
+import com.springreactive.webfluxcourse.service.exception.EmailAlreadyRegisteredException;
+import com.springreactive.webfluxcourse.service.exception.InvalidBatchRequestException;
+import com.springreactive.webfluxcourse.service.exception.InvalidFieldSelectionException;
+import com.springreactive.webfluxcourse.service.exception.InvalidPageTokenException;
+import com.springreactive.webfluxcourse.service.exception.InvalidSearchException;
 import com.springreactive.webfluxcourse.service.exception.ObjectNotFoundException;
+import com.springreactive.webfluxcourse.service.exception.PreconditionFailedException;
+import com.springreactive.webfluxcourse.service.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -14,10 +24,20 @@ import reactor.core.publisher.Mono;
 import java.time.LocalDateTime;
 
 @ControllerAdvice
+@RequiredArgsConstructor
 public class ControllerExceptionHandler {
 
+    public static final String ERRORS_METRIC = "users.errors";
+
+    private final MeterRegistry meterRegistry;
+
+    private void count(String outcome) {
+        meterRegistry.counter(ERRORS_METRIC, "outcome", outcome).increment();
+    }
+
     @ExceptionHandler(DuplicateKeyException.class)
     ResponseEntity<Mono<StandardError>> duplicatedKeyException(DuplicateKeyException ex, ServerHttpRequest request) {
+        count("duplicate_key");
         return ResponseEntity.badRequest()
                 .body(Mono.just(
                                 StandardError.builder()
@@ -31,7 +51,23 @@ public class ControllerExceptionHandler {
                 );
     }
 
-    private String verifyDupKey(String message) {
+    @ExceptionHandler(EmailAlreadyRegisteredException.class)
+    ResponseEntity<Mono<StandardError>> emailAlreadyRegisteredException(EmailAlreadyRegisteredException ex, ServerHttpRequest request) {
+        count("duplicate_key");
+        return ResponseEntity.badRequest()
+                .body(Mono.just(
+                                StandardError.builder()
+                                        .timestamp(LocalDateTime.now())
+                                        .status(HttpStatus.BAD_REQUEST.value())
+                                        .error(HttpStatus.BAD_REQUEST.getReasonPhrase())
+                                        .errorMessage(ex.getMessage())
+                                        .path(request.getPath().toString())
+                                        .build()
+                        )
+                );
+    }
+
+    public static String verifyDupKey(String message) {
         if (message.contains("email dup key")) {
             return "Email already registered";
         } else {
@@ -41,6 +77,7 @@ public class ControllerExceptionHandler {
 
     @ExceptionHandler(WebExchangeBindException.class)
     public ResponseEntity<Mono<ValidationError>> validationError(WebExchangeBindException ex, ServerHttpRequest request) {
+        count("validation");
         ValidationError error = new ValidationError(LocalDateTime.now(),
                 request.getPath().toString(), HttpStatus.BAD_REQUEST.value(),
                 "Validation Error", "Error on attributes validation");
@@ -52,6 +89,7 @@ public class ControllerExceptionHandler {
 
     @ExceptionHandler(ObjectNotFoundException.class)
     ResponseEntity<Mono<StandardError>> objectNotFoundException(ObjectNotFoundException ex, ServerHttpRequest request) {
+        count("not_found");
         return ResponseEntity.status(HttpStatus.NOT_FOUND)
                 .body(Mono.just(
                                 StandardError.builder()
@@ -64,4 +102,54 @@ public class ControllerExceptionHandler {
                         )
                 );
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler({InvalidPageTokenException.class, InvalidFieldSelectionException.class, InvalidSearchException.class,
+            InvalidBatchRequestException.class})
+    ResponseEntity<Mono<StandardError>> badRequestException(RuntimeException ex, ServerHttpRequest request) {
+        count("bad_request");
+        return ResponseEntity.badRequest()
+                .body(Mono.just(
+                                StandardError.builder()
+                                        .timestamp(LocalDateTime.now())
+                                        .status(HttpStatus.BAD_REQUEST.value())
+                                        .error(HttpStatus.BAD_REQUEST.getReasonPhrase())
+                                        .errorMessage(ex.getMessage())
+                                        .path(request.getPath().toString())
+                                        .build()
+                        )
+                );
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    ResponseEntity<Mono<StandardError>> preconditionFailedException(PreconditionFailedException ex, ServerHttpRequest request) {
+        count("precondition_failed");
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .body(Mono.just(
+                                StandardError.builder()
+                                        .timestamp(LocalDateTime.now())
+                                        .status(HttpStatus.PRECONDITION_FAILED.value())
+                                        .error(HttpStatus.PRECONDITION_FAILED.getReasonPhrase())
+                                        .errorMessage(ex.getMessage())
+                                        .path(request.getPath().toString())
+                                        .build()
+                        )
+                );
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    ResponseEntity<Mono<StandardError>> serviceUnavailableException(ServiceUnavailableException ex, ServerHttpRequest request) {
+        count("service_unavailable");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Mono.just(
+                                StandardError.builder()
+                                        .timestamp(LocalDateTime.now())
+                                        .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                                        .error(HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase())
+                                        .errorMessage(ex.getMessage())
+                                        .path(request.getPath().toString())
+                                        .build()
+                        )
+                );
+    }
+}
@@ -17,7 +17,7 @@ public class ValidationError extends StandardError implements Serializable {
 
     private final List<FieldError> errors = new ArrayList<>();
 
-    ValidationError(LocalDateTime timestamp, String path, Integer status, String error, String errorMessage) {
+    public ValidationError(LocalDateTime timestamp, String path, Integer status, String error, String errorMessage) {
         super(timestamp, path, status, error, errorMessage);
     }
 
@@ -27,7 +27,7 @@ public class ValidationError extends StandardError implements Serializable {
 
     @Getter
     @AllArgsConstructor
-    private static final class FieldError {
+    public static final class FieldError {
         private String fieldName;
         private String message;
     }
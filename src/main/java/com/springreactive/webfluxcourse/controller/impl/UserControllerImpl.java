@@ -1,18 +1,47 @@
 package com.springreactive.webfluxcourse.controller.impl;
 
+import com.springreactive.webfluxcourse.config.ChangeStreamProperties;
 import com.springreactive.webfluxcourse.controller.UserController;
+import com.springreactive.webfluxcourse.controller.codec.UserPayloadTypes;
+import com.springreactive.webfluxcourse.controller.exceptions.ControllerExceptionHandler;
+import com.springreactive.webfluxcourse.controller.exceptions.StandardError;
+import com.springreactive.webfluxcourse.controller.exceptions.ValidationError;
+import com.springreactive.webfluxcourse.controller.stream.UserStreamWriter;
+import com.springreactive.webfluxcourse.entity.User;
 import com.springreactive.webfluxcourse.mapper.UserMapper;
+import com.springreactive.webfluxcourse.model.request.BatchGetRequest;
+import com.springreactive.webfluxcourse.model.request.PasswordVerificationRequest;
 import com.springreactive.webfluxcourse.model.request.UserRequest;
+import com.springreactive.webfluxcourse.model.response.BatchGetItemResponse;
+import com.springreactive.webfluxcourse.model.response.BulkItemResponse;
+import com.springreactive.webfluxcourse.model.response.PageResponse;
+import com.springreactive.webfluxcourse.model.response.PasswordVerificationResponse;
+import com.springreactive.webfluxcourse.model.response.UserChangeResponse;
 import com.springreactive.webfluxcourse.model.response.UserResponse;
+import com.springreactive.webfluxcourse.service.BatchGetResult;
+import com.springreactive.webfluxcourse.respository.UserChange;
+import com.springreactive.webfluxcourse.service.BulkImportResult;
 import com.springreactive.webfluxcourse.service.UserService;
+import com.springreactive.webfluxcourse.utils.EntityTag;
+import com.springreactive.webfluxcourse.utils.FieldSelection;
+import com.springreactive.webfluxcourse.utils.SearchField;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.accept.RequestedContentTypeResolver;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping(value = "/users")
@@ -20,6 +49,9 @@ public class UserControllerImpl implements UserController {
 
     private final UserService service;
     private final UserMapper mapper;
+    private final UserStreamWriter streamWriter;
+    private final ChangeStreamProperties changeStream;
+    private final RequestedContentTypeResolver contentTypeResolver;
 
     @Override
     public ResponseEntity<Mono<Void>> save(UserRequest request) {
@@ -28,31 +60,169 @@ public class UserControllerImpl implements UserController {
     }
 
     @Override
-    public ResponseEntity<Mono<UserResponse>> findById(String id) {
+    public ResponseEntity<Flux<BulkItemResponse>> saveAll(Flux<UserRequest> requests, ServerHttpRequest request) {
+        final String path = request.getPath().toString();
         return ResponseEntity.ok().body(
-                service.findById(id).map(mapper::toResponse)
+                service.saveAll(requests).map(result -> toBulkItemResponse(result, path))
         );
     }
 
+    /**
+     * The ETag lets the result handler answer {@code If-None-Match} with a bodiless 304. It
+     * covers the format negotiated from {@code Accept}, which the response varies by.
+     */
+    @Override
+    public Mono<ResponseEntity<UserResponse>> findById(String id, String fields, ServerWebExchange exchange) {
+        final FieldSelection selection = FieldSelection.parse(fields);
+        return service.findById(id)
+                .map(user -> ResponseEntity.ok()
+                        .eTag(eTag(user, selection, exchange))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(selection.apply(mapper.toResponse(user))));
+    }
+
+    @Override
+    public ResponseEntity<Flux<BatchGetItemResponse>> batchGet(BatchGetRequest request, String fields,
+                                                               ServerHttpRequest httpRequest) {
+        return findAllById(request.ids(), fields, httpRequest);
+    }
+
     @Override
-    public ResponseEntity<Flux<UserResponse>> findAll() {
+    public ResponseEntity<Flux<BatchGetItemResponse>> findAllById(List<String> ids, String fields,
+                                                                  ServerHttpRequest httpRequest) {
+        final FieldSelection selection = FieldSelection.parse(fields);
+        final String path = httpRequest.getPath().toString();
         return ResponseEntity.ok().body(
-                service.findAll().map(mapper::toResponse)
+                service.findAllById(ids).map(result -> toBatchGetItemResponse(result, selection, path))
         );
     }
 
     @Override
-    public ResponseEntity<Mono<UserResponse>> update(String id, UserRequest request) {
+    public Mono<ResponseEntity<UserResponse>> findByEmail(String email, String fields, ServerWebExchange exchange) {
+        final FieldSelection selection = FieldSelection.parse(fields);
+        return service.findByEmail(email)
+                .map(user -> ResponseEntity.ok()
+                        .eTag(eTag(user, selection, exchange))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(selection.apply(mapper.toResponse(user))));
+    }
+
+    @Override
+    public ResponseEntity<Mono<PageResponse<UserResponse>>> findAll(String after, Integer limit, String fields) {
+        final FieldSelection selection = FieldSelection.parse(fields);
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(
+                service.findPage(after, limit, selection)
+                        .map(page -> page.map(user -> selection.apply(mapper.toResponse(user))))
+        );
+    }
+
+    @Override
+    public ResponseEntity<Mono<PageResponse<UserResponse>>> search(String q, String field, String after,
+                                                                  Integer limit, String fields) {
+        final SearchField searchField = SearchField.parse(field);
+        final FieldSelection selection = FieldSelection.parse(fields);
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(
+                service.search(q, searchField, after, limit, selection)
+                        .map(page -> page.map(user -> selection.apply(mapper.toResponse(user))))
+        );
+    }
+
+    @Override
+    public Mono<Void> stream(String fields, ServerWebExchange exchange) {
+        final FieldSelection selection = FieldSelection.parse(fields);
+        return streamWriter.write(
+                service.findAll(selection).map(mapper::toResponse).map(selection::apply), exchange);
+    }
+
+    /**
+     * Each event carries its resume token as the SSE id, so an {@code EventSource} reconnecting
+     * with {@code Last-Event-ID} resumes where it stopped. Heartbeat comments are interleaved
+     * while the feed is idle.
+     */
+    @Override
+    public Flux<ServerSentEvent<UserChangeResponse>> changes(String resumeToken, String lastEventId) {
+        final Flux<ServerSentEvent<UserChangeResponse>> events = service
+                .changes(resumeToken != null ? resumeToken : lastEventId)
+                .map(this::toChangeEvent);
+        return events.publish(shared -> Flux.merge(shared,
+                Flux.interval(changeStream.heartbeat())
+                        .map(tick -> ServerSentEvent.<UserChangeResponse>builder().comment("heartbeat").build())
+                        .takeUntilOther(shared.ignoreElements())));
+    }
+
+    @Override
+    public Mono<ResponseEntity<UserResponse>> update(String id, String ifMatch, UserRequest request,
+                                                     ServerWebExchange exchange) {
+        final Long expectedVersion = EntityTag.expectedVersion(ifMatch);
+        return service.update(id, request, expectedVersion)
+                .map(user -> ResponseEntity.ok()
+                        .eTag(eTag(user, FieldSelection.ALL, exchange))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(mapper.toResponse(user)));
+    }
+
+    @Override
+    public ResponseEntity<Mono<PasswordVerificationResponse>> verifyPassword(String id, PasswordVerificationRequest request) {
         return ResponseEntity.ok().body(
-                service.update(id, request)
-                        .map(mapper::toResponse)
+                service.verifyPassword(id, request.password())
+                        .map(PasswordVerificationResponse::new)
         );
     }
 
     @Override
-    public ResponseEntity<Mono<Void>> delete(String id) {
+    public ResponseEntity<Mono<Void>> delete(String id, String ifMatch) {
+        final Long expectedVersion = EntityTag.expectedVersion(ifMatch);
         return ResponseEntity.ok().body(
-             service.delete(id).then()
+             service.delete(id, expectedVersion).then()
         );
     }
+
+    private String eTag(User user, FieldSelection selection, ServerWebExchange exchange) {
+        return EntityTag.of(user.getVersion(), selection,
+                UserPayloadTypes.negotiate(contentTypeResolver.resolveMediaTypes(exchange)));
+    }
+
+    private BulkItemResponse toBulkItemResponse(BulkImportResult result, String path) {
+        return switch (result.status()) {
+            case CREATED -> new BulkItemResponse(result.index(), result.id(), null);
+            case INVALID -> {
+                ValidationError error = new ValidationError(LocalDateTime.now(), path,
+                        HttpStatus.BAD_REQUEST.value(), "Validation Error", "Error on attributes validation");
+                result.violations().forEach(violation ->
+                        error.addErrors(violation.getPropertyPath().toString(), violation.getMessage()));
+                yield new BulkItemResponse(result.index(), null, error);
+            }
+            case DUPLICATED -> new BulkItemResponse(result.index(), null,
+                    error(HttpStatus.BAD_REQUEST, ControllerExceptionHandler.verifyDupKey(result.message()), path));
+            case FAILED -> new BulkItemResponse(result.index(), null,
+                    error(HttpStatus.INTERNAL_SERVER_ERROR, result.message(), path));
+        };
+    }
+
+    private BatchGetItemResponse toBatchGetItemResponse(BatchGetResult result, FieldSelection selection, String path) {
+        if (!result.found()) {
+            return new BatchGetItemResponse(result.id(), null, error(HttpStatus.NOT_FOUND,
+                    String.format("Object not found. ID: %s, Type User", result.id()), path));
+        }
+        return new BatchGetItemResponse(result.id(), selection.apply(mapper.toResponse(result.user())), null);
+    }
+
+    private ServerSentEvent<UserChangeResponse> toChangeEvent(UserChange change) {
+        final String operation = change.operation().name().toLowerCase(Locale.ROOT);
+        return ServerSentEvent.builder(new UserChangeResponse(operation, change.id(),
+                        change.user() == null ? null : mapper.toResponse(change.user())))
+                .id(change.resumeToken())
+                .event(operation)
+                .build();
+    }
+
+    private StandardError error(HttpStatus status, String message, String path) {
+        return StandardError.builder()
+                .timestamp(LocalDateTime.now())
+                .status(status.value())
+                .error(status.getReasonPhrase())
+                .errorMessage(message)
+                .path(path)
+                .build();
+    }
 }
@@ -0,0 +1,108 @@
+package com.springreactive.webfluxcourse.controller.stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.springreactive.webfluxcourse.config.StreamingProperties;
+import com.springreactive.webfluxcourse.controller.codec.BinaryObjectMappers;
+import com.springreactive.webfluxcourse.controller.codec.UserJsonEncoder;
+import com.springreactive.webfluxcourse.controller.codec.UserProtobufEncoder;
+import com.springreactive.webfluxcourse.model.response.UserResponse;
+import com.springreactive.webfluxcourse.utils.StreamingMediaTypes;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes a user export as NDJSON, server-sent events or a stream of binary records (Smile
+ * values, a CBOR sequence or length-prefixed protobuf messages), flushing the socket once per
+ * window of {@code users.streaming.flush-size} records (or every {@code flush-interval},
+ * whichever comes first) instead of once per record.
+ */
+@Component
+public class UserStreamWriter {
+
+    private static final int INITIAL_BUFFER_SIZE = 128;
+    private static final byte[] NEW_LINE = "\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SSE_DATA = "data:".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SSE_END = "\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final UserJsonEncoder encoder;
+    private final UserProtobufEncoder protobufEncoder;
+    private final ObjectWriter smileWriter;
+    private final ObjectWriter cborWriter;
+    private final StreamingProperties properties;
+
+    public UserStreamWriter(final UserJsonEncoder encoder, final UserProtobufEncoder protobufEncoder,
+                            final BinaryObjectMappers mappers, final StreamingProperties properties) {
+        this.encoder = encoder;
+        this.protobufEncoder = protobufEncoder;
+        this.smileWriter = mappers.smile().writerFor(UserResponse.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.cborWriter = mappers.cbor().writerFor(UserResponse.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.properties = properties;
+    }
+
+    public Mono<Void> write(final Flux<UserResponse> users, final ServerWebExchange exchange) {
+        final List<MediaType> accept = exchange.getRequest().getHeaders().getAccept();
+        final MediaType format = StreamingMediaTypes.ALL.stream()
+                .filter(type -> type.isPresentIn(accept))
+                .findFirst()
+                .orElse(MediaType.APPLICATION_NDJSON);
+        final ServerHttpResponse response = exchange.getResponse();
+        final DataBufferFactory factory = response.bufferFactory();
+
+        response.getHeaders().setContentType(format);
+        response.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return response.writeAndFlushWith(
+                users.map(user -> encode(format, user, factory))
+                        .windowTimeout(properties.flushSize(), properties.flushInterval(), true)
+                        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+        );
+    }
+
+    private DataBuffer encode(final MediaType format, final UserResponse user, final DataBufferFactory factory) {
+        if (MediaType.TEXT_EVENT_STREAM.equals(format)) {
+            return encodeEvent(user, factory);
+        }
+        if (StreamingMediaTypes.SMILE_STREAM.equals(format)) {
+            return encodeBinary(smileWriter, user, factory);
+        }
+        if (StreamingMediaTypes.CBOR_SEQUENCE.equals(format)) {
+            return encodeBinary(cborWriter, user, factory);
+        }
+        if (StreamingMediaTypes.PROTOBUF_STREAM.equals(format)) {
+            return protobufEncoder.encode(user, factory, true);
+        }
+        return encoder.encode(user, factory, null, NEW_LINE);
+    }
+
+    private DataBuffer encodeEvent(final UserResponse user, final DataBufferFactory factory) {
+        final byte[] prefix = user.id() == null
+                ? SSE_DATA
+                : ("id:" + user.id() + "\ndata:").getBytes(StandardCharsets.UTF_8);
+        return encoder.encode(user, factory, prefix, SSE_END);
+    }
+
+    private static DataBuffer encodeBinary(final ObjectWriter writer, final UserResponse user,
+                                           final DataBufferFactory factory) {
+        final DataBuffer buffer = factory.allocateBuffer(INITIAL_BUFFER_SIZE);
+        try {
+            writer.writeValue(buffer.asOutputStream(), user);
+            return buffer;
+        } catch (IOException ex) {
+            DataBufferUtils.release(buffer);
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
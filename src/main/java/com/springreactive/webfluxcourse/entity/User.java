@@ -3,17 +3,26 @@ package com.springreactive.webfluxcourse.entity;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @Document
+@CompoundIndex(name = User.NAME_INDEX, def = "{'name': 1, '_id': 1}", collation = "{'locale': 'en', 'strength': 2}")
 public class User {
+
+    public static final String NAME_INDEX = "name_ci";
+    public static final String EMAIL_INDEX = "email";
+
     @Id
     private String id;
     private String name;
-    @Indexed(unique = true)
+    @Indexed(name = EMAIL_INDEX, unique = true)
     private String email;
     private String password;
+    @Version
+    private Long version;
 }
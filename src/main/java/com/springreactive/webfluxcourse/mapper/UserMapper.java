@@ -13,10 +13,12 @@ import org.mapstruct.*;
 public interface UserMapper {
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
     User toEntity(final UserRequest request);
 
     UserResponse toResponse(final User entity);
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
     User toEntity(final UserRequest userRequest, @MappingTarget final User entity);
 }
@@ -0,0 +1,58 @@
+package com.springreactive.webfluxcourse.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Times a reactive flow from subscription to its terminal signal. The three outcome timers are
+ * registered once up front so the hot path only starts a sample and records into an existing
+ * timer.
+ */
+public final class FlowTimer {
+
+    private final MeterRegistry registry;
+    private final Timer success;
+    private final Timer error;
+    private final Timer cancelled;
+
+    public FlowTimer(final MeterRegistry registry, final String name, final Tags tags) {
+        this.registry = registry;
+        this.success = register(registry, name, tags, "success");
+        this.error = register(registry, name, tags, "error");
+        this.cancelled = register(registry, name, tags, "cancelled");
+    }
+
+    private static Timer register(MeterRegistry registry, String name, Tags tags, String outcome) {
+        return Timer.builder(name)
+                .tags(tags)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public <T> Mono<T> time(final Mono<T> mono) {
+        return Mono.defer(() -> {
+            final Timer.Sample sample = Timer.start(registry);
+            return mono.doFinally(signal -> sample.stop(timerFor(signal)));
+        });
+    }
+
+    public <T> Flux<T> time(final Flux<T> flux) {
+        return Flux.defer(() -> {
+            final Timer.Sample sample = Timer.start(registry);
+            return flux.doFinally(signal -> sample.stop(timerFor(signal)));
+        });
+    }
+
+    private Timer timerFor(final SignalType signal) {
+        return switch (signal) {
+            case ON_COMPLETE -> success;
+            case ON_ERROR -> error;
+            default -> cancelled;
+        };
+    }
+}
@@ -0,0 +1,10 @@
+package com.springreactive.webfluxcourse.metrics;
+
+/**
+ * Receives the latency of every single-value repository call, as measured by
+ * {@link RepositoryMetricsAspect}.
+ */
+public interface LatencyObserver {
+
+    void onLatency(long nanos, boolean success);
+}
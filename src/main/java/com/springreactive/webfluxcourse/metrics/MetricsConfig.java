@@ -0,0 +1,42 @@
+package com.springreactive.webfluxcourse.metrics;
+
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Configuration
+public class MetricsConfig {
+
+    private static final String UNKNOWN_ROUTE = "UNKNOWN";
+    private static final Set<String> ROUTES = Set.of(
+            "/users", "/users/search", "/users/by-email", "/users/changes", "/users/batch-get", "/users/bulk",
+            "/actuator/health", "/actuator/info", "/actuator/metrics", "/actuator/prometheus");
+    private static final Pattern USER_ROUTE = Pattern.compile("^/users/[^/]+(/password/verify)?$");
+
+    /**
+     * Turns on Reactor Netty metrics, which also registers the event-loop gauges
+     * ({@code reactor.netty.eventloop.pending.tasks}). The {@code uri} tag is bounded to the
+     * known routes, with ids collapsed; any other path is tagged {@code UNKNOWN}.
+     */
+    @Bean
+    NettyServerCustomizer nettyMetricsCustomizer() {
+        return httpServer -> httpServer.metrics(true, MetricsConfig::uriTemplate);
+    }
+
+    static String uriTemplate(final String uri) {
+        final int query = uri.indexOf('?');
+        final String path = query < 0 ? uri : uri.substring(0, query);
+        if (ROUTES.contains(path)) {
+            return path;
+        }
+        final Matcher user = USER_ROUTE.matcher(path);
+        if (user.matches()) {
+            return user.group(1) == null ? "/users/{id}" : "/users/{id}/password/verify";
+        }
+        return UNKNOWN_ROUTE;
+    }
+}
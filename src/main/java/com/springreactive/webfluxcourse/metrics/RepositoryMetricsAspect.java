@@ -0,0 +1,80 @@
+package com.springreactive.webfluxcourse.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publishes a {@code users.repository} timer, tagged by method and outcome, for every public
+ * reactive method of the repository layer. Single-value calls are also reported to every
+ * {@link LatencyObserver}; streams are not, their duration depends on the consumer.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+    public static final String METRIC_NAME = "users.repository";
+
+    private final MeterRegistry registry;
+    private final ObjectProvider<LatencyObserver> latencyObservers;
+    private final Map<String, FlowTimer> timers = new ConcurrentHashMap<>();
+    private volatile List<LatencyObserver> observers;
+
+    @Around("execution(public * com.springreactive.webfluxcourse.respository..*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object result = joinPoint.proceed();
+        if (result instanceof Mono<?> mono) {
+            return observe(timer(joinPoint).time(mono));
+        }
+        if (result instanceof Flux<?> flux) {
+            return timer(joinPoint).time(flux);
+        }
+        return result;
+    }
+
+    private <T> Mono<T> observe(final Mono<T> mono) {
+        final List<LatencyObserver> targets = observers();
+        if (targets.isEmpty()) {
+            return mono;
+        }
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            return mono.doOnEach(signal -> {
+                if (signal.isOnComplete() || signal.isOnError()) {
+                    final long elapsed = System.nanoTime() - start;
+                    targets.forEach(observer -> observer.onLatency(elapsed, !signal.isOnError()));
+                }
+            });
+        });
+    }
+
+    /**
+     * Resolved on first use: observers may depend on beans that are proxied by this aspect.
+     */
+    private List<LatencyObserver> observers() {
+        List<LatencyObserver> resolved = observers;
+        if (resolved == null) {
+            resolved = latencyObservers.orderedStream().toList();
+            observers = resolved;
+        }
+        return resolved;
+    }
+
+    private FlowTimer timer(ProceedingJoinPoint joinPoint) {
+        String method = joinPoint.getSignature().getName();
+        return timers.computeIfAbsent(method,
+                name -> new FlowTimer(registry, METRIC_NAME, Tags.of("method", name)));
+    }
+}
@@ -0,0 +1,12 @@
+package com.springreactive.webfluxcourse.model.request;
+
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record BatchGetRequest(
+
+        @NotEmpty(message = "must not be null or empty")
+        List<String> ids
+) {
+}
@@ -0,0 +1,9 @@
+package com.springreactive.webfluxcourse.model.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record PasswordVerificationRequest(
+        @NotBlank(message = "must not be null or empty")
+        String password
+) {
+}
@@ -0,0 +1,11 @@
+package com.springreactive.webfluxcourse.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.springreactive.webfluxcourse.controller.exceptions.StandardError;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkItemResponse(
+        long index,
+        String id,
+        StandardError error
+) { }
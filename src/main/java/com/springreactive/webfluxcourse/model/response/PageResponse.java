@@ -0,0 +1,14 @@
+package com.springreactive.webfluxcourse.model.response;
+
+import java.util.List;
+import java.util.function.Function;
+
+public record PageResponse<T>(
+        List<T> content,
+        String nextPageToken
+) {
+
+    public <R> PageResponse<R> map(final Function<? super T, ? extends R> mapper) {
+        return new PageResponse<>(content.stream().<R>map(mapper).toList(), nextPageToken);
+    }
+}
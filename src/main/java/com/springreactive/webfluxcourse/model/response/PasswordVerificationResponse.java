@@ -0,0 +1,5 @@
+package com.springreactive.webfluxcourse.model.response;
+
+public record PasswordVerificationResponse(
+        boolean matches
+) { }
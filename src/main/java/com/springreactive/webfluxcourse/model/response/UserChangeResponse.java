@@ -0,0 +1,10 @@
+package com.springreactive.webfluxcourse.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserChangeResponse(
+        String operation,
+        String id,
+        UserResponse user
+) { }
@@ -1,8 +1,10 @@
 package com.springreactive.webfluxcourse.model.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record UserResponse(
         String id,
         String name,
-        String email,
-        String password
+        String email
 ) { }
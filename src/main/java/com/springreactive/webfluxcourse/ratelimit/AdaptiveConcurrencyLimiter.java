@@ -0,0 +1,110 @@
+package com.springreactive.webfluxcourse.ratelimit;
+
+import com.springreactive.webfluxcourse.config.RateLimitProperties;
+import com.springreactive.webfluxcourse.metrics.LatencyObserver;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongSupplier;
+
+/**
+ * AIMD limit on concurrently admitted requests. Repository calls under the latency threshold
+ * grow the limit by {@code 1/limit} (about one per window of requests) while the limit is
+ * actually in use; slow or failed calls multiply it by the backoff ratio, at most once per
+ * threshold window so one slow burst does not collapse it to the minimum.
+ * <p>
+ * The limit is a {@code double} stored in an {@link AtomicLong}; every update is a CAS loop.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter implements LatencyObserver {
+
+    public static final String LIMIT_METRIC = "users.concurrency.limit";
+    public static final String IN_FLIGHT_METRIC = "users.concurrency.in_flight";
+
+    private final boolean enabled;
+    private final double minLimit;
+    private final double maxLimit;
+    private final long latencyThreshold;
+    private final double backoffRatio;
+    private final LongSupplier nanoTime;
+    private final AtomicLong limit;
+    private final AtomicLong lastDecrease;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public AdaptiveConcurrencyLimiter(final RateLimitProperties properties, final MeterRegistry meterRegistry) {
+        this(properties.concurrency(), System::nanoTime);
+        Gauge.builder(LIMIT_METRIC, this, AdaptiveConcurrencyLimiter::limit).register(meterRegistry);
+        Gauge.builder(IN_FLIGHT_METRIC, inFlight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    AdaptiveConcurrencyLimiter(final RateLimitProperties.Concurrency properties, final LongSupplier nanoTime) {
+        this.enabled = properties.enabled();
+        this.minLimit = properties.minLimit();
+        this.maxLimit = properties.maxLimit();
+        this.latencyThreshold = properties.latencyThreshold().toNanos();
+        this.backoffRatio = properties.backoffRatio();
+        this.nanoTime = nanoTime;
+        this.limit = new AtomicLong(Double.doubleToRawLongBits(
+                Math.max(minLimit, Math.min(maxLimit, properties.initialLimit()))));
+        this.lastDecrease = new AtomicLong(nanoTime.getAsLong() - latencyThreshold);
+    }
+
+    public boolean tryAcquire() {
+        if (!enabled) {
+            return true;
+        }
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= (int) limit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        if (enabled) {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void onLatency(final long nanos, final boolean success) {
+        if (!enabled) {
+            return;
+        }
+        if (!success || nanos > latencyThreshold) {
+            final long now = nanoTime.getAsLong();
+            final long last = lastDecrease.get();
+            if (now - last >= latencyThreshold && lastDecrease.compareAndSet(last, now)) {
+                update(current -> Math.max(minLimit, current * backoffRatio));
+            }
+        } else if (inFlight.get() * 2 >= (int) limit()) {
+            update(current -> Math.min(maxLimit, current + 1.0 / current));
+        }
+    }
+
+    public double limit() {
+        return Double.longBitsToDouble(limit.get());
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private void update(final DoubleUnaryOperator operator) {
+        while (true) {
+            final long bits = limit.get();
+            final long next = Double.doubleToRawLongBits(operator.applyAsDouble(Double.longBitsToDouble(bits)));
+            if (bits == next || limit.compareAndSet(bits, next)) {
+                return;
+            }
+        }
+    }
+}
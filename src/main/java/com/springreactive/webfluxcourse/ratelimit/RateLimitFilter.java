@@ -0,0 +1,211 @@
+package com.springreactive.webfluxcourse.ratelimit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.springreactive.webfluxcourse.config.RateLimitProperties;
+import com.springreactive.webfluxcourse.controller.exceptions.StandardError;
+import com.springreactive.webfluxcourse.utils.StreamingMediaTypes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control in front of {@code /users}, cheapest check first:
+ * <ol>
+ *     <li>a token bucket per client, 429 when empty;</li>
+ *     <li>a token bucket per configured route shared by all clients, 429 when empty;</li>
+ *     <li>the {@link AdaptiveConcurrencyLimiter}, 503 when the in-flight limit is reached.</li>
+ * </ol>
+ * Streams ({@code GET /users/changes}, and {@code GET /users} with an {@code Accept} naming
+ * NDJSON, SSE or one of the binary stream types explicitly) only go through the buckets: they
+ * stay open for as long as the client reads, so holding a concurrency slot would let a few
+ * streams starve everything else. Wildcards such as {@code *}{@code /*} do not count, since most
+ * clients send them for ordinary requests, and no other route is exempt whatever it accepts.
+ * Rejections carry {@code Retry-After} and are answered without touching the handler chain.
+ * Every check is a CAS on shared state; nothing on this path blocks.
+ */
+@Component
+public class RateLimitFilter implements WebFilter, Ordered {
+
+    public static final String METRIC = "users.rate_limit.rejected";
+
+    private static final PathPattern USERS = PathPatternParser.defaultInstance.parse("/users/**");
+    private static final PathPattern EXPORT = PathPatternParser.defaultInstance.parse("/users");
+    private static final PathPattern CHANGES = PathPatternParser.defaultInstance.parse("/users/changes");
+    private static final String UNKNOWN_CLIENT = "unknown";
+
+    private final boolean enabled;
+    private final String clientHeader;
+    private final RateLimitProperties.Bucket perClient;
+    private final Cache<String, TokenBucket> clientBuckets;
+    private final List<RouteBucket> routeBuckets;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ObjectMapper objectMapper;
+    private final LongSupplier nanoTime;
+    private final Counter clientRejections;
+    private final Counter routeRejections;
+    private final Counter concurrencyRejections;
+
+    public RateLimitFilter(final RateLimitProperties properties, final AdaptiveConcurrencyLimiter concurrencyLimiter,
+                           final ObjectMapper objectMapper, final MeterRegistry meterRegistry) {
+        this(properties, concurrencyLimiter, objectMapper, meterRegistry, System::nanoTime);
+    }
+
+    RateLimitFilter(final RateLimitProperties properties, final AdaptiveConcurrencyLimiter concurrencyLimiter,
+                    final ObjectMapper objectMapper, final MeterRegistry registry, final LongSupplier nanoTime) {
+        this.enabled = properties.enabled();
+        this.clientHeader = properties.clientHeader();
+        this.perClient = properties.perClient();
+        this.nanoTime = nanoTime;
+        this.clientBuckets = Caffeine.newBuilder()
+                .maximumSize(properties.maxClients())
+                .expireAfterAccess(idleTimeout(properties.perClient()))
+                .build();
+        final long now = nanoTime.getAsLong();
+        this.routeBuckets = properties.routes().entrySet().stream()
+                .map(route -> RouteBucket.parse(route.getKey(), new TokenBucket(route.getValue(), now)))
+                .toList();
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.objectMapper = objectMapper;
+        this.clientRejections = registry.counter(METRIC, "reason", "client");
+        this.routeRejections = registry.counter(METRIC, "reason", "route");
+        this.concurrencyRejections = registry.counter(METRIC, "reason", "concurrency");
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 10;
+    }
+
+    @Override
+    public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+        final ServerHttpRequest request = exchange.getRequest();
+        if (!enabled || !USERS.matches(request.getPath().pathWithinApplication())) {
+            return chain.filter(exchange);
+        }
+        final long now = nanoTime.getAsLong();
+
+        final long clientWait = clientBuckets.get(clientKey(request), key -> new TokenBucket(perClient, now))
+                .tryAcquire(now);
+        if (clientWait > 0) {
+            clientRejections.increment();
+            return reject(exchange, HttpStatus.TOO_MANY_REQUESTS, clientWait, "Too many requests from this client");
+        }
+
+        for (RouteBucket route : routeBuckets) {
+            if (route.matches(request)) {
+                final long routeWait = route.bucket().tryAcquire(now);
+                if (routeWait > 0) {
+                    routeRejections.increment();
+                    return reject(exchange, HttpStatus.TOO_MANY_REQUESTS, routeWait, "Too many requests for this route");
+                }
+            }
+        }
+
+        if (isStreaming(request)) {
+            return chain.filter(exchange);
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            concurrencyRejections.increment();
+            return reject(exchange, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1),
+                    "Server is at capacity, try again later");
+        }
+        return chain.filter(exchange).doFinally(signal -> concurrencyLimiter.release());
+    }
+
+    private static boolean isStreaming(final ServerHttpRequest request) {
+        if (!HttpMethod.GET.equals(request.getMethod())) {
+            return false;
+        }
+        final PathContainer path = request.getPath().pathWithinApplication();
+        if (CHANGES.matches(path)) {
+            return true;
+        }
+        return EXPORT.matches(path) && request.getHeaders().getAccept().stream()
+                .anyMatch(accept -> StreamingMediaTypes.ALL.stream().anyMatch(type -> type.equalsTypeAndSubtype(accept)));
+    }
+
+    private String clientKey(final ServerHttpRequest request) {
+        if (clientHeader != null) {
+            final String value = request.getHeaders().getFirst(clientHeader);
+            if (value != null && !value.isBlank()) {
+                final int comma = value.indexOf(',');
+                return (comma < 0 ? value : value.substring(0, comma)).trim();
+            }
+        }
+        final InetSocketAddress remote = request.getRemoteAddress();
+        if (remote == null) {
+            return UNKNOWN_CLIENT;
+        }
+        return remote.getAddress() != null ? remote.getAddress().getHostAddress() : remote.getHostString();
+    }
+
+    private Mono<Void> reject(final ServerWebExchange exchange, final HttpStatus status, final long waitNanos,
+                              final String message) {
+        final ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1L, (waitNanos + 999_999_999L) / 1_000_000_000L)));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        final StandardError error = StandardError.builder()
+                .timestamp(LocalDateTime.now())
+                .status(status.value())
+                .error(status.getReasonPhrase())
+                .errorMessage(message)
+                .path(exchange.getRequest().getPath().toString())
+                .build();
+        try {
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(objectMapper.writeValueAsBytes(error))));
+        } catch (JsonProcessingException ex) {
+            return response.setComplete();
+        }
+    }
+
+    /**
+     * A client idle for longer than it takes to refill its bucket is indistinguishable from a new one.
+     */
+    private static Duration idleTimeout(final RateLimitProperties.Bucket bucket) {
+        final double refillSeconds = bucket.capacity() / bucket.refillPerSecond();
+        return Duration.ofMillis(Math.max(1_000L, (long) Math.ceil(refillSeconds * 1_000)));
+    }
+
+    private record RouteBucket(HttpMethod method, PathPattern pattern, TokenBucket bucket) {
+
+        static RouteBucket parse(final String route, final TokenBucket bucket) {
+            final String[] parts = route.trim().split("\\s+", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Rate limit route must be \"METHOD /path\": " + route);
+            }
+            return new RouteBucket(HttpMethod.valueOf(parts[0].toUpperCase(Locale.ROOT)),
+                    PathPatternParser.defaultInstance.parse(parts[1]), bucket);
+        }
+
+        boolean matches(final ServerHttpRequest request) {
+            return method.equals(request.getMethod()) && pattern.matches(request.getPath().pathWithinApplication());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.springreactive.webfluxcourse.ratelimit;
+
+import com.springreactive.webfluxcourse.config.RateLimitProperties;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket implemented as GCRA: the whole state is the theoretical arrival time of the next
+ * request, so acquiring is a single CAS on one {@code long} with no refill bookkeeping.
+ */
+final class TokenBucket {
+
+    private final long emissionInterval;
+    private final long burstTolerance;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(final RateLimitProperties.Bucket bucket, final long now) {
+        this.emissionInterval = Math.max(1L, (long) (1_000_000_000L / bucket.refillPerSecond()));
+        this.burstTolerance = emissionInterval * Math.max(1L, bucket.capacity());
+        this.theoreticalArrival = new AtomicLong(now);
+    }
+
+    /**
+     * @return {@code 0} when a token was taken, otherwise the nanoseconds until one is available
+     */
+    long tryAcquire(final long now) {
+        while (true) {
+            final long current = theoreticalArrival.get();
+            final long next = Math.max(current, now) + emissionInterval;
+            final long allowedAt = next - burstTolerance;
+            if (now < allowedAt) {
+                return allowedAt - now;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0L;
+            }
+        }
+    }
+}
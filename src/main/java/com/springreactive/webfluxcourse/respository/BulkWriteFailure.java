@@ -0,0 +1,14 @@
+package com.springreactive.webfluxcourse.respository;
+
+public record BulkWriteFailure(
+        int index,
+        int code,
+        String message
+) {
+
+    private static final int DUPLICATE_KEY_CODE = 11000;
+
+    public boolean isDuplicateKey() {
+        return code == DUPLICATE_KEY_CODE;
+    }
+}
@@ -0,0 +1,428 @@
+package com.springreactive.webfluxcourse.respository;
+
+import com.springreactive.webfluxcourse.entity.User;
+import com.springreactive.webfluxcourse.service.exception.InvalidPageTokenException;
+import com.springreactive.webfluxcourse.utils.ResumeToken;
+import com.springreactive.webfluxcourse.utils.SearchCursor;
+import com.springreactive.webfluxcourse.utils.SearchField;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Embedded {@link UserRepository} for edge and cache nodes and for hermetic tests and benchmarks.
+ * <p>
+ * Users are kept encoded by {@link UserRecordCodec} in a hash index on id, next to an ordered id
+ * set for paging, a unique {@code email -> id} index that also serves email prefix search, and a
+ * case-insensitive {@code (name, id)} index mirroring {@link User#NAME_INDEX}. Writes are
+ * serialized by one lock, which is what makes the email check and the index updates atomic;
+ * reads take no lock and re-check every index hit against the record, so they never return a
+ * user that does not match even while a write is halfway through its index updates.
+ * <p>
+ * Changes are numbered in memory and the last {@code changeHistory} of them are kept, so
+ * {@link #watch} can resume from a recent token and rejects an older one; nothing survives a
+ * restart.
+ */
+public class InMemoryUserRepository implements UserRepository {
+
+    private static final int DUPLICATE_KEY_CODE = 11000;
+    private static final String PREFIX_UPPER_BOUND = "\uffff";
+    private static final Comparator<NameKey> NAME_ORDER = Comparator
+            .comparing(NameKey::name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(NameKey::id);
+
+    private final Map<String, byte[]> records = new ConcurrentHashMap<>();
+    private final NavigableSet<String> ids = new ConcurrentSkipListSet<>();
+    private final NavigableMap<String, String> emails = new ConcurrentSkipListMap<>();
+    private final NavigableSet<NameKey> names = new ConcurrentSkipListSet<>(NAME_ORDER);
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Sinks.Many<UserChange> changes;
+    private final Journal journal;
+    private volatile long sequence;
+
+    public InMemoryUserRepository(final int changeHistory) {
+        this(changeHistory, (operation, id, user) -> { });
+    }
+
+    /**
+     * {@code journal} sees every mutation, in order, under the write lock and before it is
+     * applied; if it throws, the mutation fails without having changed anything.
+     */
+    InMemoryUserRepository(final int changeHistory, final Journal journal) {
+        this.changes = Sinks.many().replay().limit(changeHistory);
+        this.journal = journal;
+    }
+
+    /**
+     * Inserts users without a version and replaces the stored user otherwise, failing with
+     * {@link OptimisticLockingFailureException} unless the stored version matches, like the
+     * {@code @Version} handling of {@code ReactiveMongoTemplate.save}.
+     */
+    @Override
+    public Mono<User> save(final User user) {
+        return Mono.fromCallable(() -> locked(() -> {
+            if (user.getVersion() == null) {
+                final User inserted = insert(user.toBuilder().version(0L).build());
+                user.setId(inserted.getId());
+                user.setVersion(inserted.getVersion());
+                return user;
+            }
+            final User current = read(user.getId());
+            if (current == null || !user.getVersion().equals(current.getVersion())) {
+                throw new OptimisticLockingFailureException(String.format(
+                        "Cannot save user with id %s and version %d", user.getId(), user.getVersion()));
+            }
+            user.setVersion(current.getVersion() + 1);
+            replace(current, user.toBuilder().build());
+            return user;
+        }));
+    }
+
+    @Override
+    public Mono<List<BulkWriteFailure>> insertAll(final List<User> users) {
+        return Mono.fromCallable(() -> locked(() -> {
+            final List<BulkWriteFailure> failures = new ArrayList<>();
+            for (int index = 0; index < users.size(); index++) {
+                final User user = users.get(index);
+                try {
+                    insert(user.getVersion() == null ? user.toBuilder().version(0L).build() : user);
+                } catch (DuplicateKeyException ex) {
+                    failures.add(new BulkWriteFailure(index, DUPLICATE_KEY_CODE, ex.getMessage()));
+                }
+            }
+            return failures;
+        }));
+    }
+
+    @Override
+    public Mono<User> findById(final String id) {
+        return Mono.fromSupplier(() -> read(id));
+    }
+
+    @Override
+    public Flux<User> findAllById(final Collection<String> ids) {
+        return Flux.fromIterable(new LinkedHashSet<>(ids)).mapNotNull(this::read);
+    }
+
+    @Override
+    public Mono<User> findByEmail(final String email) {
+        return Mono.fromSupplier(() -> readByEmail(email));
+    }
+
+    @Override
+    public Mono<Boolean> existsByEmail(final String email) {
+        return Mono.fromSupplier(() -> readByEmail(email) != null);
+    }
+
+    @Override
+    public Flux<String> findAllEmails(final int cursorBatchSize) {
+        return Flux.fromIterable(emails.keySet());
+    }
+
+    @Override
+    public Flux<User> findAll(final int cursorBatchSize, final Set<String> fields) {
+        return Flux.fromIterable(ids)
+                .mapNotNull(this::read)
+                .map(user -> project(user, fields));
+    }
+
+    @Override
+    public Flux<User> findPage(final String afterId, final int limit, final Set<String> fields) {
+        return Flux.fromIterable(afterId == null ? ids : ids.tailSet(afterId, false))
+                .mapNotNull(this::read)
+                .take(limit, true)
+                .map(user -> project(user, fields));
+    }
+
+    /**
+     * Walks the email or name index from the prefix, or from the cursor when it is further on.
+     */
+    @Override
+    public Flux<User> search(final SearchField field, final String prefix, final SearchCursor after,
+                             final int limit, final Set<String> fields) {
+        final Set<String> projected = fields.isEmpty() ? fields : withField(fields, field.getProperty());
+        final String upperBound = prefix + PREFIX_UPPER_BOUND;
+        if (field == SearchField.EMAIL) {
+            final boolean resume = after != null && after.key().compareTo(prefix) >= 0;
+            final String from = resume ? after.key() : prefix;
+            if (from.compareTo(upperBound) >= 0) {
+                return Flux.empty();
+            }
+            return Flux.fromIterable(emails.subMap(from, !resume, upperBound, false).keySet())
+                    .mapNotNull(this::readByEmail)
+                    .take(limit, true)
+                    .map(user -> project(user, projected));
+        }
+        final NameKey lower = new NameKey(prefix, "");
+        final NameKey upper = new NameKey(upperBound, "");
+        final NameKey cursor = after == null ? null : new NameKey(after.key(), after.id());
+        final boolean resume = cursor != null && NAME_ORDER.compare(cursor, lower) >= 0;
+        final NameKey from = resume ? cursor : lower;
+        if (NAME_ORDER.compare(from, upper) >= 0) {
+            return Flux.empty();
+        }
+        final NavigableSet<NameKey> range = names.subSet(from, !resume, upper, false);
+        return Flux.fromIterable(range)
+                .mapNotNull(key -> {
+                    final User user = read(key.id());
+                    return user != null && key.name().equals(user.getName()) ? user : null;
+                })
+                .take(limit, true)
+                .map(user -> project(user, projected));
+    }
+
+    @Override
+    public Mono<User> findAndModify(final String id, final User changes, final Long expectedVersion) {
+        return Mono.fromCallable(() -> locked(() -> {
+            final User current = read(id);
+            if (current == null || !UserRepository.versionMatches(expectedVersion, current.getVersion())) {
+                return null;
+            }
+            if (changes.getName() == null && changes.getEmail() == null && changes.getPassword() == null) {
+                return current;
+            }
+            final User updated = current.toBuilder()
+                    .name(changes.getName() != null ? changes.getName() : current.getName())
+                    .email(changes.getEmail() != null ? changes.getEmail() : current.getEmail())
+                    .password(changes.getPassword() != null ? changes.getPassword() : current.getPassword())
+                    .version(current.getVersion() == null ? 1L : current.getVersion() + 1)
+                    .build();
+            replace(current, updated);
+            return updated;
+        }));
+    }
+
+    @Override
+    public Mono<User> findAndRemove(final String id, final Long expectedVersion) {
+        return Mono.fromCallable(() -> locked(() -> {
+            final User current = read(id);
+            if (current == null || !UserRepository.versionMatches(expectedVersion, current.getVersion())) {
+                return null;
+            }
+            journal.record(UserChange.Operation.DELETED, id, null);
+            remove(current);
+            publish(UserChange.Operation.DELETED, id, null);
+            return current;
+        }));
+    }
+
+    User current(final String id) {
+        return read(id);
+    }
+
+    /**
+     * Puts {@code user} back as stored, replacing whatever has its id. Used to rebuild state from
+     * another source of truth: nothing is journaled or published, and the email index is pointed
+     * at this user even if another one currently claims the email, since that user is expected to
+     * be restored with its own, later state too.
+     */
+    void restore(final User user) {
+        locked(() -> {
+            final User current = read(user.getId());
+            if (current != null) {
+                unindex(current);
+            }
+            records.put(user.getId(), UserRecordCodec.encode(user));
+            ids.add(user.getId());
+            index(user);
+            return null;
+        });
+    }
+
+    /**
+     * Counterpart of {@link #restore(User)} for users that were deleted.
+     */
+    void evict(final String id) {
+        locked(() -> {
+            final User current = read(id);
+            if (current != null) {
+                remove(current);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Runs {@code write} holding the write lock, so no mutation can interleave with it.
+     */
+    <T> T locked(final LockedWrite<T> write) {
+        writeLock.lock();
+        try {
+            return write.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replays the retained changes after {@code resumeAfter}, then follows live ones. Without a
+     * token only changes made after subscription are emitted. A token whose next change is no
+     * longer retained fails with {@link InvalidPageTokenException} rather than skipping ahead.
+     */
+    @Override
+    public Flux<UserChange> watch(final BsonDocument resumeAfter) {
+        if (resumeAfter == null) {
+            return Flux.defer(() -> {
+                final long after = sequence;
+                return changes.asFlux().filter(change -> position(change.resumeToken()) > after);
+            });
+        }
+        return Flux.defer(() -> {
+            final String token = ResumeToken.encode(resumeAfter);
+            final long after = position(token);
+            return changes.asFlux()
+                    .filter(change -> position(change.resumeToken()) > after)
+                    .switchOnFirst((first, replay) -> first.hasValue()
+                            && position(first.get().resumeToken()) > after + 1
+                            ? Flux.error(new InvalidPageTokenException(
+                                    "Resume token is older than the retained change history: " + token))
+                            : replay);
+        });
+    }
+
+    private User read(final String id) {
+        final byte[] record = id == null ? null : records.get(id);
+        return record == null ? null : UserRecordCodec.decode(record);
+    }
+
+    private User readByEmail(final String email) {
+        final String id = email == null ? null : emails.get(email);
+        final User user = read(id);
+        return user != null && email.equals(user.getEmail()) ? user : null;
+    }
+
+    private User insert(final User user) {
+        final String id = user.getId() != null ? user.getId() : new ObjectId().toHexString();
+        if (records.containsKey(id)) {
+            throw duplicate("_id_", "_id", id);
+        }
+        ensureEmailAvailable(user.getEmail(), id);
+        final User stored = user.toBuilder().id(id).build();
+        journal.record(UserChange.Operation.CREATED, id, stored);
+        records.put(id, UserRecordCodec.encode(stored));
+        ids.add(id);
+        index(stored);
+        publish(UserChange.Operation.CREATED, id, stored);
+        return stored;
+    }
+
+    private void replace(final User current, final User updated) {
+        ensureEmailAvailable(updated.getEmail(), updated.getId());
+        journal.record(UserChange.Operation.UPDATED, updated.getId(), updated);
+        records.put(updated.getId(), UserRecordCodec.encode(updated));
+        unindex(current);
+        index(updated);
+        publish(UserChange.Operation.UPDATED, updated.getId(), updated);
+    }
+
+    private void remove(final User current) {
+        unindex(current);
+        ids.remove(current.getId());
+        records.remove(current.getId());
+    }
+
+    private void ensureEmailAvailable(final String email, final String id) {
+        if (email == null) {
+            return;
+        }
+        final String owner = emails.get(email);
+        if (owner != null && !owner.equals(id)) {
+            throw duplicate(User.EMAIL_INDEX, "email", email);
+        }
+    }
+
+    private void index(final User user) {
+        if (user.getEmail() != null) {
+            emails.put(user.getEmail(), user.getId());
+        }
+        if (user.getName() != null) {
+            names.add(new NameKey(user.getName(), user.getId()));
+        }
+    }
+
+    /**
+     * Only called with the stored user, under the write lock: the email entry is removed only
+     * while it still points at this id.
+     */
+    private void unindex(final User user) {
+        if (user.getEmail() != null) {
+            emails.remove(user.getEmail(), user.getId());
+        }
+        if (user.getName() != null) {
+            names.remove(new NameKey(user.getName(), user.getId()));
+        }
+    }
+
+    private void publish(final UserChange.Operation operation, final String id, final User user) {
+        final long next = sequence + 1;
+        sequence = next;
+        changes.tryEmitNext(new UserChange(String.format("%016x", next), operation, id,
+                user == null ? null : user.toBuilder().build()));
+    }
+
+    /**
+     * Same message shape as the Mongo server's, so callers inspecting it behave the same.
+     */
+    private static DuplicateKeyException duplicate(final String index, final String key, final String value) {
+        return new DuplicateKeyException(String.format(
+                "E11000 duplicate key error collection: users index: %s dup key: { %s: \"%s\" }", index, key, value));
+    }
+
+    private static long position(final String resumeToken) {
+        try {
+            return Long.parseUnsignedLong(resumeToken, 16);
+        } catch (NumberFormatException ex) {
+            throw new InvalidPageTokenException("Invalid resume token: " + resumeToken);
+        }
+    }
+
+    private static Set<String> withField(final Set<String> fields, final String field) {
+        final Set<String> projected = new LinkedHashSet<>(fields);
+        projected.add(field);
+        return projected;
+    }
+
+    private static User project(final User user, final Set<String> fields) {
+        if (fields.isEmpty()) {
+            return user;
+        }
+        return User.builder()
+                .id(user.getId())
+                .name(fields.contains("name") ? user.getName() : null)
+                .email(fields.contains("email") ? user.getEmail() : null)
+                .password(fields.contains("password") ? user.getPassword() : null)
+                .version(fields.contains("version") ? user.getVersion() : null)
+                .build();
+    }
+
+    @FunctionalInterface
+    interface LockedWrite<T> {
+        T run();
+    }
+
+    @FunctionalInterface
+    interface Journal {
+        void record(UserChange.Operation operation, String id, User user);
+    }
+
+    private record NameKey(String name, String id) {
+    }
+}
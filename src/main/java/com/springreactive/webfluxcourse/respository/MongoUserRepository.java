@@ -0,0 +1,316 @@
+package com.springreactive.webfluxcourse.respository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoServerException;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.springreactive.webfluxcourse.entity.User;
+import com.springreactive.webfluxcourse.service.exception.InvalidPageTokenException;
+import com.springreactive.webfluxcourse.utils.ResumeToken;
+import com.springreactive.webfluxcourse.utils.SearchCursor;
+import com.springreactive.webfluxcourse.utils.SearchField;
+import lombok.RequiredArgsConstructor;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link UserRepository} on {@link ReactiveMongoTemplate}, the default engine.
+ */
+@RequiredArgsConstructor
+public class MongoUserRepository implements UserRepository {
+
+    private static final String VERSION = "version";
+    private static final String PREFIX_UPPER_BOUND = "\uffff";
+    private static final Collation CASE_INSENSITIVE = Collation.of("en").strength(Collation.ComparisonLevel.secondary());
+
+    /**
+     * BadValue, FailedToParse, InvalidResumeToken, ChangeStreamFatalError (token not found) and
+     * ChangeStreamHistoryLost.
+     */
+    private static final Set<Integer> RESUME_TOKEN_ERRORS = Set.of(2, 9, 260, 280, 286);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<User> save(final User user) {
+        return mongoTemplate.save(user);
+    }
+
+    /**
+     * One unordered insertMany, so a failing document does not stop the others.
+     */
+    @Override
+    public Mono<List<BulkWriteFailure>> insertAll(final List<User> users) {
+        final List<Document> documents = users.stream()
+                .map(this::toDocument)
+                .peek(document -> document.putIfAbsent(VERSION, 0L))
+                .toList();
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class))
+                .flatMap(collection -> Mono.from(
+                        collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .map(result -> List.<BulkWriteFailure>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(
+                        ex.getWriteErrors().stream()
+                                .map(error -> new BulkWriteFailure(error.getIndex(), error.getCode(), error.getMessage()))
+                                .toList()));
+    }
+
+    /**
+     * Makes the collection mirror the given final states in one unordered bulk write: each user
+     * replaces (or creates) its document, version included, and each id in {@code deletedIds} is
+     * removed. Failures are reported by position, users first and then deletions.
+     */
+    public Mono<List<BulkWriteFailure>> writeAll(final List<User> users, final List<String> deletedIds) {
+        final List<WriteModel<Document>> writes = new ArrayList<>(users.size() + deletedIds.size());
+        for (User user : users) {
+            final Document document = toDocument(user);
+            writes.add(new ReplaceOneModel<>(Filters.eq("_id", document.get("_id")), document,
+                    new ReplaceOptions().upsert(true)));
+        }
+        for (String id : deletedIds) {
+            writes.add(new DeleteOneModel<>(Filters.eq("_id", ObjectId.isValid(id) ? new ObjectId(id) : id)));
+        }
+        if (writes.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(writes, new BulkWriteOptions().ordered(false))))
+                .map(result -> List.<BulkWriteFailure>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(
+                        ex.getWriteErrors().stream()
+                                .map(error -> new BulkWriteFailure(error.getIndex(), error.getCode(), error.getMessage()))
+                                .toList()));
+    }
+
+    private Document toDocument(final User user) {
+        final Document document = new Document();
+        mongoTemplate.getConverter().write(user, document);
+        return document;
+    }
+
+    @Override
+    public Mono<User> findById(final String id) {
+        return mongoTemplate.findById(id, User.class);
+    }
+
+    /**
+     * Resolves many ids with a single {@code $in} query on {@code _id}.
+     */
+    @Override
+    public Flux<User> findAllById(final Collection<String> ids) {
+        return mongoTemplate.find(new Query(Criteria.where("id").in(ids)), User.class);
+    }
+
+    @Override
+    public Mono<User> findByEmail(final String email) {
+        return mongoTemplate.findOne(new Query(Criteria.where("email").is(email)), User.class);
+    }
+
+    @Override
+    public Mono<Boolean> existsByEmail(final String email) {
+        return mongoTemplate.exists(new Query(Criteria.where("email").is(email)), User.class);
+    }
+
+    /**
+     * Every registered email, read as a covered scan of {@link User#EMAIL_INDEX}: the projection
+     * only asks for the indexed field, so Mongo never fetches the documents.
+     */
+    @Override
+    public Flux<String> findAllEmails(final int cursorBatchSize) {
+        final Query query = new Query().withHint(User.EMAIL_INDEX).cursorBatchSize(cursorBatchSize);
+        query.fields().include("email").exclude("_id");
+        return mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(User.class))
+                .mapNotNull(document -> document.getString("email"));
+    }
+
+    @Override
+    public Flux<User> findAll(final int cursorBatchSize, final Set<String> fields) {
+        return mongoTemplate.find(project(new Query().cursorBatchSize(cursorBatchSize), fields), User.class);
+    }
+
+    @Override
+    public Flux<User> findPage(final String afterId, final int limit, final Set<String> fields) {
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "id"))
+                .limit(limit);
+        if (afterId != null) {
+            query.addCriteria(Criteria.where("id").gt(afterId));
+        }
+        return mongoTemplate.find(project(query, fields), User.class);
+    }
+
+    /**
+     * Prefix search on {@code field}, ordered by that field (and {@code _id} when the field is
+     * not unique) so the {@code after} cursor can resume without skipping. The prefix becomes a
+     * {@code [prefix, prefix + U+FFFF)} range, which stays an index bound, and the name
+     * query repeats the case-insensitive collation of {@link User#NAME_INDEX} so that index
+     * both matches and sorts. The sort key is always projected because the cursor needs it.
+     */
+    @Override
+    public Flux<User> search(final SearchField field, final String prefix, final SearchCursor after,
+                             final int limit, final Set<String> fields) {
+        final String key = field.getProperty();
+        Criteria criteria = Criteria.where(key).gte(prefix).lt(prefix + PREFIX_UPPER_BOUND);
+        if (after != null && field.isUnique()) {
+            criteria = new Criteria().andOperator(criteria, Criteria.where(key).gt(after.key()));
+        } else if (after != null) {
+            criteria = new Criteria().andOperator(criteria, new Criteria().orOperator(
+                    Criteria.where(key).gt(after.key()),
+                    Criteria.where(key).is(after.key()).and("id").gt(after.id())));
+        }
+        final Query query = new Query(criteria)
+                .with(field.isUnique() ? Sort.by(Sort.Direction.ASC, key) : Sort.by(Sort.Direction.ASC, key, "id"))
+                .limit(limit);
+        if (field.isCaseInsensitive()) {
+            query.collation(CASE_INSENSITIVE);
+        }
+        if (!fields.isEmpty()) {
+            final Set<String> projected = new HashSet<>(fields);
+            projected.add(key);
+            return mongoTemplate.find(project(query, projected), User.class);
+        }
+        return mongoTemplate.find(query, User.class);
+    }
+
+    /**
+     * Restricts the returned document to {@code fields}; an empty set keeps every field.
+     * {@code _id} is always returned by Mongo.
+     */
+    private Query project(final Query query, final Set<String> fields) {
+        if (!fields.isEmpty()) {
+            query.fields().include(fields.toArray(String[]::new));
+        }
+        return query;
+    }
+
+    /**
+     * Atomically {@code $set}s every non-null field of {@code changes} on the document with
+     * {@code id}, bumps its version and returns the post-image, in a single round trip. Null
+     * fields are left untouched, mirroring the mapper's {@code NullValuePropertyMappingStrategy.IGNORE}.
+     * When {@code expectedVersion} is given the write only applies to that version; an empty
+     * result then means either a missing document or a version conflict. Without any non-null
+     * field the current document is returned as is, version included.
+     */
+    @Override
+    public Mono<User> findAndModify(final String id, final User changes, final Long expectedVersion) {
+        final Document fields = toDocument(changes);
+        fields.remove("_id");
+        fields.remove(VERSION);
+        // the converter always adds the type key; setting it is not a change
+        fields.keySet().removeIf(mongoTemplate.getConverter().getTypeMapper()::isTypeKey);
+        if (fields.isEmpty()) {
+            return findById(id)
+                    .filter(user -> UserRepository.versionMatches(expectedVersion, user.getVersion()));
+        }
+        final Update update = new Update();
+        fields.forEach(update::set);
+        update.inc(VERSION, 1);
+        return mongoTemplate.findAndModify(
+                byIdAndVersion(id, expectedVersion),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                User.class);
+    }
+
+    /**
+     * Removes the document with {@code id}, restricted to {@code expectedVersion} when given.
+     */
+    @Override
+    public Mono<User> findAndRemove(final String id, final Long expectedVersion) {
+        return mongoTemplate.findAndRemove(byIdAndVersion(id, expectedVersion), User.class);
+    }
+
+    /**
+     * Tails the users change stream, starting now or right after {@code resumeAfter}. Updates are
+     * looked up so consumers receive the full current document instead of a diff. Only document
+     * mutations are emitted; the stream ends if the collection is dropped or renamed. A token the
+     * server rejects, malformed or no longer in the oplog, fails with
+     * {@link InvalidPageTokenException}, as it does on the in-memory engine.
+     */
+    @Override
+    public Flux<UserChange> watch(final BsonDocument resumeAfter) {
+        final ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP)
+                .filter(Aggregation.newAggregation(Aggregation.match(
+                        Criteria.where("operationType").in("insert", "update", "replace", "delete"))));
+        if (resumeAfter != null) {
+            options.resumeAfter(resumeAfter);
+        }
+        return mongoTemplate.changeStream(mongoTemplate.getCollectionName(User.class), options.build(), User.class)
+                .mapNotNull(this::toChange)
+                .onErrorMap(ex -> resumeAfter != null && isResumeTokenError(ex),
+                        ex -> new InvalidPageTokenException(
+                                "Invalid or expired resume token: " + ResumeToken.encode(resumeAfter)));
+    }
+
+    private static boolean isResumeTokenError(final Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoServerException server && RESUME_TOKEN_ERRORS.contains(server.getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private UserChange toChange(final ChangeStreamEvent<User> event) {
+        final ChangeStreamDocument<Document> raw = event.getRaw();
+        if (raw == null || raw.getDocumentKey() == null || event.getResumeToken() == null) {
+            return null;
+        }
+        final UserChange.Operation operation = switch (raw.getOperationType()) {
+            case INSERT -> UserChange.Operation.CREATED;
+            case UPDATE, REPLACE -> UserChange.Operation.UPDATED;
+            case DELETE -> UserChange.Operation.DELETED;
+            default -> null;
+        };
+        if (operation == null) {
+            return null;
+        }
+        final BsonValue id = raw.getDocumentKey().get("_id");
+        return new UserChange(
+                ResumeToken.encode(event.getResumeToken()),
+                operation,
+                id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue(),
+                operation == UserChange.Operation.DELETED ? null : event.getBody());
+    }
+
+    /**
+     * Version 0 also matches documents written before versioning, which have no version field.
+     */
+    private Query byIdAndVersion(final String id, final Long expectedVersion) {
+        final Query query = new Query(Criteria.where("id").is(id));
+        if (expectedVersion != null && expectedVersion == 0L) {
+            query.addCriteria(Criteria.where(VERSION).in(0L, null));
+        } else if (expectedVersion != null) {
+            query.addCriteria(Criteria.where(VERSION).is(expectedVersion));
+        }
+        return query;
+    }
+}
@@ -0,0 +1,18 @@
+package com.springreactive.webfluxcourse.respository;
+
+import com.springreactive.webfluxcourse.entity.User;
+
+/**
+ * One mutation read from the users change stream. {@code user} is the document as of the change
+ * for creations, the current document for updates (null if it was deleted since) and always null
+ * for deletions.
+ */
+public record UserChange(
+        String resumeToken,
+        Operation operation,
+        String id,
+        User user
+) {
+
+    public enum Operation { CREATED, UPDATED, DELETED }
+}
@@ -1,35 +1,85 @@
 package com.springreactive.webfluxcourse.respository;
 
 import com.springreactive.webfluxcourse.entity.User;
-import lombok.RequiredArgsConstructor;
-import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
-import org.springframework.data.mongodb.core.query.Criteria;
-import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.stereotype.Repository;
+import com.springreactive.webfluxcourse.utils.SearchCursor;
+import com.springreactive.webfluxcourse.utils.SearchField;
+import org.bson.BsonDocument;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-@Repository
-@RequiredArgsConstructor
-public class UserRepository {
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
-    private final ReactiveMongoTemplate mongoTemplate;
+/**
+ * Storage engine for users, selected with {@code users.store.engine}: {@link MongoUserRepository}
+ * by default, or the embedded {@link InMemoryUserRepository}. Every engine enforces unique emails,
+ * raising {@link org.springframework.dao.DuplicateKeyException}, and keeps {@code version}
+ * semantics: it starts at 0 and every write bumps it. Users stored before versioning have no
+ * version, which reads as 0, and an expected version of 0 matches them.
+ * <p>
+ * Methods taking {@code fields} restrict the returned users to those properties plus the id;
+ * an empty set keeps every property.
+ */
+public interface UserRepository {
 
-    public Mono<User> save(final User user) {
-        return mongoTemplate.save(user);
+    /**
+     * Whether a user stored with {@code actual} satisfies an {@code expectedVersion} precondition;
+     * null expects nothing.
+     */
+    static boolean versionMatches(final Long expectedVersion, final Long actual) {
+        return expectedVersion == null || expectedVersion.equals(actual == null ? 0L : actual);
     }
 
-    public Mono<User> findById(final String id) {
-        return mongoTemplate.findById(id, User.class);
-    }
+    Mono<User> save(User user);
 
-    public Flux<User> findAll() {
-        return mongoTemplate.findAll(User.class);
-    }
+    /**
+     * Inserts every user independently; failures are reported by their position in {@code users}
+     * instead of aborting the batch.
+     */
+    Mono<List<BulkWriteFailure>> insertAll(List<User> users);
 
-    public Mono<User> findAndRemove(String id) {
-        Query query = new Query();
-        Criteria where = Criteria.where("id").is(id);
-        return mongoTemplate.findAndRemove(query.addCriteria(where), User.class);
-    }
+    Mono<User> findById(String id);
+
+    /**
+     * Missing ids are absent from the result, which is in no particular order.
+     */
+    Flux<User> findAllById(Collection<String> ids);
+
+    Mono<User> findByEmail(String email);
+
+    Mono<Boolean> existsByEmail(String email);
+
+    Flux<String> findAllEmails(int cursorBatchSize);
+
+    Flux<User> findAll(int cursorBatchSize, Set<String> fields);
+
+    /**
+     * Up to {@code limit} users ordered by id, starting right after {@code afterId} when given.
+     */
+    Flux<User> findPage(String afterId, int limit, Set<String> fields);
+
+    /**
+     * Users whose {@code field} starts with {@code prefix} (case-insensitively for
+     * {@link SearchField#isCaseInsensitive()} fields), ordered by that field and then by id,
+     * resuming right after {@code after} when given. The field is always returned.
+     */
+    Flux<User> search(SearchField field, String prefix, SearchCursor after, int limit, Set<String> fields);
+
+    /**
+     * Atomically applies every non-null field of {@code changes}, bumps the version and returns
+     * the updated user. With a non-null {@code expectedVersion} the write only applies to that
+     * version; an empty result then means either a missing user or a version conflict.
+     */
+    Mono<User> findAndModify(String id, User changes, Long expectedVersion);
+
+    /**
+     * Removes and returns the user with {@code id}, restricted to {@code expectedVersion} when given.
+     */
+    Mono<User> findAndRemove(String id, Long expectedVersion);
+
+    /**
+     * Every creation, update and deletion from now on, or from right after {@code resumeAfter}.
+     */
+    Flux<UserChange> watch(BsonDocument resumeAfter);
 }
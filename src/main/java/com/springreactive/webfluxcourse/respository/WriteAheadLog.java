@@ -0,0 +1,267 @@
+package com.springreactive.webfluxcourse.respository;
+
+import com.springreactive.webfluxcourse.entity.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of user mutations for {@link WriteBehindUserRepository}, made of fixed-size
+ * memory-mapped segment files. Each entry is {@code [length][crc32][sequence][operation][payload]},
+ * where the payload is the {@link UserRecordCodec} record of the user, or its id for deletions.
+ * A zero length marks the end of a segment's data, and an entry whose checksum does not match
+ * (a write torn by a crash) ends the log.
+ * <p>
+ * Appends only copy into the mapped segment; {@link #sync()} makes them durable. Concurrent
+ * syncs are grouped: one {@code force} covers every entry appended before it started, so callers
+ * arriving while it runs usually find their entries already durable.
+ */
+final class WriteAheadLog implements Closeable {
+
+    private static final int HEADER = Integer.BYTES * 2;
+    private static final int ENTRY_PREFIX = Long.BYTES + 1;
+    private static final String SUFFIX = ".log";
+    private static final UserChange.Operation[] OPERATIONS = UserChange.Operation.values();
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Deque<Segment> sealed = new ArrayDeque<>();
+    private final Object syncLock = new Object();
+    private volatile Segment active;
+    private volatile long appended;
+    private volatile long durable;
+
+    private WriteAheadLog(final Path directory, final int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the log in {@code directory}, passing every entry it already holds to {@code replay}
+     * in order.
+     */
+    static WriteAheadLog open(final Path directory, final int segmentSize, final Consumer<Entry> replay) {
+        final WriteAheadLog log = new WriteAheadLog(directory, segmentSize);
+        try {
+            Files.createDirectories(directory);
+            final List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+            }
+            for (Path file : files) {
+                final Segment segment = Segment.map(file, segmentSize);
+                log.recover(segment, replay);
+                if (log.active != null) {
+                    log.sealed.addLast(log.active);
+                }
+                log.active = segment;
+            }
+            if (log.active == null) {
+                log.active = Segment.create(log.segmentPath(1), 1, segmentSize);
+                log.active.firstSequence = 1;
+            }
+            log.durable = log.appended;
+            return log;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not open the write-behind log in " + directory, ex);
+        }
+    }
+
+    /**
+     * Appends one entry and returns its sequence number. Callers serialize appends.
+     */
+    synchronized long append(final UserChange.Operation operation, final String id, final User user) {
+        final byte[] payload = operation == UserChange.Operation.DELETED
+                ? id.getBytes(StandardCharsets.UTF_8)
+                : UserRecordCodec.encode(user);
+        final int length = ENTRY_PREFIX + payload.length;
+        if (HEADER + length > segmentSize) {
+            throw new IllegalArgumentException("Log entry of " + length + " bytes does not fit in a segment");
+        }
+        if (active.buffer.remaining() < HEADER + length) {
+            roll();
+        }
+        final long sequence = appended + 1;
+        final byte[] body = new byte[length];
+        for (int i = 0, shift = 56; shift >= 0; i++, shift -= 8) {
+            body[i] = (byte) (sequence >>> shift);
+        }
+        body[Long.BYTES] = (byte) operation.ordinal();
+        System.arraycopy(payload, 0, body, ENTRY_PREFIX, payload.length);
+        active.buffer.putInt(length).putInt(checksum(body)).put(body);
+        active.lastSequence = sequence;
+        appended = sequence;
+        return sequence;
+    }
+
+    /**
+     * Blocks until every entry appended so far is on disk.
+     */
+    void sync() {
+        if (durable >= appended) {
+            return;
+        }
+        synchronized (syncLock) {
+            final long target = appended;
+            if (durable >= target) {
+                return;
+            }
+            active.buffer.force();
+            durable = target;
+        }
+    }
+
+    long lastSequence() {
+        return appended;
+    }
+
+    /**
+     * First sequence number that can still be in the active segment; everything before it is
+     * in sealed segments.
+     */
+    synchronized long activeFirstSequence() {
+        return active.firstSequence;
+    }
+
+    synchronized int sealedSegments() {
+        return sealed.size();
+    }
+
+    /**
+     * Deletes the sealed segments holding only entries before {@code sequence}.
+     */
+    synchronized void truncateBefore(final long sequence) {
+        while (!sealed.isEmpty() && sealed.peekFirst().lastSequence < sequence) {
+            final Segment segment = sealed.removeFirst();
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not delete log segment " + segment.path, ex);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        sync();
+    }
+
+    private void roll() {
+        active.buffer.force();
+        sealed.addLast(active);
+        final long index = active.index + 1;
+        try {
+            active = Segment.create(segmentPath(index), index, segmentSize);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not create log segment " + index, ex);
+        }
+        active.firstSequence = appended + 1;
+    }
+
+    private void recover(final Segment segment, final Consumer<Entry> replay) {
+        final MappedByteBuffer buffer = segment.buffer;
+        segment.firstSequence = appended + 1;
+        while (buffer.remaining() >= HEADER) {
+            final int start = buffer.position();
+            final int length = buffer.getInt();
+            final int crc = buffer.getInt();
+            if (length < ENTRY_PREFIX || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            final byte[] body = new byte[length];
+            buffer.get(body);
+            final long sequence = readLong(body);
+            if (crc != checksum(body) || sequence <= appended
+                    || body[Long.BYTES] < 0 || body[Long.BYTES] >= OPERATIONS.length) {
+                buffer.position(start);
+                break;
+            }
+            final UserChange.Operation operation = OPERATIONS[body[Long.BYTES]];
+            final byte[] payload = new byte[length - ENTRY_PREFIX];
+            System.arraycopy(body, ENTRY_PREFIX, payload, 0, payload.length);
+            if (operation == UserChange.Operation.DELETED) {
+                replay.accept(new Entry(sequence, operation, new String(payload, StandardCharsets.UTF_8), null));
+            } else {
+                final User user = UserRecordCodec.decode(payload);
+                replay.accept(new Entry(sequence, operation, user.getId(), user));
+            }
+            segment.lastSequence = sequence;
+            appended = sequence;
+        }
+        // clears a torn tail so that shorter entries written over it cannot be followed by its leftovers
+        final int end = buffer.position();
+        for (int i = end; i < buffer.limit(); i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        buffer.position(end);
+    }
+
+    private Path segmentPath(final long index) {
+        return directory.resolve(String.format("users-%012d%s", index, SUFFIX));
+    }
+
+    private static long readLong(final byte[] bytes) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static int checksum(final byte[] body) {
+        final CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    record Entry(long sequence, UserChange.Operation operation, String id, User user) {
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final long index;
+        private final MappedByteBuffer buffer;
+        private long firstSequence;
+        private long lastSequence;
+
+        private Segment(final Path path, final long index, final MappedByteBuffer buffer) {
+            this.path = path;
+            this.index = index;
+            this.buffer = buffer;
+        }
+
+        static Segment create(final Path path, final long index, final int size) throws IOException {
+            return new Segment(path, index, mapBuffer(path, size));
+        }
+
+        static Segment map(final Path path, final int size) throws IOException {
+            final String name = path.getFileName().toString();
+            final long index = Long.parseLong(name.substring("users-".length(), name.length() - SUFFIX.length()));
+            return new Segment(path, index, mapBuffer(path, size));
+        }
+
+        private static MappedByteBuffer mapBuffer(final Path path, final int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+            }
+        }
+    }
+}
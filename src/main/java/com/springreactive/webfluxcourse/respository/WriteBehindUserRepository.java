@@ -0,0 +1,292 @@
+package com.springreactive.webfluxcourse.respository;
+
+import com.springreactive.webfluxcourse.config.WriteBehindProperties;
+import com.springreactive.webfluxcourse.entity.User;
+import com.springreactive.webfluxcourse.utils.SearchCursor;
+import com.springreactive.webfluxcourse.utils.SearchField;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind engine: serves everything from an {@link InMemoryUserRepository} replica and
+ * acknowledges a write once it is in the local {@link WriteAheadLog} and synced to disk, then
+ * copies it to Mongo in the background.
+ * <p>
+ * On start the replica is loaded from Mongo and the log is replayed over it, so writes that were
+ * acknowledged but not yet copied survive a crash. Every mutated id is tracked with the sequence
+ * of its latest log entry; each flush writes the current state of up to {@code batchSize} of
+ * them in one unordered bulk write, so repeated updates of a user cost one Mongo write. Ids whose
+ * write fails stay pending and are retried on the next flush. Log segments are deleted once
+ * everything they hold has reached Mongo, and pending entries stuck in old segments are
+ * rewritten into the active one when too many segments pile up.
+ * <p>
+ * The replica is the source of truth for reads and unique emails, so only one instance may write
+ * to the collection; changes made to Mongo by anything else are not seen until restart.
+ */
+@Slf4j
+public class WriteBehindUserRepository implements UserRepository, SmartLifecycle {
+
+    public static final String PENDING_METRIC = "users.write_behind.pending";
+
+    private final InMemoryUserRepository local;
+    private final MongoUserRepository remote;
+    private final WriteBehindProperties properties;
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private volatile WriteAheadLog writeAheadLog;
+    private volatile Disposable flusher;
+
+    public WriteBehindUserRepository(final MongoUserRepository remote, final WriteBehindProperties properties,
+                                     final int changeHistory, final MeterRegistry registry) {
+        this.remote = remote;
+        this.properties = properties;
+        this.local = new InMemoryUserRepository(changeHistory, this::journal);
+        Gauge.builder(PENDING_METRIC, pending, Map::size).register(registry);
+    }
+
+    @Override
+    public Mono<User> save(final User user) {
+        return local.save(user).flatMap(this::durable);
+    }
+
+    @Override
+    public Mono<List<BulkWriteFailure>> insertAll(final List<User> users) {
+        return local.insertAll(users).flatMap(this::durable);
+    }
+
+    @Override
+    public Mono<User> findById(final String id) {
+        return local.findById(id);
+    }
+
+    @Override
+    public Flux<User> findAllById(final Collection<String> ids) {
+        return local.findAllById(ids);
+    }
+
+    @Override
+    public Mono<User> findByEmail(final String email) {
+        return local.findByEmail(email);
+    }
+
+    @Override
+    public Mono<Boolean> existsByEmail(final String email) {
+        return local.existsByEmail(email);
+    }
+
+    @Override
+    public Flux<String> findAllEmails(final int cursorBatchSize) {
+        return local.findAllEmails(cursorBatchSize);
+    }
+
+    @Override
+    public Flux<User> findAll(final int cursorBatchSize, final Set<String> fields) {
+        return local.findAll(cursorBatchSize, fields);
+    }
+
+    @Override
+    public Flux<User> findPage(final String afterId, final int limit, final Set<String> fields) {
+        return local.findPage(afterId, limit, fields);
+    }
+
+    @Override
+    public Flux<User> search(final SearchField field, final String prefix, final SearchCursor after,
+                             final int limit, final Set<String> fields) {
+        return local.search(field, prefix, after, limit, fields);
+    }
+
+    @Override
+    public Mono<User> findAndModify(final String id, final User changes, final Long expectedVersion) {
+        return local.findAndModify(id, changes, expectedVersion).flatMap(this::durable);
+    }
+
+    @Override
+    public Mono<User> findAndRemove(final String id, final Long expectedVersion) {
+        return local.findAndRemove(id, expectedVersion).flatMap(this::durable);
+    }
+
+    /**
+     * Changes of the local replica, with its resume tokens; they are not interchangeable with
+     * Mongo's.
+     */
+    @Override
+    public Flux<UserChange> watch(final BsonDocument resumeAfter) {
+        return local.watch(resumeAfter);
+    }
+
+    public int pending() {
+        return pending.size();
+    }
+
+    /**
+     * Loads the replica from Mongo, replays the log over it and starts flushing.
+     */
+    @Override
+    public void start() {
+        remote.findAll(properties.batchSize(), Set.of()).doOnNext(local::restore).then().block();
+        final Path directory = Path.of(properties.directory());
+        writeAheadLog = WriteAheadLog.open(directory, (int) properties.segmentSize().toBytes(), entry -> {
+            if (entry.operation() == UserChange.Operation.DELETED) {
+                local.evict(entry.id());
+            } else {
+                local.restore(entry.user());
+            }
+            pending.put(entry.id(), entry.sequence());
+        });
+        if (!pending.isEmpty()) {
+            log.info("Replayed {} pending users from the write-behind log", pending.size());
+        }
+        flusher = Flux.interval(properties.flushInterval(), Schedulers.boundedElastic())
+                .onBackpressureDrop()
+                .concatMap(tick -> flush()
+                        .onErrorResume(ex -> {
+                            log.warn("Write-behind flush failed, {} users still pending", pending.size(), ex);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    /**
+     * Stops flushing and makes a last attempt to copy everything pending to Mongo; whatever is
+     * left is still in the log for the next start.
+     */
+    @Override
+    public void stop() {
+        flusher.dispose();
+        flusher = null;
+        try {
+            flush().block();
+        } catch (RuntimeException ex) {
+            log.warn("Final write-behind flush failed, {} users left in the log", pending.size(), ex);
+        }
+        writeAheadLog.close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return flusher != null;
+    }
+
+    /**
+     * Before the web server, so no request is served from an empty replica, and stopped after it.
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * Writes pending users to Mongo until fewer than a batch remain or a batch makes no progress,
+     * then reclaims log segments.
+     */
+    Mono<Void> flush() {
+        return writeBatch()
+                .expand(written -> written > 0 && pending.size() >= properties.batchSize()
+                        ? writeBatch()
+                        : Mono.empty())
+                .then(Mono.fromRunnable(this::reclaim).subscribeOn(Schedulers.boundedElastic()))
+                .then();
+    }
+
+    private Mono<Integer> writeBatch() {
+        return Mono.defer(() -> {
+            final List<Map.Entry<String, Long>> upserted = new ArrayList<>();
+            final List<Map.Entry<String, Long>> deleted = new ArrayList<>();
+            final List<User> users = new ArrayList<>();
+            // a write journals its sequence before applying the record, so both are read under
+            // the write lock to pair each sequence with the state it produced
+            local.locked(() -> {
+                for (Map.Entry<String, Long> entry : pending.entrySet()) {
+                    if (upserted.size() + deleted.size() == properties.batchSize()) {
+                        break;
+                    }
+                    final Map.Entry<String, Long> snapshot = Map.entry(entry.getKey(), entry.getValue());
+                    final User current = local.current(snapshot.getKey());
+                    if (current == null) {
+                        deleted.add(snapshot);
+                    } else {
+                        upserted.add(snapshot);
+                        users.add(current);
+                    }
+                }
+                return null;
+            });
+            if (users.isEmpty() && deleted.isEmpty()) {
+                return Mono.just(0);
+            }
+            return remote.writeAll(users, deleted.stream().map(Map.Entry::getKey).toList())
+                    .map(failures -> {
+                        final Set<Integer> failed = new HashSet<>();
+                        failures.forEach(failure -> failed.add(failure.index()));
+                        for (int index = 0; index < upserted.size() + deleted.size(); index++) {
+                            if (!failed.contains(index)) {
+                                final Map.Entry<String, Long> written = index < upserted.size()
+                                        ? upserted.get(index)
+                                        : deleted.get(index - upserted.size());
+                                pending.remove(written.getKey(), written.getValue());
+                            }
+                        }
+                        if (!failures.isEmpty()) {
+                            log.warn("{} users could not be written to Mongo and stay pending, first: {}",
+                                    failures.size(), failures.get(0).message());
+                        }
+                        return upserted.size() + deleted.size() - failures.size();
+                    });
+        });
+    }
+
+    /**
+     * Rewrites pending entries out of the sealed segments when there are too many of them, then
+     * deletes every sealed segment older than the oldest pending entry.
+     */
+    private void reclaim() {
+        if (writeAheadLog.sealedSegments() > properties.maxSealedSegments()) {
+            local.locked(() -> {
+                final long activeFirst = writeAheadLog.activeFirstSequence();
+                pending.forEach((id, sequence) -> {
+                    if (sequence < activeFirst) {
+                        final User current = local.current(id);
+                        pending.put(id, writeAheadLog.append(current == null
+                                ? UserChange.Operation.DELETED
+                                : UserChange.Operation.UPDATED, id, current));
+                    }
+                });
+                return null;
+            });
+            writeAheadLog.sync();
+        }
+        // read first: anything appended afterwards has a higher sequence
+        final long last = writeAheadLog.lastSequence();
+        final long oldest = pending.values().stream().mapToLong(Long::longValue).min().orElse(last + 1);
+        writeAheadLog.truncateBefore(Math.min(oldest, last + 1));
+    }
+
+    private void journal(final UserChange.Operation operation, final String id, final User user) {
+        final WriteAheadLog current = writeAheadLog;
+        if (current == null) {
+            throw new IllegalStateException("The write-behind log is not open");
+        }
+        pending.put(id, current.append(operation, id, user));
+    }
+
+    private <T> Mono<T> durable(final T result) {
+        return Mono.fromRunnable(writeAheadLog::sync)
+                .subscribeOn(Schedulers.boundedElastic())
+                .thenReturn(result);
+    }
+}
@@ -0,0 +1,59 @@
+package com.springreactive.webfluxcourse.service;
+
+import com.springreactive.webfluxcourse.config.HashingProperties;
+import com.springreactive.webfluxcourse.service.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+import reactor.core.observability.micrometer.Micrometer;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+
+@Component
+public class BCryptPasswordHasher implements PasswordHasher, DisposableBean {
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[abxy]?\\$\\d\\d\\$[./0-9A-Za-z]{53}$");
+
+    private final BCryptPasswordEncoder encoder;
+    private final Scheduler scheduler;
+
+    public BCryptPasswordHasher(final HashingProperties properties, final MeterRegistry meterRegistry) {
+        this.encoder = new BCryptPasswordEncoder(properties.workFactor());
+        final Scheduler hashing = Schedulers.newBoundedElastic(
+                properties.resolveThreads(), properties.queueCapacity(), "password-hasher");
+        this.scheduler = Micrometer.timedScheduler(hashing, meterRegistry, "users.hashing.scheduler");
+    }
+
+    @Override
+    public Mono<String> hash(final String rawPassword) {
+        return offload(() -> encoder.encode(rawPassword));
+    }
+
+    @Override
+    public Mono<Boolean> matches(final String rawPassword, final String hashedPassword) {
+        return offload(() -> encoder.matches(rawPassword, hashedPassword));
+    }
+
+    @Override
+    public boolean isHashed(final String storedPassword) {
+        return storedPassword != null && BCRYPT_HASH.matcher(storedPassword).matches();
+    }
+
+    private <T> Mono<T> offload(final Callable<T> task) {
+        return Mono.fromCallable(task)
+                .subscribeOn(scheduler)
+                .onErrorMap(RejectedExecutionException.class,
+                        ex -> new ServiceUnavailableException("Password hashing capacity exceeded, try again later"));
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+}
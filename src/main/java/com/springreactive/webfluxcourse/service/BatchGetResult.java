@@ -0,0 +1,16 @@
+package com.springreactive.webfluxcourse.service;
+
+import com.springreactive.webfluxcourse.entity.User;
+
+/**
+ * One requested id of a batch read; {@code user} is null when the id does not exist.
+ */
+public record BatchGetResult(
+        String id,
+        User user
+) {
+
+    public boolean found() {
+        return user != null;
+    }
+}
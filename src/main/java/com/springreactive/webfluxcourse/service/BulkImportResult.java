@@ -0,0 +1,33 @@
+package com.springreactive.webfluxcourse.service;
+
+import com.springreactive.webfluxcourse.model.request.UserRequest;
+import jakarta.validation.ConstraintViolation;
+
+import java.util.Set;
+
+public record BulkImportResult(
+        long index,
+        Status status,
+        String id,
+        Set<ConstraintViolation<UserRequest>> violations,
+        String message
+) {
+
+    public enum Status { CREATED, INVALID, DUPLICATED, FAILED }
+
+    public static BulkImportResult created(final long index, final String id) {
+        return new BulkImportResult(index, Status.CREATED, id, Set.of(), null);
+    }
+
+    public static BulkImportResult invalid(final long index, final Set<ConstraintViolation<UserRequest>> violations) {
+        return new BulkImportResult(index, Status.INVALID, null, violations, null);
+    }
+
+    public static BulkImportResult duplicated(final long index, final String message) {
+        return new BulkImportResult(index, Status.DUPLICATED, null, Set.of(), message);
+    }
+
+    public static BulkImportResult failed(final long index, final String message) {
+        return new BulkImportResult(index, Status.FAILED, null, Set.of(), message);
+    }
+}
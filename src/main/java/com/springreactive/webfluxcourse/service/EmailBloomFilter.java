@@ -0,0 +1,166 @@
+package com.springreactive.webfluxcourse.service;
+
+import com.springreactive.webfluxcourse.config.EmailFilterProperties;
+import com.springreactive.webfluxcourse.config.StreamingProperties;
+import com.springreactive.webfluxcourse.respository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bloom filter over every registered email, rebuilt from the unique email index once the
+ * application is ready and then kept up to date by this instance's own writes. Emails registered
+ * through other instances sharing the collection are only seen at the next rebuild, so a negative
+ * answer is definitive for this instance's writes but may be stale for the rest. It is therefore
+ * only used to let signups with a new email skip the existence query, where the unique index
+ * still rejects a duplicate the filter missed; lookups by email never trust it. A positive answer
+ * only means "maybe" and is confirmed against the index.
+ * <p>
+ * Until the first rebuild completes, and when disabled, every email is reported as possibly
+ * present. Bits are set with CAS, so {@link #put} and {@link #mightContain} never block.
+ */
+@Slf4j
+@Component
+public class EmailBloomFilter {
+
+    public static final String METRIC = "users.email.filter";
+
+    private final UserRepository repository;
+    private final int cursorBatchSize;
+    private final boolean enabled;
+    private final long bitCount;
+    private final int hashFunctions;
+    private final AtomicReference<AtomicLongArray> bits;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile AtomicLongArray pending;
+    private volatile boolean ready;
+    private final Counter absent;
+    private final Counter maybePresent;
+
+    public EmailBloomFilter(final UserRepository repository, final EmailFilterProperties properties,
+                            final StreamingProperties streaming, final MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.cursorBatchSize = streaming.cursorBatchSize();
+        this.enabled = properties.enabled();
+        final double n = Math.max(1, properties.expectedInsertions());
+        final double ln2 = Math.log(2);
+        this.bitCount = Math.max(Long.SIZE, (long) Math.ceil(-n * Math.log(properties.falsePositiveRate()) / (ln2 * ln2)));
+        this.hashFunctions = Math.max(1, (int) Math.round(bitCount / n * ln2));
+        this.bits = new AtomicReference<>(enabled ? newBits() : new AtomicLongArray(0));
+        this.absent = meterRegistry.counter(METRIC, "result", "absent");
+        this.maybePresent = meterRegistry.counter(METRIC, "result", "maybe_present");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild().onErrorComplete().subscribe();
+    }
+
+    /**
+     * Scans the email index into a fresh bit set and swaps it in. Emails registered while the
+     * scan runs are written to both sets, so none are lost. Concurrent calls are ignored.
+     */
+    public Mono<Long> rebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+                    final AtomicLongArray next = newBits();
+                    pending = next;
+                    return repository.findAllEmails(cursorBatchSize)
+                            .doOnNext(email -> set(next, email))
+                            .count()
+                            .doOnNext(count -> {
+                                bits.set(next);
+                                ready = true;
+                                log.info("Email filter rebuilt from {} registered emails", count);
+                            });
+                })
+                .doOnError(ex -> log.warn("Could not rebuild the email filter, every email is checked against Mongo", ex))
+                .doFinally(signal -> {
+                    pending = null;
+                    rebuilding.set(false);
+                });
+    }
+
+    public boolean mightContain(final String email) {
+        if (!enabled || !ready) {
+            return true;
+        }
+        final boolean result = test(bits.get(), email);
+        (result ? maybePresent : absent).increment();
+        return result;
+    }
+
+    public void put(final String email) {
+        if (!enabled || email == null) {
+            return;
+        }
+        set(bits.get(), email);
+        final AtomicLongArray next = pending;
+        if (next != null) {
+            set(next, email);
+        }
+    }
+
+    private AtomicLongArray newBits() {
+        return new AtomicLongArray(Math.toIntExact((bitCount + Long.SIZE - 1) / Long.SIZE));
+    }
+
+    private void set(final AtomicLongArray target, final String email) {
+        final long hash = hash(email);
+        final long h1 = mix(hash);
+        final long h2 = mix(hash ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashFunctions; i++) {
+            final long bit = Math.floorMod(h1 + i * h2, bitCount);
+            final long mask = 1L << bit;
+            final int word = (int) (bit >>> 6);
+            if ((target.get(word) & mask) == 0) {
+                target.getAndAccumulate(word, mask, (current, add) -> current | add);
+            }
+        }
+    }
+
+    private boolean test(final AtomicLongArray target, final String email) {
+        final long hash = hash(email);
+        final long h1 = mix(hash);
+        final long h2 = mix(hash ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashFunctions; i++) {
+            final long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((target.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes.
+     */
+    private static long hash(final String email) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : email.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * SplitMix64 finalizer, spreads FNV's weak low bits before they are reduced modulo the bit count.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,22 @@
+package com.springreactive.webfluxcourse.service;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Password hashing kept off the event loop. Implementations run the hash function on their
+ * own bounded scheduler and fail with
+ * {@link com.springreactive.webfluxcourse.service.exception.ServiceUnavailableException}
+ * when that scheduler is saturated.
+ */
+public interface PasswordHasher {
+
+    Mono<String> hash(String rawPassword);
+
+    Mono<Boolean> matches(String rawPassword, String hashedPassword);
+
+    /**
+     * Whether {@code storedPassword} is a hash this hasher produced, as opposed to a plaintext
+     * password stored before passwords were hashed. Cheap enough to run on the event loop.
+     */
+    boolean isHashed(String storedPassword);
+}
@@ -1,43 +1,337 @@
 package com.springreactive.webfluxcourse.service;
 
+import com.springreactive.webfluxcourse.config.BatchGetProperties;
+import com.springreactive.webfluxcourse.config.BulkProperties;
+import com.springreactive.webfluxcourse.config.PaginationProperties;
+import com.springreactive.webfluxcourse.config.StreamingProperties;
 import com.springreactive.webfluxcourse.entity.User;
 import com.springreactive.webfluxcourse.mapper.UserMapper;
 import com.springreactive.webfluxcourse.model.request.UserRequest;
+import com.springreactive.webfluxcourse.model.response.PageResponse;
+import com.springreactive.webfluxcourse.respository.BulkWriteFailure;
+import com.springreactive.webfluxcourse.respository.UserChange;
 import com.springreactive.webfluxcourse.respository.UserRepository;
+import com.springreactive.webfluxcourse.service.cache.SingleFlight;
+import com.springreactive.webfluxcourse.service.cache.UserCache;
+import com.springreactive.webfluxcourse.service.exception.EmailAlreadyRegisteredException;
+import com.springreactive.webfluxcourse.service.exception.InvalidBatchRequestException;
+import com.springreactive.webfluxcourse.service.exception.InvalidSearchException;
 import com.springreactive.webfluxcourse.service.exception.ObjectNotFoundException;
+import com.springreactive.webfluxcourse.service.exception.PreconditionFailedException;
+import com.springreactive.webfluxcourse.utils.FieldSelection;
+import com.springreactive.webfluxcourse.utils.PageToken;
+import com.springreactive.webfluxcourse.utils.ResumeToken;
+import com.springreactive.webfluxcourse.utils.SearchCursor;
+import com.springreactive.webfluxcourse.utils.SearchField;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
+    private static final int MAX_SEARCH_QUERY_LENGTH = 100;
+
     private final UserRepository repository;
     private final UserMapper mapper;
+    private final PaginationProperties pagination;
+    private final StreamingProperties streaming;
+    private final BulkProperties bulk;
+    private final BatchGetProperties batchGet;
+    private final Validator validator;
+    private final PasswordHasher passwordHasher;
+    private final UserCache userCache;
+    private final EmailBloomFilter emailFilter;
+    private final SingleFlight<String, List<User>> firstPages;
 
+    /**
+     * Rejects known emails before paying for bcrypt. The unique index still guards races between
+     * concurrent signups and emails the email filter has not seen yet, surfacing as
+     * {@code DuplicateKeyException}.
+     */
     public Mono<User> save(final UserRequest request) {
-        return repository.save(mapper.toEntity(request));
+        return ensureEmailAvailable(request.email())
+                .then(Mono.defer(() -> withHashedPassword(mapper.toEntity(request), request.password())))
+                .flatMap(repository::save)
+                .doOnNext(user -> emailFilter.put(user.getEmail()));
+    }
+
+    public Flux<BulkImportResult> saveAll(final Flux<UserRequest> requests) {
+        return requests.index()
+                .flatMapSequential(item -> toBulkItem(item.getT1(), item.getT2()), Schedulers.DEFAULT_POOL_SIZE)
+                .bufferTimeout(bulk.batchSize(), bulk.maxWait(), true)
+                .flatMapSequential(this::insertBatch, bulk.concurrency(), 1);
     }
 
     public Mono<User> findById(final String id) {
-        return handleNotFound(repository.findById(id), id);
+        return handleNotFound(userCache.findById(id), id);
+    }
+
+    /**
+     * Resolves {@code ids} in one round trip through the user cache and answers every requested
+     * id, in request order and including duplicates, with a not-found result instead of an error
+     * for ids that do not exist.
+     */
+    public Flux<BatchGetResult> findAllById(final List<String> ids) {
+        return Mono.defer(() -> userCache.findAllById(validBatchIds(ids)))
+                .flatMapIterable(users -> ids.stream()
+                        .map(id -> new BatchGetResult(id, users.get(id)))
+                        .toList());
     }
 
-    public Flux<User> findAll() {
-        return repository.findAll();
+    /**
+     * Always resolved through the user cache and Mongo: the email filter is not consulted, since
+     * it misses emails registered on other instances since its last rebuild.
+     */
+    public Mono<User> findByEmail(final String email) {
+        return userCache.findByEmail(email)
+                .switchIfEmpty(Mono.error(() -> new ObjectNotFoundException(
+                String.format("Object not found. Email: %s, Type %s", email, User.class.getSimpleName()))));
     }
 
-    public Mono<User> update(final String id, final UserRequest userRequest) {
+    public Flux<User> findAll(final FieldSelection fields) {
+        final int batchSize = streaming.cursorBatchSize();
+        return repository.findAll(batchSize, fields.fields()).limitRate(batchSize);
+    }
+
+    public Mono<PageResponse<User>> findPage(final String pageToken, final Integer limit, final FieldSelection fields) {
+        final int pageSize = pagination.resolveLimit(limit);
+        return Mono.defer(() -> {
+                    final String afterId = PageToken.decode(pageToken);
+                    if (afterId == null) {
+                        return firstPages.execute(firstPageKey(pageSize, fields),
+                                () -> repository.findPage(null, pageSize + 1, fields.fields()).collectList());
+                    }
+                    return repository.findPage(afterId, pageSize + 1, fields.fields()).collectList();
+                })
+                .map(users -> toPage(users, pageSize));
+    }
+
+    /**
+     * Prefix search through the field's index, paged with a {@link SearchCursor} on
+     * ({@code field}, {@code _id}).
+     */
+    public Mono<PageResponse<User>> search(final String query, final SearchField field, final String pageToken,
+                                           final Integer limit, final FieldSelection fields) {
+        final int pageSize = pagination.resolveLimit(limit);
+        return Flux.defer(() -> repository.search(
+                        field, validSearchQuery(query), SearchCursor.decode(pageToken), pageSize + 1, fields.fields()))
+                .collectList()
+                .map(users -> toSearchPage(users, pageSize, field));
+    }
+
+    /**
+     * Applies the non-null fields of {@code userRequest}. With a non-null {@code expectedVersion}
+     * the update only succeeds if the stored user still has that version.
+     */
+    public Mono<User> update(final String id, final UserRequest userRequest, final Long expectedVersion) {
+        return withHashedPassword(mapper.toEntity(userRequest), userRequest.password())
+                .flatMap(changes -> handleNotFound(
+                        repository.findAndModify(id, changes, expectedVersion)
+                                .switchIfEmpty(Mono.defer(() -> versionConflict(id, expectedVersion))),
+                        id))
+                .doOnNext(user -> emailFilter.put(user.getEmail()))
+                .flatMap(user -> userCache.invalidate(id).thenReturn(user));
+    }
+
+    /**
+     * Every creation, update and deletion from now on, or from right after {@code resumeToken}.
+     * Consumers checkpoint the token of the last change they processed and resume from it, so
+     * they can sync incrementally instead of re-reading every page.
+     */
+    public Flux<UserChange> changes(final String resumeToken) {
+        return Flux.defer(() -> repository.watch(ResumeToken.decode(resumeToken)));
+    }
+
+    /**
+     * Users stored before passwords were hashed still hold their password in plaintext. Those are
+     * compared once in constant time and, on a match, replaced by a hash under the version that
+     * was read, so a concurrent password change is not overwritten.
+     */
+    public Mono<Boolean> verifyPassword(final String id, final String rawPassword) {
         return findById(id)
-                .map(entity -> mapper.toEntity(userRequest, entity))
-                .flatMap(repository::save);
+                .flatMap(entity -> {
+                    final String stored = entity.getPassword();
+                    if (stored == null) {
+                        return Mono.just(false);
+                    }
+                    if (passwordHasher.isHashed(stored)) {
+                        return passwordHasher.matches(rawPassword, stored);
+                    }
+                    if (!MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8),
+                            rawPassword.getBytes(StandardCharsets.UTF_8))) {
+                        return Mono.just(false);
+                    }
+                    return rehash(entity, rawPassword).thenReturn(true);
+                });
     }
 
-    public Mono<User> delete(final String id) {
-        return handleNotFound(repository.findAndRemove(id), id);
+    public Mono<User> delete(final String id, final Long expectedVersion) {
+        return handleNotFound(
+                repository.findAndRemove(id, expectedVersion)
+                        .switchIfEmpty(Mono.defer(() -> versionConflict(id, expectedVersion))),
+                id)
+                .flatMap(user -> userCache.invalidate(id).thenReturn(user));
+    }
+
+    private Mono<Void> ensureEmailAvailable(final String email) {
+        if (email == null || !emailFilter.mightContain(email)) {
+            return Mono.empty();
+        }
+        return repository.existsByEmail(email)
+                .flatMap(exists -> exists
+                        ? Mono.error(new EmailAlreadyRegisteredException("Email already registered"))
+                        : Mono.empty());
+    }
+
+    private Mono<Void> rehash(final User entity, final String rawPassword) {
+        final Long version = entity.getVersion() == null ? 0L : entity.getVersion();
+        return passwordHasher.hash(rawPassword)
+                .flatMap(hash -> repository.findAndModify(
+                        entity.getId(), User.builder().password(hash).build(), version))
+                .flatMap(user -> userCache.invalidate(entity.getId()))
+                .onErrorResume(ex -> {
+                    log.warn("Could not rehash the legacy password of user {}", entity.getId(), ex);
+                    return Mono.empty();
+                });
+    }
 
+    private Mono<User> withHashedPassword(final User entity, final String rawPassword) {
+        if (rawPassword == null) {
+            return Mono.just(entity);
+        }
+        return passwordHasher.hash(rawPassword)
+                .map(hash -> {
+                    entity.setPassword(hash);
+                    return entity;
+                });
+    }
+
+    private Mono<BulkItem> toBulkItem(final long index, final UserRequest request) {
+        final Set<ConstraintViolation<UserRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return Mono.just(new BulkItem(index, null, BulkImportResult.invalid(index, violations)));
+        }
+        final User user = mapper.toEntity(request);
+        user.setId(new ObjectId().toHexString());
+        return withHashedPassword(user, request.password())
+                .map(hashed -> new BulkItem(index, hashed, null));
+    }
+
+    private Flux<BulkImportResult> insertBatch(final List<BulkItem> batch) {
+        final List<User> users = batch.stream()
+                .filter(item -> item.user() != null)
+                .map(BulkItem::user)
+                .toList();
+        if (users.isEmpty()) {
+            return Flux.fromIterable(batch).map(BulkItem::result);
+        }
+        return repository.insertAll(users)
+                .flatMapIterable(failures -> toBulkResults(batch, failures));
+    }
+
+    private List<BulkImportResult> toBulkResults(final List<BulkItem> batch, final List<BulkWriteFailure> failures) {
+        final Map<Integer, BulkWriteFailure> failuresByPosition = failures.stream()
+                .collect(Collectors.toMap(BulkWriteFailure::index, Function.identity()));
+        final List<BulkImportResult> results = new ArrayList<>(batch.size());
+        int position = 0;
+        for (BulkItem item : batch) {
+            if (item.user() == null) {
+                results.add(item.result());
+                continue;
+            }
+            final BulkWriteFailure failure = failuresByPosition.get(position++);
+            if (failure == null) {
+                emailFilter.put(item.user().getEmail());
+                results.add(BulkImportResult.created(item.index(), item.user().getId()));
+            } else if (failure.isDuplicateKey()) {
+                results.add(BulkImportResult.duplicated(item.index(), failure.message()));
+            } else {
+                results.add(BulkImportResult.failed(item.index(), failure.message()));
+            }
+        }
+        return results;
+    }
+
+    private Set<String> validBatchIds(final List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new InvalidBatchRequestException("Ids must not be empty");
+        }
+        if (ids.contains(null)) {
+            throw new InvalidBatchRequestException("Ids must not contain null");
+        }
+        final Set<String> distinct = new LinkedHashSet<>(ids);
+        if (distinct.size() > batchGet.maxIds()) {
+            throw new InvalidBatchRequestException(
+                    String.format("At most %d distinct ids can be read at once", batchGet.maxIds()));
+        }
+        return distinct;
+    }
+
+    private String validSearchQuery(final String query) {
+        final String prefix = query == null ? "" : query.trim();
+        if (prefix.isEmpty()) {
+            throw new InvalidSearchException("Search query must not be blank");
+        }
+        if (prefix.length() > MAX_SEARCH_QUERY_LENGTH) {
+            throw new InvalidSearchException(
+                    String.format("Search query must be at most %d characters", MAX_SEARCH_QUERY_LENGTH));
+        }
+        return prefix;
+    }
+
+    private PageResponse<User> toSearchPage(final List<User> users, final int pageSize, final SearchField field) {
+        if (users.size() <= pageSize) {
+            return new PageResponse<>(users, null);
+        }
+        final List<User> content = users.subList(0, pageSize);
+        final User last = content.get(pageSize - 1);
+        return new PageResponse<>(content, new SearchCursor(field.keyOf(last), last.getId()).encode());
+    }
+
+    private static String firstPageKey(final int pageSize, final FieldSelection fields) {
+        return pageSize + ":" + String.join(",", new TreeSet<>(fields.fields()));
+    }
+
+    private PageResponse<User> toPage(final List<User> users, final int pageSize) {
+        if (users.size() <= pageSize) {
+            return new PageResponse<>(users, null);
+        }
+        final List<User> content = users.subList(0, pageSize);
+        return new PageResponse<>(content, PageToken.encode(content.get(pageSize - 1).getId()));
+    }
+
+    /**
+     * A conditional write that matched nothing is a conflict if the user still exists,
+     * otherwise it falls through to the regular not-found handling.
+     */
+    private Mono<User> versionConflict(final String id, final Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.empty();
+        }
+        return repository.findById(id)
+                .flatMap(current -> Mono.error(new PreconditionFailedException(
+                        String.format("Version mismatch. ID: %s, expected version %d, current version %d",
+                                id, expectedVersion, current.getVersion()))));
     }
 
     private <T> Mono<T> handleNotFound(Mono<T> mono, String id) {
@@ -45,4 +339,7 @@ public class UserService {
                 Mono.error(new ObjectNotFoundException(
                         String.format("Object not found. ID: %s, Type %s", id, User.class.getSimpleName()))));
     }
+
+    private record BulkItem(long index, User user, BulkImportResult result) {
+    }
 }
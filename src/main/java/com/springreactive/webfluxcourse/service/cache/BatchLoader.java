@@ -0,0 +1,129 @@
+package com.springreactive.webfluxcourse.service.cache;
+
+import com.springreactive.webfluxcourse.config.MicroBatchProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Gathers single-key loads arriving close together into one bulk load. The first key of a batch
+ * opens a window of {@code users.micro-batch.window}; keys arriving before it closes, or until
+ * {@code max-batch-size} distinct keys are collected, are resolved by a single call to the bulk
+ * loader, and each waiting caller receives its own value (or completes empty when the bulk
+ * result does not contain its key). Callers of the same key within a batch share one slot.
+ * <p>
+ * A batch is dispatched once gathered: cancelling a waiting caller does not cancel it. When
+ * disabled, every load goes straight to the single-key loader. Dispatched batch sizes are
+ * exported as {@code users.micro_batch.size}, tagged by what closed the batch.
+ */
+public class BatchLoader<K, V> {
+
+    public static final String METRIC = "users.micro_batch.size";
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Function<Set<K>, Flux<V>> bulkLoader;
+    private final Function<V, K> keyOf;
+    private final Function<K, Mono<V>> loader;
+    private final Scheduler scheduler;
+    private final DistributionSummary windowBatches;
+    private final DistributionSummary fullBatches;
+    private final Object lock = new Object();
+    private Batch pending;
+
+    public BatchLoader(final String name, final MicroBatchProperties properties,
+                       final Function<Set<K>, Flux<V>> bulkLoader, final Function<V, K> keyOf,
+                       final Function<K, Mono<V>> loader, final Scheduler scheduler, final MeterRegistry registry) {
+        this.enabled = properties.enabled();
+        this.windowNanos = properties.window().toNanos();
+        this.maxBatchSize = properties.maxBatchSize();
+        this.bulkLoader = bulkLoader;
+        this.keyOf = keyOf;
+        this.loader = loader;
+        this.scheduler = scheduler;
+        this.windowBatches = summary(registry, name, "window");
+        this.fullBatches = summary(registry, name, "full");
+    }
+
+    public Mono<V> load(final K key) {
+        if (!enabled) {
+            return Mono.defer(() -> loader.apply(key));
+        }
+        return Mono.defer(() -> {
+            final Sinks.One<V> slot;
+            Batch full = null;
+            synchronized (lock) {
+                if (pending == null) {
+                    final Batch opened = new Batch();
+                    pending = opened;
+                    opened.timer = scheduler.schedule(() -> close(opened), windowNanos, TimeUnit.NANOSECONDS);
+                }
+                slot = pending.slots.computeIfAbsent(key, ignored -> Sinks.one());
+                if (pending.slots.size() >= maxBatchSize) {
+                    full = pending;
+                    pending = null;
+                }
+            }
+            if (full != null) {
+                full.timer.dispose();
+                dispatch(full, fullBatches);
+            }
+            return slot.asMono();
+        });
+    }
+
+    private void close(final Batch batch) {
+        synchronized (lock) {
+            if (pending != batch) {
+                return;
+            }
+            pending = null;
+        }
+        dispatch(batch, windowBatches);
+    }
+
+    private void dispatch(final Batch batch, final DistributionSummary sizes) {
+        sizes.record(batch.slots.size());
+        final Flux<V> values;
+        try {
+            values = bulkLoader.apply(Set.copyOf(batch.slots.keySet()));
+        } catch (RuntimeException ex) {
+            batch.slots.values().forEach(slot -> slot.tryEmitError(ex));
+            return;
+        }
+        values.collectMap(keyOf).subscribe(
+                found -> batch.slots.forEach((key, slot) -> {
+                    final V value = found.get(key);
+                    if (value == null) {
+                        slot.tryEmitEmpty();
+                    } else {
+                        slot.tryEmitValue(value);
+                    }
+                }),
+                error -> batch.slots.values().forEach(slot -> slot.tryEmitError(error)));
+    }
+
+    private static DistributionSummary summary(final MeterRegistry registry, final String name, final String trigger) {
+        return DistributionSummary.builder(METRIC)
+                .tags("loader", name, "trigger", trigger)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private final class Batch {
+
+        private final Map<K, Sinks.One<V>> slots = new LinkedHashMap<>();
+        private Disposable timer;
+    }
+}
@@ -0,0 +1,24 @@
+package com.springreactive.webfluxcourse.service.cache;
+
+import com.springreactive.webfluxcourse.entity.User;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * Cache tier shared by every node, consulted after the local {@link UserCache} and before
+ * Mongo. Loaders are only invoked on a miss.
+ */
+public interface DistributedUserCache {
+
+    Mono<User> findById(String id, Function<String, Mono<User>> loader);
+
+    Mono<User> findByEmail(String email, Function<String, Mono<User>> emailLoader,
+                           Function<String, Mono<User>> idLoader);
+
+    /**
+     * Makes every snapshot written so far for {@code id} unreachable, including ones still being
+     * written by loads that started before the mutation.
+     */
+    Mono<Void> invalidate(String id);
+}
@@ -0,0 +1,86 @@
+package com.springreactive.webfluxcourse.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Embedded {@link KeyValueStore} so the cache tier runs in tests and single-node deployments
+ * without an external server.
+ */
+public class InMemoryKeyValueStore implements KeyValueStore {
+
+    private final Cache<String, Entry> entries;
+
+    public InMemoryKeyValueStore(final long maximumSize) {
+        this(maximumSize, Ticker.systemTicker());
+    }
+
+    InMemoryKeyValueStore(final long maximumSize, final Ticker ticker) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new EntryExpiry())
+                .ticker(ticker)
+                .build();
+    }
+
+    @Override
+    public Mono<byte[]> get(final String key) {
+        return Mono.fromSupplier(() -> {
+            Entry entry = entries.getIfPresent(key);
+            return entry == null ? null : entry.value();
+        });
+    }
+
+    @Override
+    public Mono<Void> set(final String key, final byte[] value, final Duration ttl) {
+        return Mono.fromRunnable(() -> entries.put(key, new Entry(value, ttl.toNanos())));
+    }
+
+    @Override
+    public Mono<Long> increment(final String key, final Duration ttl) {
+        return Mono.fromSupplier(() -> {
+            Entry entry = entries.asMap().compute(key, (k, current) -> {
+                long next = current == null ? 1 : parse(current.value()) + 1;
+                return new Entry(Long.toString(next).getBytes(StandardCharsets.US_ASCII), ttl.toNanos());
+            });
+            return parse(entry.value());
+        });
+    }
+
+    @Override
+    public Mono<Boolean> expire(final String key, final Duration ttl) {
+        return Mono.fromSupplier(() -> entries.asMap()
+                .computeIfPresent(key, (k, current) -> new Entry(current.value(), ttl.toNanos())) != null);
+    }
+
+    private static long parse(final byte[] value) {
+        return Long.parseLong(new String(value, StandardCharsets.US_ASCII));
+    }
+
+    private record Entry(byte[] value, long ttlNanos) {
+    }
+
+    private static final class EntryExpiry implements Expiry<String, Entry> {
+
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            return entry.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return entry.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
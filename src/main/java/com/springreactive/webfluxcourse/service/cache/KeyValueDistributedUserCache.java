@@ -0,0 +1,152 @@
+package com.springreactive.webfluxcourse.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.springreactive.webfluxcourse.config.DistributedCacheProperties;
+import com.springreactive.webfluxcourse.entity.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * {@link DistributedUserCache} over a {@link KeyValueStore} using versioned keys.
+ * <p>
+ * Every id has a generation counter, and snapshots live under {@code user:{id}:g{generation}}.
+ * Readers resolve the generation before loading from Mongo and write the result under that
+ * generation, while {@code update}/{@code delete} bump it. A load racing with a mutation
+ * therefore lands under a generation nobody reads anymore instead of resurrecting stale data.
+ * The counter's ttl is extended before each snapshot write, so it outlives every snapshot
+ * written under it and an expired counter never restarts at a generation that is still cached.
+ * Email lookups only cache an {@code email -> id} pointer and go through the id path, checking
+ * that the snapshot still carries the requested email.
+ * <p>
+ * Store failures degrade to the loader; the cache never fails a read.
+ */
+@Slf4j
+@Component
+public class KeyValueDistributedUserCache implements DistributedUserCache {
+
+    private static final String PREFIX = "user:";
+
+    private final KeyValueStore store;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Duration generationTtl;
+
+    public KeyValueDistributedUserCache(final KeyValueStore store, final ObjectMapper objectMapper,
+                                        final DistributedCacheProperties properties) {
+        this.store = store;
+        this.reader = objectMapper.readerFor(UserSnapshot.class);
+        this.writer = objectMapper.writerFor(UserSnapshot.class);
+        this.enabled = properties.enabled();
+        this.ttl = properties.ttl();
+        this.generationTtl = properties.ttl().multipliedBy(2);
+    }
+
+    @Override
+    public Mono<User> findById(final String id, final Function<String, Mono<User>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        return store.get(generationKey(id))
+                .map(KeyValueDistributedUserCache::parseGeneration)
+                .defaultIfEmpty(0L)
+                .map(Optional::of)
+                .onErrorResume(ex -> {
+                    log.warn("Distributed user cache unavailable, reading {} from the repository", id, ex);
+                    return Mono.just(Optional.empty());
+                })
+                .flatMap(generation -> generation.isPresent()
+                        ? readThrough(id, generation.get(), loader)
+                        : loader.apply(id));
+    }
+
+    @Override
+    public Mono<User> findByEmail(final String email, final Function<String, Mono<User>> emailLoader,
+                                  final Function<String, Mono<User>> idLoader) {
+        if (!enabled) {
+            return emailLoader.apply(email);
+        }
+        return store.get(emailKey(email))
+                .onErrorResume(ex -> Mono.empty())
+                .map(id -> new String(id, StandardCharsets.UTF_8))
+                .flatMap(id -> findById(id, idLoader))
+                .filter(user -> email.equals(user.getEmail()))
+                .switchIfEmpty(Mono.defer(() -> emailLoader.apply(email)
+                        .flatMap(user -> store.set(emailKey(email), user.getId().getBytes(StandardCharsets.UTF_8), ttl)
+                                .onErrorResume(ex -> Mono.empty())
+                                .thenReturn(user))));
+    }
+
+    @Override
+    public Mono<Void> invalidate(final String id) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return store.increment(generationKey(id), generationTtl)
+                .doOnError(ex -> log.warn("Could not invalidate {} in the distributed user cache", id, ex))
+                .then();
+    }
+
+    private Mono<User> readThrough(final String id, final long generation, final Function<String, Mono<User>> loader) {
+        return store.get(snapshotKey(id, generation))
+                .map(this::decode)
+                .onErrorResume(ex -> Mono.empty())
+                .switchIfEmpty(Mono.defer(() -> loader.apply(id)
+                        .flatMap(user -> writeSnapshot(id, generation, user).thenReturn(user))));
+    }
+
+    /**
+     * Skips the write when the counter expired since it was read: it may restart at this
+     * generation. Generation 0 has no counter yet, and the next invalidation starts above it.
+     */
+    private Mono<Void> writeSnapshot(final String id, final long generation, final User user) {
+        final Mono<Boolean> counterAlive = generation == 0
+                ? Mono.just(true)
+                : store.expire(generationKey(id), generationTtl);
+        return counterAlive
+                .flatMap(alive -> alive ? store.set(snapshotKey(id, generation), encode(user), ttl) : Mono.<Void>empty())
+                .onErrorResume(ex -> Mono.empty());
+    }
+
+    private byte[] encode(final User user) {
+        try {
+            return writer.writeValueAsBytes(UserSnapshot.of(user));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not serialize user snapshot", ex);
+        }
+    }
+
+    private User decode(final byte[] bytes) {
+        try {
+            return reader.<UserSnapshot>readValue(bytes).toEntity();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not deserialize user snapshot", ex);
+        }
+    }
+
+    private static long parseGeneration(final byte[] value) {
+        return Long.parseLong(new String(value, StandardCharsets.US_ASCII));
+    }
+
+    private static String generationKey(final String id) {
+        return PREFIX + id + ":gen";
+    }
+
+    private static String snapshotKey(final String id, final long generation) {
+        return PREFIX + id + ":g" + generation;
+    }
+
+    private static String emailKey(final String email) {
+        return PREFIX + "email:" + email;
+    }
+}
@@ -0,0 +1,26 @@
+package com.springreactive.webfluxcourse.service.cache;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Minimal reactive key-value contract the shared user cache needs. Counters follow the Redis
+ * convention of being stored as decimal strings.
+ */
+public interface KeyValueStore {
+
+    Mono<byte[]> get(String key);
+
+    Mono<Void> set(String key, byte[] value, Duration ttl);
+
+    /**
+     * Atomically increments the counter at {@code key} (absent counts as zero) and resets its ttl.
+     */
+    Mono<Long> increment(String key, Duration ttl);
+
+    /**
+     * Resets the ttl of {@code key}; emits false when it does not exist.
+     */
+    Mono<Boolean> expire(String key, Duration ttl);
+}
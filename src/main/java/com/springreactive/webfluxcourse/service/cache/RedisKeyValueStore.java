@@ -0,0 +1,44 @@
+package com.springreactive.webfluxcourse.service.cache;
+
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+public class RedisKeyValueStore implements KeyValueStore {
+
+    private final ReactiveRedisTemplate<String, byte[]> template;
+
+    public RedisKeyValueStore(final ReactiveRedisConnectionFactory connectionFactory) {
+        RedisSerializationContext<String, byte[]> context = RedisSerializationContext
+                .<String, byte[]>newSerializationContext(RedisSerializer.byteArray())
+                .key(RedisSerializer.string())
+                .hashKey(RedisSerializer.string())
+                .build();
+        this.template = new ReactiveRedisTemplate<>(connectionFactory, context);
+    }
+
+    @Override
+    public Mono<byte[]> get(final String key) {
+        return template.opsForValue().get(key);
+    }
+
+    @Override
+    public Mono<Void> set(final String key, final byte[] value, final Duration ttl) {
+        return template.opsForValue().set(key, value, ttl).then();
+    }
+
+    @Override
+    public Mono<Long> increment(final String key, final Duration ttl) {
+        return template.opsForValue().increment(key)
+                .flatMap(value -> template.expire(key, ttl).thenReturn(value));
+    }
+
+    @Override
+    public Mono<Boolean> expire(final String key, final Duration ttl) {
+        return template.expire(key, ttl);
+    }
+}
@@ -0,0 +1,143 @@
+package com.springreactive.webfluxcourse.service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into one subscription to the loader. The first
+ * caller (the leader) subscribes; callers arriving while it is in flight join its result.
+ * <p>
+ * The flight is removed from the map before its result is published, so a caller arriving after
+ * completion always starts a fresh load. A write to the key must call {@link #forget} as well: a
+ * flight started before the write may read the old value, and callers arriving after it are
+ * detached from it and start a fresh load instead.
+ * When every joined caller cancels, the load is cancelled and removed; a caller racing with that
+ * sees the flight as closed and starts a new one. At most {@code maxKeys} flights are tracked;
+ * beyond that callers load on their own instead of waiting on a lock.
+ * <p>
+ * The loader runs detached from any single caller, so it does not see the callers' Reactor context.
+ */
+public class SingleFlight<K, V> {
+
+    public static final String METRIC = "users.single_flight";
+
+    private final boolean enabled;
+    private final int maxKeys;
+    private final Map<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter followers;
+    private final Counter bypassed;
+
+    public SingleFlight(final String name, final boolean enabled, final int maxKeys, final MeterRegistry registry) {
+        this.enabled = enabled;
+        this.maxKeys = maxKeys;
+        this.leaders = registry.counter(METRIC, "flight", name, "role", "leader");
+        this.followers = registry.counter(METRIC, "flight", name, "role", "follower");
+        this.bypassed = registry.counter(METRIC, "flight", name, "role", "bypassed");
+    }
+
+    public Mono<V> execute(final K key, final Supplier<Mono<V>> loader) {
+        if (!enabled) {
+            return Mono.defer(loader);
+        }
+        return Mono.defer(() -> {
+            while (true) {
+                Flight<V> flight = flights.get(key);
+                if (flight == null) {
+                    if (flights.size() >= maxKeys) {
+                        bypassed.increment();
+                        return loader.get();
+                    }
+                    final Flight<V> created = new Flight<>();
+                    flight = flights.putIfAbsent(key, created);
+                    if (flight == null) {
+                        created.join();
+                        leaders.increment();
+                        created.start(key, loader, flights);
+                        return created.subscribe(key, flights);
+                    }
+                }
+                if (flight.join()) {
+                    followers.increment();
+                    return flight.subscribe(key, flights);
+                }
+                flights.remove(key, flight);
+            }
+        });
+    }
+
+    /**
+     * Detaches the flight in progress for {@code key}, if any. Callers already joined still get its
+     * result; later callers start a new load.
+     */
+    public void forget(final K key) {
+        flights.remove(key);
+    }
+
+    int inFlight() {
+        return flights.size();
+    }
+
+    private static final class Flight<V> {
+
+        private static final int CLOSED = -1;
+
+        private final Sinks.One<V> result = Sinks.one();
+        private final Disposable.Swap upstream = Disposables.swap();
+        private final AtomicInteger subscribers = new AtomicInteger();
+
+        boolean join() {
+            while (true) {
+                final int current = subscribers.get();
+                if (current == CLOSED) {
+                    return false;
+                }
+                if (subscribers.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        <K> void start(final K key, final Supplier<Mono<V>> loader, final Map<K, Flight<V>> flights) {
+            final Mono<V> source;
+            try {
+                source = loader.get();
+            } catch (RuntimeException ex) {
+                flights.remove(key, this);
+                result.tryEmitError(ex);
+                return;
+            }
+            upstream.update(source.subscribe(
+                    value -> {
+                        flights.remove(key, this);
+                        result.tryEmitValue(value);
+                    },
+                    error -> {
+                        flights.remove(key, this);
+                        result.tryEmitError(error);
+                    },
+                    () -> {
+                        flights.remove(key, this);
+                        result.tryEmitEmpty();
+                    }));
+        }
+
+        <K> Mono<V> subscribe(final K key, final Map<K, Flight<V>> flights) {
+            return result.asMono().doOnCancel(() -> {
+                if (subscribers.decrementAndGet() == 0 && subscribers.compareAndSet(0, CLOSED)) {
+                    flights.remove(key, this);
+                    upstream.dispose();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.springreactive.webfluxcourse.service.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.springreactive.webfluxcourse.config.CacheProperties;
+import com.springreactive.webfluxcourse.entity.User;
+import com.springreactive.webfluxcourse.respository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Local read-through cache in front of {@link DistributedUserCache} and
+ * {@link UserRepository#findById(String)}, reached through {@link BatchLoader} so that misses
+ * for different ids can share a query. Concurrent misses for
+ * the same id share one load, through the cache itself when enabled and through
+ * {@link SingleFlight} in any case, ids that do not exist are cached as absent for
+ * {@code users.cache.negative-ttl}, and callers always receive a copy so that mutating the
+ * returned entity never leaks into the cache.
+ */
+@Component
+public class UserCache {
+
+    public static final String CACHE_NAME = "users.byId";
+
+    private final UserRepository repository;
+    private final DistributedUserCache distributedCache;
+    private final SingleFlight<String, User> singleFlight;
+    private final BatchLoader<String, User> batchLoader;
+    private final boolean enabled;
+    private final AsyncLoadingCache<String, Optional<User>> cache;
+
+    public UserCache(final UserRepository repository, final DistributedUserCache distributedCache,
+                     final SingleFlight<String, User> singleFlight, final BatchLoader<String, User> batchLoader,
+                     final CacheProperties properties,
+                     final MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.distributedCache = distributedCache;
+        this.singleFlight = singleFlight;
+        this.batchLoader = batchLoader;
+        this.enabled = properties.enabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfter(new PresenceExpiry(properties))
+                .refreshAfterWrite(properties.refreshAfterWrite())
+                .recordStats()
+                .buildAsync((id, executor) -> load(id).toFuture());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Mono<User> findById(final String id) {
+        if (!enabled) {
+            return loadShared(id).map(user -> user.toBuilder().build());
+        }
+        return Mono.fromFuture(() -> cache.get(id), true)
+                .flatMap(Mono::justOrEmpty)
+                .map(user -> user.toBuilder().build());
+    }
+
+    /**
+     * Batch variant of {@link #findById(String)}: ids already cached locally are served from
+     * memory and every miss is loaded with one {@link UserRepository#findAllById} query, whose
+     * results (including absent ids) populate the same entries {@code findById} reads. Missing
+     * ids are left out of the returned map. The shared tier is not consulted for batches.
+     */
+    public Mono<Map<String, User>> findAllById(final Set<String> ids) {
+        if (!enabled) {
+            return repository.findAllById(ids).collectMap(User::getId);
+        }
+        return Mono.fromFuture(() -> cache.getAll(ids, (missing, executor) -> loadAll(missing).toFuture()), true)
+                .map(UserCache::present);
+    }
+
+    /**
+     * Email lookups are not cached locally; the shared tier keeps an {@code email -> id} pointer
+     * and resolves the user through its id entry, so invalidation by id covers both.
+     */
+    public Mono<User> findByEmail(final String email) {
+        return distributedCache.findByEmail(email, repository::findByEmail, batchLoader::load);
+    }
+
+    /**
+     * Invalidates the shared tier first so the local cache cannot reload the old snapshot from it,
+     * and detaches any load already in flight, which may have read the user before the write.
+     */
+    public Mono<Void> invalidate(final String id) {
+        return distributedCache.invalidate(id)
+                .onErrorResume(ex -> Mono.empty())
+                .then(Mono.fromRunnable(() -> {
+                    singleFlight.forget(id);
+                    cache.synchronous().invalidate(id);
+                }));
+    }
+
+    private Mono<Optional<User>> load(final String id) {
+        return loadShared(id)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    private Mono<Map<String, Optional<User>>> loadAll(final Set<? extends String> ids) {
+        return repository.findAllById(Set.copyOf(ids))
+                .collectMap(User::getId)
+                .map(found -> {
+                    final Map<String, Optional<User>> loaded = new HashMap<>();
+                    ids.forEach(id -> loaded.put(id, Optional.ofNullable(found.get(id))));
+                    return loaded;
+                });
+    }
+
+    private static Map<String, User> present(final Map<String, Optional<User>> entries) {
+        final Map<String, User> users = new HashMap<>();
+        entries.forEach((id, user) -> user.ifPresent(value -> users.put(id, value.toBuilder().build())));
+        return users;
+    }
+
+    private Mono<User> loadShared(final String id) {
+        return singleFlight.execute(id, () -> distributedCache.findById(id, batchLoader::load));
+    }
+
+    private record PresenceExpiry(CacheProperties properties) implements Expiry<String, Optional<User>> {
+
+        @Override
+        public long expireAfterCreate(String id, Optional<User> user, long currentTime) {
+            return (user.isPresent() ? properties.ttl() : properties.negativeTtl()).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, Optional<User> user, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, user, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String id, Optional<User> user, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
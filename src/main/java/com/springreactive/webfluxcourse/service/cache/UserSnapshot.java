@@ -0,0 +1,26 @@
+package com.springreactive.webfluxcourse.service.cache;
+
+import com.springreactive.webfluxcourse.entity.User;
+
+public record UserSnapshot(
+        String id,
+        String name,
+        String email,
+        String password,
+        Long version
+) {
+
+    public static UserSnapshot of(final User user) {
+        return new UserSnapshot(user.getId(), user.getName(), user.getEmail(), user.getPassword(), user.getVersion());
+    }
+
+    public User toEntity() {
+        return User.builder()
+                .id(id)
+                .name(name)
+                .email(email)
+                .password(password)
+                .version(version)
+                .build();
+    }
+}
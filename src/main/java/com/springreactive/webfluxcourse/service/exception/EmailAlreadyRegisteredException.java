@@ -0,0 +1,7 @@
+package com.springreactive.webfluxcourse.service.exception;
+
+public class EmailAlreadyRegisteredException extends RuntimeException {
+    public EmailAlreadyRegisteredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.springreactive.webfluxcourse.service.exception;
+
+public class InvalidBatchRequestException extends RuntimeException {
+    public InvalidBatchRequestException(String message) {
+        super(message);
+    }
+}
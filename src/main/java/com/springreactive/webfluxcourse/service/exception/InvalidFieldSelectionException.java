@@ -0,0 +1,7 @@
+package com.springreactive.webfluxcourse.service.exception;
+
+public class InvalidFieldSelectionException extends RuntimeException {
+    public InvalidFieldSelectionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.springreactive.webfluxcourse.service.exception;
+
+public class InvalidPageTokenException extends RuntimeException {
+    public InvalidPageTokenException(String message) {
+        super(message);
+    }
+}
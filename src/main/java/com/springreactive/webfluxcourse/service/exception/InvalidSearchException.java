@@ -0,0 +1,7 @@
+package com.springreactive.webfluxcourse.service.exception;
+
+public class InvalidSearchException extends RuntimeException {
+    public InvalidSearchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,59 @@
+package com.springreactive.webfluxcourse.utils;
+
+import com.springreactive.webfluxcourse.service.exception.PreconditionFailedException;
+import org.springframework.http.MediaType;
+
+import java.util.TreeSet;
+
+/**
+ * Strong ETags derived from the user's {@code @Version}. Partial representations
+ * ({@code fields=}) carry the sorted selection as a suffix so they never share a tag
+ * with the full body, and formats other than JSON add their subtype after a {@code /}.
+ */
+public final class EntityTag {
+
+    private static final String ANY = "*";
+    private static final char FORMAT = '/';
+
+    private EntityTag() {
+    }
+
+    public static String of(final Long version, final FieldSelection selection, final MediaType representation) {
+        final StringBuilder tag = new StringBuilder("\"").append(version == null ? 0L : version);
+        if (!selection.isAll()) {
+            tag.append(';').append(String.join(",", new TreeSet<>(selection.fields())));
+        }
+        if (representation != null && !MediaType.APPLICATION_JSON.equalsTypeAndSubtype(representation)) {
+            tag.append(FORMAT).append(representation.getSubtype());
+        }
+        return tag.append('"').toString();
+    }
+
+    /**
+     * Reads the version a client expects from an {@code If-Match} header. Absent or {@code *}
+     * means unconditional; anything that is not one of our strong tags can never match.
+     */
+    public static Long expectedVersion(final String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ANY.equals(ifMatch.trim())) {
+            return null;
+        }
+        final String tag = ifMatch.trim();
+        if (tag.length() < 2 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw notMatching(ifMatch);
+        }
+        final String value = tag.substring(1, tag.length() - 1);
+        int end = 0;
+        while (end < value.length() && value.charAt(end) != ';' && value.charAt(end) != FORMAT) {
+            end++;
+        }
+        try {
+            return Long.parseLong(value.substring(0, end));
+        } catch (NumberFormatException ex) {
+            throw notMatching(ifMatch);
+        }
+    }
+
+    private static PreconditionFailedException notMatching(final String ifMatch) {
+        return new PreconditionFailedException("If-Match does not match the current version: " + ifMatch);
+    }
+}
@@ -0,0 +1,55 @@
+package com.springreactive.webfluxcourse.utils;
+
+import com.springreactive.webfluxcourse.model.response.UserResponse;
+import com.springreactive.webfluxcourse.service.exception.InvalidFieldSelectionException;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Parsed {@code fields=} query parameter. An empty selection means every field.
+ */
+public record FieldSelection(Set<String> fields) {
+
+    public static final FieldSelection ALL = new FieldSelection(Set.of());
+
+    private static final Set<String> SELECTABLE = Set.of("id", "name", "email");
+
+    public static FieldSelection parse(final String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<String> selected = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        for (String field : selected) {
+            if (!SELECTABLE.contains(field)) {
+                throw new InvalidFieldSelectionException(
+                        String.format("Unknown field: %s. Selectable fields: id, name, email", field));
+            }
+        }
+        return selected.isEmpty() ? ALL : new FieldSelection(Set.copyOf(selected));
+    }
+
+    public boolean isAll() {
+        return fields.isEmpty();
+    }
+
+    public boolean includes(final String field) {
+        return isAll() || fields.contains(field);
+    }
+
+    public UserResponse apply(final UserResponse response) {
+        if (isAll()) {
+            return response;
+        }
+        return new UserResponse(
+                includes("id") ? response.id() : null,
+                includes("name") ? response.name() : null,
+                includes("email") ? response.email() : null
+        );
+    }
+}
@@ -0,0 +1,32 @@
+package com.springreactive.webfluxcourse.utils;
+
+import com.springreactive.webfluxcourse.service.exception.InvalidPageTokenException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor. The token only wraps the last returned {@code _id},
+ * so clients must not build or parse it themselves.
+ */
+public final class PageToken {
+
+    private PageToken() {
+    }
+
+    public static String encode(final String lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(lastId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decode(final String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidPageTokenException("Invalid page token: " + token);
+        }
+    }
+}
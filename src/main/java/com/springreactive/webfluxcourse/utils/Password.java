@@ -13,4 +13,17 @@ public @interface Password {
     String message() default "Invalid password";
     Class<?>[] groups() default {};
     Class<? extends Payload>[] payload() default {};
+
+    int minLength() default 10;
+    int maxLength() default 128;
+
+    /**
+     * Minimum number of characters required from each class. Zero disables the rule.
+     */
+    int upperCase() default 1;
+    int lowerCase() default 1;
+    int digits() default 1;
+    int special() default 1;
+
+    boolean allowWhitespace() default false;
 }
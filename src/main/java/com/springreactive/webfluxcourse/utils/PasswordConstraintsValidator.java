@@ -4,40 +4,65 @@ import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 import org.passay.*;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
 
 public class PasswordConstraintsValidator implements ConstraintValidator<Password, String> {
 
+    private static final MessageResolver MESSAGE_RESOLVER = new PropertiesMessageResolver();
+
+    private List<Rule> rules;
+
+    @Override
+    public void initialize(Password constraint) {
+        List<Rule> configured = new ArrayList<>();
+        configured.add(new LengthRule(constraint.minLength(), constraint.maxLength()));
+        addCharacterRule(configured, EnglishCharacterData.UpperCase, constraint.upperCase());
+        addCharacterRule(configured, EnglishCharacterData.LowerCase, constraint.lowerCase());
+        addCharacterRule(configured, EnglishCharacterData.Digit, constraint.digits());
+        addCharacterRule(configured, EnglishCharacterData.Special, constraint.special());
+        if (!constraint.allowWhitespace()) {
+            configured.add(new WhitespaceRule());
+        }
+        this.rules = List.copyOf(configured);
+    }
+
+    private static void addCharacterRule(List<Rule> rules, CharacterData data, int minimum) {
+        if (minimum > 0) {
+            rules.add(new CharacterRule(data, minimum));
+        }
+    }
+
     @Override
     public boolean isValid(String password, ConstraintValidatorContext context) {
+        String violation = firstViolation(password);
 
-        PasswordValidator passwordValidator = new PasswordValidator(
-                Arrays.asList(
-                        //Length rule. Min 10 max 128 characters
-                        new LengthRule(10, 128),
-                        //At least one upper case letter
-                        new CharacterRule(EnglishCharacterData.UpperCase, 1),
-                        //At least one lower case letter
-                        new CharacterRule(EnglishCharacterData.LowerCase, 1),
-                        //At least one number
-                        new CharacterRule(EnglishCharacterData.Digit, 1),
-                        //At least one special characters
-                        new CharacterRule(EnglishCharacterData.Special, 1),
-                        new WhitespaceRule()
-                )
-        );
-
-        RuleResult result = passwordValidator.validate(new PasswordData(password));
-
-        if (result.isValid()) {
+        if (violation == null) {
             return true;
         }
 
         //Sending one message each time failed validation.
-        context.buildConstraintViolationWithTemplate(passwordValidator.getMessages(result).stream().findFirst().get())
+        context.buildConstraintViolationWithTemplate(violation)
                 .addConstraintViolation()
                 .disableDefaultConstraintViolation();
 
         return false;
     }
+
+    /**
+     * Runs the rules in declaration order and stops at the first failure, so only that
+     * message is rendered.
+     *
+     * @return the failure message, or {@code null} when the password is valid
+     */
+    public String firstViolation(String password) {
+        PasswordData data = new PasswordData(password);
+        for (Rule rule : rules) {
+            RuleResult result = rule.validate(data);
+            if (!result.isValid()) {
+                return MESSAGE_RESOLVER.resolve(result.getDetails().get(0));
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,35 @@
+package com.springreactive.webfluxcourse.utils;
+
+import com.springreactive.webfluxcourse.service.exception.InvalidPageTokenException;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+import java.util.regex.Pattern;
+
+/**
+ * Change stream position handed to clients. Mongo's resume token is a document holding a single
+ * hex string under {@code _data}; only that string is exposed, and it is rebuilt on the way back.
+ */
+public final class ResumeToken {
+
+    private static final String DATA = "_data";
+    private static final Pattern HEX = Pattern.compile("[0-9A-Fa-f]+");
+
+    private ResumeToken() {
+    }
+
+    public static String encode(final BsonValue token) {
+        return token.asDocument().getString(DATA).getValue();
+    }
+
+    public static BsonDocument decode(final String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        if (!HEX.matcher(token).matches()) {
+            throw new InvalidPageTokenException("Invalid resume token: " + token);
+        }
+        return new BsonDocument(DATA, new BsonString(token));
+    }
+}
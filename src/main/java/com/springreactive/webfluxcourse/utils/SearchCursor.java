@@ -0,0 +1,36 @@
+package com.springreactive.webfluxcourse.utils;
+
+import com.springreactive.webfluxcourse.service.exception.InvalidPageTokenException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for search results, which are ordered by the searched field and then
+ * by {@code _id}. Like {@link PageToken}, clients must not build or parse it themselves.
+ */
+public record SearchCursor(String key, String id) {
+
+    private static final char SEPARATOR = '\u0000';
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((key + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(final String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            final String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            final int separator = value.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidPageTokenException("Invalid page token: " + token);
+            }
+            return new SearchCursor(value.substring(0, separator), value.substring(separator + 1));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidPageTokenException("Invalid page token: " + token);
+        }
+    }
+}
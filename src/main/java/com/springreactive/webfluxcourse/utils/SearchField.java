@@ -0,0 +1,41 @@
+package com.springreactive.webfluxcourse.utils;
+
+import com.springreactive.webfluxcourse.entity.User;
+import com.springreactive.webfluxcourse.service.exception.InvalidSearchException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Locale;
+
+/**
+ * Fields that {@code GET /users/search} can prefix-match. Each one is backed by an index whose
+ * collation the query must repeat, otherwise Mongo cannot use it. Unique fields are ordered by
+ * themselves alone; the others need {@code _id} as a tie-breaker.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum SearchField {
+
+    NAME("name", true, false),
+    EMAIL("email", false, true);
+
+    private final String property;
+    private final boolean caseInsensitive;
+    private final boolean unique;
+
+    public String keyOf(final User user) {
+        return this == NAME ? user.getName() : user.getEmail();
+    }
+
+    public static SearchField parse(final String field) {
+        if (field == null || field.isBlank()) {
+            return NAME;
+        }
+        try {
+            return valueOf(field.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidSearchException(
+                    String.format("Unknown search field: %s. Searchable fields: name, email", field));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.springreactive.webfluxcourse.utils;
+
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * Media types of the streamed user exports: one record per line, event or length-prefixed
+ * message, written as the records are read rather than as one document.
+ */
+public final class StreamingMediaTypes {
+
+    public static final MediaType SMILE_STREAM = new MediaType("application", "stream+x-jackson-smile");
+    public static final MediaType CBOR_SEQUENCE = new MediaType("application", "cbor-seq");
+    public static final MediaType PROTOBUF_STREAM = new MediaType("application", "stream+x-protobuf");
+
+    /**
+     * In order of preference when several are accepted; NDJSON comes last.
+     */
+    public static final List<MediaType> ALL = List.of(MediaType.TEXT_EVENT_STREAM, SMILE_STREAM, CBOR_SEQUENCE,
+            PROTOBUF_STREAM, MediaType.APPLICATION_NDJSON);
+
+    private StreamingMediaTypes() {
+    }
+}
@@ -0,0 +1,200 @@
+package com.springreactive.webfluxcourse.compression;
+
+import com.springreactive.webfluxcourse.config.CompressionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCompressionFilterTest {
+
+    private static final DefaultDataBufferFactory FACTORY = DefaultDataBufferFactory.sharedInstance;
+    private static final String LARGE = "{\"id\":\"1\",\"name\":\"Ademir\",\"email\":\"ademir@email.com\"}\n".repeat(200);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ResponseCompressionFilter filter = new ResponseCompressionFilter(new CompressionProperties(
+            true, List.of("gzip", "deflate"), DataSize.ofKilobytes(2), 6,
+            Map.of("application/json", new CompressionProperties.MediaTypeSettings(true, null, null),
+                    "application/x-ndjson", new CompressionProperties.MediaTypeSettings(true, 4, null))),
+            registry);
+
+    @Test
+    void testLargeBodyIsGzippedAndRecorded() throws IOException {
+        MockServerWebExchange exchange = exchange("gzip, deflate");
+
+        filter.filter(exchange, write(MediaType.APPLICATION_JSON, LARGE)).block();
+
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, headers.getFirst(HttpHeaders.VARY));
+        assertNull(headers.getFirst(HttpHeaders.CONTENT_LENGTH));
+        byte[] body = body(exchange);
+        assertTrue(body.length < LARGE.length());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals(LARGE, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(1, registry.get(ResponseCompressionFilter.RATIO_METRIC)
+                .tags("uri", "UNKNOWN", "encoding", "gzip").summary().count());
+        assertEquals(1, registry.get(ResponseCompressionFilter.CPU_METRIC).timer().count());
+    }
+
+    @Test
+    void testVaryKeepsHeadersSetByTheHandler() {
+        MockServerWebExchange exchange = exchange("gzip");
+
+        filter.filter(exchange, handled -> {
+            handled.getResponse().getHeaders().put(HttpHeaders.VARY, List.of(HttpHeaders.ACCEPT));
+            return write(MediaType.APPLICATION_JSON, LARGE).filter(handled);
+        }).block();
+
+        assertEquals(List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING),
+                exchange.getResponse().getHeaders().getVary());
+    }
+
+    @Test
+    void testPreferredEncodingHonoursQuality() {
+        MockServerWebExchange exchange = exchange("gzip;q=0, deflate");
+
+        filter.filter(exchange, write(MediaType.APPLICATION_JSON, LARGE)).block();
+
+        assertEquals("deflate", exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(LARGE, new String(inflate(new Inflater(), body(exchange)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testSmallBodyIsNotCompressed() {
+        MockServerWebExchange exchange = exchange("gzip");
+
+        filter.filter(exchange, write(MediaType.APPLICATION_JSON, "{\"id\":\"1\"}")).block();
+
+        assertFalse(exchange.getResponse().getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("{\"id\":\"1\"}", new String(body(exchange), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testWithoutAcceptedEncodingOrConfiguredTypeBodyIsNotCompressed() {
+        MockServerWebExchange identity = exchange(null);
+        MockServerWebExchange image = exchange("gzip");
+
+        filter.filter(identity, write(MediaType.APPLICATION_JSON, LARGE)).block();
+        filter.filter(image, write(MediaType.IMAGE_PNG, LARGE)).block();
+
+        assertFalse(identity.getResponse().getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(LARGE, new String(body(identity), StandardCharsets.UTF_8));
+        assertFalse(image.getResponse().getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(LARGE, new String(body(image), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStreamIsCompressedRegardlessOfSize() {
+        MockServerWebExchange exchange = exchange("deflate");
+        WebFilterChain chain = filtered -> {
+            filtered.getResponse().getHeaders().setContentType(MediaType.APPLICATION_NDJSON);
+            return filtered.getResponse().writeAndFlushWith(Flux.just(
+                    Flux.just(buffer("{\"id\":\"1\"}\n")), Flux.just(buffer("{\"id\":\"2\"}\n"))));
+        };
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals("deflate", exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("{\"id\":\"1\"}\n{\"id\":\"2\"}\n",
+                new String(inflate(new Inflater(), body(exchange)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testFlushMakesEverythingWrittenSoFarReadable() {
+        StreamCompressor compressor = new StreamCompressor(StreamCompressor.DEFLATE, 6, FACTORY);
+        Inflater inflater = new Inflater();
+
+        byte[] first = concat(compressor.compress(buffer("first record\n")), compressor.flush());
+        assertEquals("first record\n", new String(inflate(inflater, first), StandardCharsets.UTF_8));
+
+        byte[] second = concat(compressor.compress(buffer("second record\n")), compressor.finish());
+        assertEquals("second record\n", new String(inflate(inflater, second), StandardCharsets.UTF_8));
+        assertTrue(inflater.finished());
+        assertArrayEquals(new byte[0], concat(compressor.flush(), null), "nothing is written once finished");
+    }
+
+    private static MockServerWebExchange exchange(final String acceptEncoding) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/users");
+        if (acceptEncoding != null) {
+            request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private static WebFilterChain write(final MediaType contentType, final String body) {
+        return exchange -> {
+            exchange.getResponse().getHeaders().setContentType(contentType);
+            return exchange.getResponse().writeWith(Mono.just(buffer(body)));
+        };
+    }
+
+    private static DataBuffer buffer(final String value) {
+        return FACTORY.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] body(final MockServerWebExchange exchange) {
+        return DataBufferUtils.join(exchange.getResponse().getBody())
+                .map(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    return bytes;
+                })
+                .defaultIfEmpty(new byte[0])
+                .block();
+    }
+
+    private static byte[] concat(final DataBuffer... buffers) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (DataBuffer buffer : buffers) {
+            if (buffer != null) {
+                byte[] bytes = new byte[buffer.readableByteCount()];
+                buffer.read(bytes);
+                out.writeBytes(bytes);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(final Inflater inflater, final byte[] input) {
+        inflater.setInput(input);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[1024];
+        try {
+            int length;
+            while ((length = inflater.inflate(chunk)) > 0) {
+                out.write(chunk, 0, length);
+            }
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return out.toByteArray();
+    }
+}
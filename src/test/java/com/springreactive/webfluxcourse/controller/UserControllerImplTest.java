@@ -1,11 +1,28 @@
 package com.springreactive.webfluxcourse.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.springreactive.webfluxcourse.controller.codec.UserProtobuf;
+import com.springreactive.webfluxcourse.controller.codec.UserProtobufEncoder;
 import com.springreactive.webfluxcourse.entity.User;
 import com.springreactive.webfluxcourse.mapper.UserMapper;
+import com.springreactive.webfluxcourse.model.request.PasswordVerificationRequest;
 import com.springreactive.webfluxcourse.model.request.UserRequest;
+import com.springreactive.webfluxcourse.model.response.PageResponse;
+import com.springreactive.webfluxcourse.model.response.UserChangeResponse;
 import com.springreactive.webfluxcourse.model.response.UserResponse;
+import com.springreactive.webfluxcourse.respository.UserChange;
+import com.springreactive.webfluxcourse.service.BatchGetResult;
+import com.springreactive.webfluxcourse.service.BulkImportResult;
 import com.springreactive.webfluxcourse.service.UserService;
+import com.springreactive.webfluxcourse.service.exception.InvalidPageTokenException;
 import com.springreactive.webfluxcourse.service.exception.ObjectNotFoundException;
+import com.springreactive.webfluxcourse.service.exception.PreconditionFailedException;
+import com.springreactive.webfluxcourse.service.exception.ServiceUnavailableException;
+import com.springreactive.webfluxcourse.utils.FieldSelection;
+import com.springreactive.webfluxcourse.utils.SearchField;
+import com.springreactive.webfluxcourse.utils.StreamingMediaTypes;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,14 +30,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
@@ -35,7 +62,10 @@ class UserControllerImplTest {
     public static final String BAD_PASSWORD = "Ad56789@";
     public static final String PASSWORD = "Ad123456789@";
     public static final UserRequest USER_REQUEST = new UserRequest(NAME, EMAIL, PASSWORD);
-    public static final UserResponse USER_RESPONSE = new UserResponse(ID, NAME, EMAIL, PASSWORD);
+    public static final UserResponse USER_RESPONSE = new UserResponse(ID, NAME, EMAIL);
+    public static final String NEXT_PAGE_TOKEN = "MQ";
+    public static final Long VERSION = 3L;
+    public static final String ETAG = "\"3\"";
 
     @Autowired
     private WebTestClient webTestClient;
@@ -80,27 +110,176 @@ class UserControllerImplTest {
 
     }
 
+    @Test
+    @DisplayName("Test bulk save streams one result per item")
+    void testSaveAllWithPerItemResults() {
+        when(service.saveAll(any())).thenReturn(Flux.just(
+                BulkImportResult.created(0, ID),
+                BulkImportResult.duplicated(1, "E11000 duplicate key error index: email dup key")));
+
+        webTestClient.post().uri(URI_TEST + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(USER_REQUEST)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Map.class)
+                .value(results -> {
+                    assertEquals(ID, results.get(0).get("id"));
+                    assertEquals("Email already registered",
+                            ((Map<?, ?>) results.get(1).get("error")).get("errorMessage"));
+                });
+
+        verify(service).saveAll(any());
+    }
+
     @Test
     @DisplayName("Test find by id with success")
     void testFindByIdWithSuccess() {
 
-        when(service.findById(anyString())).thenReturn(Mono.just(User.builder().build()));
+        when(service.findById(anyString())).thenReturn(Mono.just(User.builder().version(VERSION).build()));
         when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
 
         webTestClient.get().uri(URI_TEST + "/" + ID)
                 .accept(MediaType.APPLICATION_JSON)
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, ETAG)
                 .expectBody()
                 .jsonPath("$.id").isEqualTo(ID)
                 .jsonPath("$.name").isEqualTo(NAME)
                 .jsonPath("$.email").isEqualTo(EMAIL)
-                .jsonPath("$.password").isEqualTo(PASSWORD);
+                .jsonPath("$.password").doesNotExist();
 
         verify(service).findById(anyString());
         verify(mapper).toResponse(any(User.class));
     }
 
+    @Test
+    @DisplayName("Test find by id with field selection")
+    void testFindByIdWithFieldSelection() {
+        when(service.findById(anyString())).thenReturn(Mono.just(User.builder().build()));
+        when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
+
+        webTestClient.get().uri(URI_TEST + "/" + ID + "?fields=id,name")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(ID)
+                .jsonPath("$.name").isEqualTo(NAME)
+                .jsonPath("$.email").doesNotExist();
+    }
+
+    @Test
+    @DisplayName("Test find by email with success")
+    void testFindByEmailWithSuccess() {
+        when(service.findByEmail(EMAIL)).thenReturn(Mono.just(User.builder().version(VERSION).build()));
+        when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
+
+        webTestClient.get().uri(URI_TEST + "/by-email?email={email}", EMAIL)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, ETAG)
+                .expectBody()
+                .jsonPath("$.email").isEqualTo(EMAIL);
+    }
+
+    @Test
+    @DisplayName("Test batch get with a missing id")
+    void testBatchGetWithMissingId() {
+        when(service.findAllById(List.of(ID, "2"))).thenReturn(Flux.just(
+                new BatchGetResult(ID, User.builder().build()),
+                new BatchGetResult("2", null)));
+        when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
+
+        webTestClient.post().uri(URI_TEST + "/batch-get")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(Map.of("ids", List.of(ID, "2"))))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo(ID)
+                .jsonPath("$[0].user.email").isEqualTo(EMAIL)
+                .jsonPath("$[0].error").doesNotExist()
+                .jsonPath("$[1].id").isEqualTo("2")
+                .jsonPath("$[1].user").doesNotExist()
+                .jsonPath("$[1].error.status").isEqualTo(HttpStatus.NOT_FOUND.value());
+    }
+
+    @Test
+    @DisplayName("Test get by ids query parameter")
+    void testFindAllByIdsParameter() {
+        when(service.findAllById(List.of(ID, "2"))).thenReturn(Flux.just(
+                new BatchGetResult(ID, User.builder().build()),
+                new BatchGetResult("2", null)));
+        when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
+
+        webTestClient.get().uri(URI_TEST + "?ids={ids}&fields=name", ID + ",2")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].user.name").isEqualTo(NAME)
+                .jsonPath("$[0].user.email").doesNotExist()
+                .jsonPath("$[1].error.status").isEqualTo(HttpStatus.NOT_FOUND.value());
+    }
+
+    @Test
+    @DisplayName("Test find by email not found")
+    void testFindByEmailNotFound() {
+        when(service.findByEmail(anyString()))
+                .thenReturn(Mono.error(new ObjectNotFoundException("Object not found. Email: nobody@email.com, Type User")));
+
+        webTestClient.get().uri(URI_TEST + "/by-email?email={email}", "nobody@email.com")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Test find by id revalidated with If-None-Match")
+    void testFindByIdNotModified() {
+        when(service.findById(anyString())).thenReturn(Mono.just(User.builder().version(VERSION).build()));
+        when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
+
+        webTestClient.get().uri(URI_TEST + "/" + ID)
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, ETAG)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, ETAG)
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    @DisplayName("Test find by id with field selection gets its own ETag")
+    void testFindByIdWithFieldSelectionETag() {
+        when(service.findById(anyString())).thenReturn(Mono.just(User.builder().version(VERSION).build()));
+        when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
+
+        webTestClient.get().uri(URI_TEST + "/" + ID + "?fields=name,id")
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, ETAG)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3;id,name\"");
+    }
+
+    @Test
+    @DisplayName("Test find all with unknown field")
+    void testFindAllWithUnknownField() {
+        webTestClient.get().uri(URI_TEST + "?fields=password")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errorMessage").isEqualTo("Unknown field: password. Selectable fields: id, name, email");
+
+        verify(service, never()).findPage(any(), any(), any());
+    }
+
     @Test
     @DisplayName("Test handle not found")
     void testHandleNotFound() {
@@ -121,53 +300,316 @@ class UserControllerImplTest {
     @DisplayName("Test find all with success")
     void findAllWithSuccess() {
 
-        when(service.findAll()).thenReturn(Flux.just(User.builder().build()));
+        when(service.findPage(any(), any(), any()))
+                .thenReturn(Mono.just(new PageResponse<>(List.of(User.builder().build()), NEXT_PAGE_TOKEN)));
         when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
 
-        webTestClient.get().uri(URI_TEST)
+        webTestClient.get().uri(URI_TEST + "?limit=1")
                 .accept(MediaType.APPLICATION_JSON)
                 .exchange()
                 .expectStatus().isOk()
                 .expectBody()
-                .jsonPath("$.[0].id").isEqualTo(ID)
-                .jsonPath("$.[0].name").isEqualTo(NAME)
-                .jsonPath("$.[0].email").isEqualTo(EMAIL)
-                .jsonPath("$.[0].password").isEqualTo(PASSWORD);
+                .jsonPath("$.content[0].id").isEqualTo(ID)
+                .jsonPath("$.content[0].name").isEqualTo(NAME)
+                .jsonPath("$.content[0].email").isEqualTo(EMAIL)
+                .jsonPath("$.nextPageToken").isEqualTo(NEXT_PAGE_TOKEN);
 
-        verify(service).findAll();
+        verify(service).findPage(null, 1, FieldSelection.ALL);
         verify(mapper).toResponse(any(User.class));
     }
 
+    @Test
+    @DisplayName("Test find all with invalid page token")
+    void findAllWithInvalidPageToken() {
+        when(service.findPage(anyString(), any(), any()))
+                .thenReturn(Mono.error(new InvalidPageTokenException("Invalid page token: %%%")));
+
+        webTestClient.get().uri(URI_TEST + "?after={after}", "%%%")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(HttpStatus.BAD_REQUEST.value())
+                .jsonPath("$.errorMessage").isEqualTo("Invalid page token: %%%");
+    }
+
+    @Test
+    @DisplayName("Test search by name prefix")
+    void searchByName() {
+        when(service.search(any(), any(), any(), any(), any()))
+                .thenReturn(Mono.just(new PageResponse<>(List.of(User.builder().build()), NEXT_PAGE_TOKEN)));
+        when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
+
+        webTestClient.get().uri(URI_TEST + "/search?q=ade&limit=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content[0].name").isEqualTo(NAME)
+                .jsonPath("$.nextPageToken").isEqualTo(NEXT_PAGE_TOKEN);
+
+        verify(service).search("ade", SearchField.NAME, null, 1, FieldSelection.ALL);
+    }
+
+    @Test
+    @DisplayName("Test search with unknown field")
+    void searchWithUnknownField() {
+        webTestClient.get().uri(URI_TEST + "/search?q=ade&field=password")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errorMessage").isEqualTo("Unknown search field: password. Searchable fields: name, email");
+
+        verify(service, never()).search(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Test stream all as ndjson")
+    void streamAllAsNdjson() {
+        when(service.findAll(any())).thenReturn(Flux.just(User.builder().build(), User.builder().build()));
+        when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
+
+        webTestClient.get().uri(URI_TEST)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(UserResponse.class)
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNext(USER_RESPONSE, USER_RESPONSE)
+                .verifyComplete();
+
+        verify(service).findAll(FieldSelection.ALL);
+    }
+
+    @Test
+    @DisplayName("Test stream all as server-sent events")
+    void streamAllAsServerSentEvents() {
+        when(service.findAll(any())).thenReturn(Flux.just(User.builder().build()));
+        when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
+
+        webTestClient.get().uri(URI_TEST)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<UserResponse>>() { })
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNextMatches(event -> ID.equals(event.id()) && USER_RESPONSE.equals(event.data()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Test stream all as length-prefixed protobuf messages")
+    void streamAllAsProtobuf() {
+        when(service.findAll(any())).thenReturn(Flux.just(User.builder().build(), User.builder().build()));
+        when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
+
+        byte[] body = webTestClient.get().uri(URI_TEST)
+                .accept(StreamingMediaTypes.PROTOBUF_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(StreamingMediaTypes.PROTOBUF_STREAM)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        int length = body[0];
+        assertEquals(2 * (1 + length), body.length);
+        assertEquals(USER_RESPONSE, UserProtobuf.readUser(Arrays.copyOfRange(body, 1, 1 + length)));
+        assertEquals(USER_RESPONSE, UserProtobuf.readUser(Arrays.copyOfRange(body, 2 + length, 2 + 2 * length)));
+    }
+
+    @Test
+    @DisplayName("Test find by id as cbor")
+    void testFindByIdAsCbor() {
+        when(service.findById(anyString())).thenReturn(Mono.just(User.builder().version(VERSION).build()));
+        when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
+
+        webTestClient.get().uri(URI_TEST + "/" + ID)
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR)
+                .expectBody(UserResponse.class).isEqualTo(USER_RESPONSE);
+    }
+
+    @Test
+    @DisplayName("Test find by id as cbor is not revalidated by the json ETag")
+    void testFindByIdAsCborHasItsOwnETag() {
+        when(service.findById(anyString())).thenReturn(Mono.just(User.builder().version(VERSION).build()));
+        when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
+
+        webTestClient.get().uri(URI_TEST + "/" + ID)
+                .accept(MediaType.APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, ETAG)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3/cbor\"")
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+
+    @Test
+    @DisplayName("Test find by id as protobuf")
+    void testFindByIdAsProtobuf() {
+        when(service.findById(anyString())).thenReturn(Mono.just(User.builder().version(VERSION).build()));
+        when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
+
+        webTestClient.get().uri(URI_TEST + "/" + ID)
+                .accept(UserProtobufEncoder.PROTOBUF)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(UserProtobufEncoder.PROTOBUF)
+                .expectBody(UserResponse.class).isEqualTo(USER_RESPONSE);
+    }
+
+    @Test
+    @DisplayName("Test save with a cbor body answers validation errors in cbor")
+    void testSaveWithBadRequestAsCbor() throws IOException {
+        byte[] body = webTestClient.post().uri(URI_TEST)
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR)
+                .body(BodyInserters.fromValue(new UserRequest(NAME, EMAIL, BAD_PASSWORD)))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        JsonNode error = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertEquals("Validation Error", error.get("error").asText());
+        assertEquals("password", error.get("errors").get(0).get("fieldName").asText());
+        verify(service, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Test change feed as server-sent events")
+    void changesAsServerSentEvents() {
+        when(service.changes("82AB")).thenReturn(Flux.just(
+                new UserChange("82AC", UserChange.Operation.UPDATED, ID, User.builder().build()),
+                new UserChange("82AD", UserChange.Operation.DELETED, ID, null)));
+        when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
+
+        webTestClient.get().uri(URI_TEST + "/changes?resumeToken={token}", "82AB")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<UserChangeResponse>>() { })
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNextMatches(event -> "82AC".equals(event.id()) && "updated".equals(event.event())
+                        && USER_RESPONSE.equals(event.data().user()))
+                .expectNextMatches(event -> "82AD".equals(event.id()) && "deleted".equals(event.event())
+                        && ID.equals(event.data().id()) && event.data().user() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Test change feed resumes from Last-Event-ID")
+    void changesResumeFromLastEventId() {
+        when(service.changes("82AB")).thenReturn(Flux.empty());
+
+        webTestClient.get().uri(URI_TEST + "/changes")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", "82AB")
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(service).changes("82AB");
+    }
+
     @Test
     @DisplayName("Test update with success")
     void update() {
-        when(service.update( anyString(), any(UserRequest.class))).thenReturn(Mono.just(User.builder().build()));
+        when(service.update(anyString(), any(UserRequest.class), eq(VERSION)))
+                .thenReturn(Mono.just(User.builder().version(VERSION + 1).build()));
         when(mapper.toResponse(any(User.class))).thenReturn(USER_RESPONSE);
 
         webTestClient.patch().uri(URI_TEST + "/" + ID)
                 .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, ETAG)
                 .body(BodyInserters.fromValue(USER_REQUEST))
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4\"")
                 .expectBody()
                 .jsonPath("$.id").isEqualTo(ID)
                 .jsonPath("$.name").isEqualTo(NAME)
-                .jsonPath("$.email").isEqualTo(EMAIL)
-                .jsonPath("$.password").isEqualTo(PASSWORD);
+                .jsonPath("$.email").isEqualTo(EMAIL);
 
-        verify(service).update(anyString(),any(UserRequest.class));
+        verify(service).update(anyString(), any(UserRequest.class), eq(VERSION));
         verify(mapper).toResponse(any(User.class));
     }
 
+    @Test
+    @DisplayName("Test update with stale If-Match")
+    void updateWithStaleVersion() {
+        when(service.update(anyString(), any(UserRequest.class), eq(VERSION)))
+                .thenReturn(Mono.error(new PreconditionFailedException("Version mismatch. ID: 1, expected version 3, current version 4")));
+
+        webTestClient.patch().uri(URI_TEST + "/" + ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, ETAG)
+                .body(BodyInserters.fromValue(USER_REQUEST))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(HttpStatus.PRECONDITION_FAILED.value());
+    }
+
+    @Test
+    @DisplayName("Test delete with a weak If-Match never matches")
+    void deleteWithWeakETag() {
+        webTestClient.delete().uri(URI_TEST + "/" + ID)
+                .header(HttpHeaders.IF_MATCH, "W/" + ETAG)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        verify(service, never()).delete(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Test verify password")
+    void verifyPassword() {
+        when(service.verifyPassword(ID, PASSWORD)).thenReturn(Mono.just(true));
+
+        webTestClient.post().uri(URI_TEST + "/" + ID + "/password/verify")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(new PasswordVerificationRequest(PASSWORD)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.matches").isEqualTo(true);
+    }
+
+    @Test
+    @DisplayName("Test hashing overload returns service unavailable")
+    void testSaveWhenHashingIsSaturated() {
+        when(service.save(any(UserRequest.class)))
+                .thenReturn(Mono.error(new ServiceUnavailableException("Password hashing capacity exceeded, try again later")));
+
+        webTestClient.post().uri(URI_TEST)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(USER_REQUEST))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().exists(HttpHeaders.RETRY_AFTER);
+    }
+
     @Test
     @DisplayName("Test delete with success")
     void deleteWithSuccess() {
-        when(service.delete(anyString())).thenReturn(Mono.just(User.builder().build()));
+        when(service.delete(anyString(), isNull())).thenReturn(Mono.just(User.builder().build()));
 
         webTestClient.delete().uri(URI_TEST + "/" + ID)
                 .exchange()
                 .expectStatus().isOk();
 
-        verify(service).delete(anyString());
+        verify(service).delete(anyString(), isNull());
     }
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.springreactive.webfluxcourse.controller.codec;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.springreactive.webfluxcourse.controller.exceptions.StandardError;
+import com.springreactive.webfluxcourse.controller.exceptions.ValidationError;
+import com.springreactive.webfluxcourse.model.response.PageResponse;
+import com.springreactive.webfluxcourse.model.response.UserResponse;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserJsonEncoderTest {
+
+    private static final ResolvableType USER = ResolvableType.forClass(UserResponse.class);
+    private static final ResolvableType PAGE = ResolvableType.forClassWithGenerics(PageResponse.class, UserResponse.class);
+    private static final ResolvableType ERROR = ResolvableType.forClass(StandardError.class);
+    private static final ResolvableType VALIDATION = ResolvableType.forClass(ValidationError.class);
+
+    // configured like Spring Boot's auto-configured ObjectMapper
+    private final Jackson2JsonEncoder jackson = new Jackson2JsonEncoder(Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build());
+    private final UserJsonEncoder encoder = new UserJsonEncoder();
+
+    @Test
+    void testUserMatchesJackson() {
+        assertSameAsJackson(new UserResponse("66a0f1c2e4b0a1b2c3d40001", "Ademir", "ademir@email.com"), USER);
+    }
+
+    @Test
+    void testUserWithoutSomePropertiesMatchesJackson() {
+        assertSameAsJackson(new UserResponse("1", null, "ademir@email.com"), USER);
+        assertSameAsJackson(new UserResponse(null, "Ademir", null), USER);
+        assertSameAsJackson(new UserResponse(null, null, null), USER);
+    }
+
+    @Test
+    void testEscapedAndNonAsciiStringsMatchJackson() {
+        assertSameAsJackson(new UserResponse("1", "Quote \" back\\slash\ttab\nline \u0001", "a/b@email.com"), USER);
+        assertSameAsJackson(new UserResponse("2", "Ãdemir Çoração 名前 😀", "ademir@email.com"), USER);
+    }
+
+    @Test
+    void testPageMatchesJackson() {
+        assertSameAsJackson(new PageResponse<>(List.of(
+                new UserResponse("1", "Ademir", "ademir@email.com"),
+                new UserResponse("2", null, "ana@email.com")), "MQ"), PAGE);
+        assertSameAsJackson(new PageResponse<>(List.<UserResponse>of(), null), PAGE);
+        assertSameAsJackson(new PageResponse<UserResponse>(null, null), PAGE);
+    }
+
+    @Test
+    void testStandardErrorMatchesJackson() {
+        assertSameAsJackson(StandardError.builder()
+                .timestamp(LocalDateTime.of(2024, 6, 1, 10, 15, 30, 123_456_789))
+                .path("/users/1")
+                .status(404)
+                .error("Not Found")
+                .errorMessage("Object not found. Id: 1, Type: User")
+                .build(), ERROR);
+        assertSameAsJackson(StandardError.builder()
+                .timestamp(LocalDateTime.of(2024, 6, 1, 10, 15))
+                .status(400)
+                .build(), ERROR);
+        assertSameAsJackson(StandardError.builder()
+                .timestamp(LocalDateTime.of(2024, 6, 1, 10, 15, 30, 120_000_000))
+                .build(), ERROR);
+    }
+
+    @Test
+    void testValidationErrorMatchesJackson() {
+        ValidationError error = new ValidationError(LocalDateTime.of(2024, 6, 1, 10, 15, 30),
+                "/users", 400, "Validation Error", "Error on attributes validation");
+        assertSameAsJackson(error, VALIDATION);
+
+        error.addErrors("name", "must not be blank");
+        error.addErrors("email", "must be a well-formed \"email\" address");
+        assertSameAsJackson(error, VALIDATION);
+    }
+
+    @Test
+    void testFluxIsEncodedAsTheSameArray() {
+        List<UserResponse> users = List.of(
+                new UserResponse("1", "Ademir", "ademir@email.com"),
+                new UserResponse("2", "Ana", null),
+                new UserResponse("3", null, "bia@email.com"));
+
+        assertEquals(encode(jackson, Flux.fromIterable(users), USER), encode(encoder, Flux.fromIterable(users), USER));
+        assertEquals(encode(jackson, Flux.empty(), USER), encode(encoder, Flux.empty(), USER));
+    }
+
+    @Test
+    void testCanEncodeOnlyItsTypesAsJson() {
+        assertTrue(encoder.canEncode(USER, MediaType.APPLICATION_JSON));
+        assertTrue(encoder.canEncode(PAGE, null));
+        assertTrue(encoder.canEncode(VALIDATION, MediaType.APPLICATION_JSON));
+        assertFalse(encoder.canEncode(USER, MediaType.APPLICATION_NDJSON));
+        assertFalse(encoder.canEncode(ResolvableType.forClassWithGenerics(PageResponse.class, String.class), null));
+        assertFalse(encoder.canEncode(ResolvableType.forClass(Object.class), null));
+    }
+
+    private void assertSameAsJackson(final Object value, final ResolvableType type) {
+        assertEquals(encode(jackson, Mono.just(value), type), encode(encoder, Mono.just(value), type));
+    }
+
+    private static String encode(final Encoder<Object> encoder, final Publisher<?> values,
+                                 final ResolvableType type) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        encoder.encode(values, DefaultDataBufferFactory.sharedInstance, type, MediaType.APPLICATION_JSON, Map.of())
+                .doOnNext(buffer -> {
+                    byte[] chunk = new byte[buffer.readableByteCount()];
+                    buffer.read(chunk);
+                    bytes.writeBytes(chunk);
+                    DataBufferUtils.release(buffer);
+                })
+                .blockLast();
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+package com.springreactive.webfluxcourse.controller.codec;
+
+import com.springreactive.webfluxcourse.controller.exceptions.ValidationError;
+import com.springreactive.webfluxcourse.model.request.UserRequest;
+import com.springreactive.webfluxcourse.model.response.PageResponse;
+import com.springreactive.webfluxcourse.model.response.UserResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserProtobufTest {
+
+    private final UserProtobufEncoder encoder = new UserProtobufEncoder();
+
+    @Test
+    void testUserMatchesTheWireFormat() {
+        // User { id: "1", email: "a@b" }, as protoc would encode it
+        byte[] expected = {0x0A, 1, '1', 0x1A, 3, 'a', '@', 'b'};
+
+        assertArrayEquals(expected, encode(new UserResponse("1", null, "a@b"), false));
+        assertEquals(new UserResponse("1", null, "a@b"), UserProtobuf.readUser(expected));
+    }
+
+    @Test
+    void testPageAndRequestRoundTrip() {
+        PageResponse<UserResponse> page = new PageResponse<>(List.of(
+                new UserResponse("1", "Ãdemir 😀", "ademir@email.com"),
+                new UserResponse("2", null, null)), "MQ");
+        UserRequest request = new UserRequest("Ademir", "ademir@email.com", "Ad123456789@");
+
+        assertEquals(page, UserProtobuf.readPage(encode(page, false)));
+        assertEquals(request, UserProtobuf.readUserRequest(encode(request, false)));
+        assertEquals(new PageResponse<>(List.of(), null), UserProtobuf.readPage(new byte[0]));
+    }
+
+    @Test
+    void testDelimitedMessagesArePrefixedWithTheirLength() {
+        UserResponse user = new UserResponse("1", "Ademir", "ademir@email.com");
+        byte[] message = encode(user, false);
+        byte[] delimited = encode(user, true);
+
+        assertEquals(message.length, delimited[0]);
+        assertArrayEquals(message, Arrays.copyOfRange(delimited, 1, delimited.length));
+    }
+
+    @Test
+    void testErrorSizeMatchesWhatIsWritten() {
+        ValidationError error = new ValidationError(LocalDateTime.of(2024, 6, 1, 10, 15, 30),
+                "/users", 400, "Validation Error", "Error on attributes validation");
+        error.addErrors("name", "must not be blank");
+
+        assertEquals(UserProtobuf.sizeOf(error), encode(error, false).length);
+    }
+
+    @Test
+    void testUnknownFieldsAreSkipped() {
+        // field 9 as a varint, then field 10 as a string, then id
+        byte[] bytes = {0x48, (byte) 0x96, 0x01, 0x52, 2, 'x', 'y', 0x0A, 1, '7'};
+
+        assertEquals(new UserResponse("7", null, null), UserProtobuf.readUser(bytes));
+    }
+
+    @Test
+    void testTruncatedMessageIsRejected() {
+        byte[] bytes = {0x0A, 5, '1'};
+
+        assertThrows(DecodingException.class, () -> UserProtobuf.readUser(bytes));
+    }
+
+    private byte[] encode(final Object value, final boolean delimited) {
+        DataBuffer buffer = encoder.encode(value, DefaultDataBufferFactory.sharedInstance, delimited);
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        return bytes;
+    }
+}
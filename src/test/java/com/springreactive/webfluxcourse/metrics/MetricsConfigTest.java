@@ -0,0 +1,31 @@
+package com.springreactive.webfluxcourse.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricsConfigTest {
+
+    @Test
+    void testLiteralRoutesAreKept() {
+        assertEquals("/users", MetricsConfig.uriTemplate("/users"));
+        assertEquals("/users/search", MetricsConfig.uriTemplate("/users/search?q=ad&field=name"));
+        assertEquals("/users/changes", MetricsConfig.uriTemplate("/users/changes"));
+        assertEquals("/actuator/prometheus", MetricsConfig.uriTemplate("/actuator/prometheus"));
+    }
+
+    @Test
+    void testEveryIdIsCollapsed() {
+        assertEquals("/users/{id}", MetricsConfig.uriTemplate("/users/6650f1a2b3c4d5e6f7a8b9c0"));
+        assertEquals("/users/{id}", MetricsConfig.uriTemplate("/users/abcdef"));
+        assertEquals("/users/{id}", MetricsConfig.uriTemplate("/users/by-name"));
+        assertEquals("/users/{id}/password/verify", MetricsConfig.uriTemplate("/users/abcdef/password/verify"));
+    }
+
+    @Test
+    void testUnmatchedPathsShareOneTag() {
+        assertEquals("UNKNOWN", MetricsConfig.uriTemplate("/wp-login.php"));
+        assertEquals("UNKNOWN", MetricsConfig.uriTemplate("/users/1/anything"));
+        assertEquals("UNKNOWN", MetricsConfig.uriTemplate("/actuator/env"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.springreactive.webfluxcourse.ratelimit;
+
+import com.springreactive.webfluxcourse.config.RateLimitProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1_000));
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+            new RateLimitProperties.Concurrency(true, 10, 2, 20, Duration.ofNanos(THRESHOLD), 0.5), clock::get);
+
+    @Test
+    void testAdmitsUpToTheLimit() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release();
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void testSlowCallsBackOffOncePerWindow() {
+        limiter.onLatency(THRESHOLD * 2, true);
+        limiter.onLatency(THRESHOLD * 2, true);
+        assertEquals(5.0, limiter.limit());
+
+        clock.addAndGet(THRESHOLD);
+        limiter.onLatency(THRESHOLD, false);
+        assertEquals(2.5, limiter.limit());
+
+        clock.addAndGet(THRESHOLD);
+        limiter.onLatency(THRESHOLD * 2, true);
+        assertEquals(2.0, limiter.limit(), "never below the minimum");
+    }
+
+    @Test
+    void testFastCallsGrowTheLimitOnlyWhileItIsUsed() {
+        limiter.onLatency(1_000, true);
+        assertEquals(10.0, limiter.limit());
+
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+        }
+        for (int i = 0; i < 10; i++) {
+            limiter.onLatency(1_000, true);
+        }
+        assertTrue(limiter.limit() > 10.9 && limiter.limit() < 11.0);
+    }
+}
@@ -0,0 +1,183 @@
+package com.springreactive.webfluxcourse.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springreactive.webfluxcourse.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RateLimitFilterTest {
+
+    private static final RateLimitProperties.Concurrency UNLIMITED =
+            new RateLimitProperties.Concurrency(false, 64, 8, 512, Duration.ofMillis(50), 0.9);
+    private static final WebFilterChain OK = exchange -> Mono.empty();
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1_000));
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void testClientBucketRejectsBurstWithRetryAfter() {
+        RateLimitFilter filter = filter(new RateLimitProperties.Bucket(2, 1), Map.of(), UNLIMITED);
+
+        assertNull(run(filter, get("/users/1", "10.0.0.1")));
+        assertNull(run(filter, get("/users/1", "10.0.0.1")));
+        MockServerWebExchange rejected = get("/users/1", "10.0.0.1");
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, run(filter, rejected));
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertNull(run(filter, get("/users/1", "10.0.0.2")), "other clients have their own bucket");
+    }
+
+    @Test
+    void testClientBucketRefills() {
+        RateLimitFilter filter = filter(new RateLimitProperties.Bucket(1, 1), Map.of(), UNLIMITED);
+
+        assertNull(run(filter, get("/users/1", "10.0.0.1")));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, run(filter, get("/users/1", "10.0.0.1")));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertNull(run(filter, get("/users/1", "10.0.0.1")));
+    }
+
+    @Test
+    void testRouteBucketIsSharedByClients() {
+        RateLimitFilter filter = filter(new RateLimitProperties.Bucket(100, 50),
+                Map.of("POST /users", new RateLimitProperties.Bucket(1, 1)), UNLIMITED);
+
+        assertNull(run(filter, post("/users", "10.0.0.1")));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, run(filter, post("/users", "10.0.0.2")));
+        assertNull(run(filter, get("/users/1", "10.0.0.2")), "other routes are not limited");
+    }
+
+    @Test
+    void testConcurrencyLimitShedsWith503UntilReleased() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                new RateLimitProperties.Concurrency(true, 1, 1, 1, Duration.ofMillis(50), 0.9), clock::get);
+        RateLimitFilter filter = new RateLimitFilter(properties(new RateLimitProperties.Bucket(100, 50), Map.of()),
+                limiter, objectMapper, new SimpleMeterRegistry(), clock::get);
+        Sinks.Empty<Void> inFlight = Sinks.empty();
+
+        StepVerifier pending = StepVerifier.create(filter.filter(get("/users/1", "10.0.0.1"), exchange -> inFlight.asMono()))
+                .expectComplete()
+                .verifyLater();
+        MockServerWebExchange rejected = get("/users/2", "10.0.0.2");
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, run(filter, rejected));
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        inFlight.tryEmitEmpty();
+        pending.verify();
+        assertNull(run(filter, get("/users/2", "10.0.0.2")));
+    }
+
+    @Test
+    void testOnlyExplicitStreamingAcceptBypassesConcurrencyLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                new RateLimitProperties.Concurrency(true, 1, 1, 1, Duration.ofMillis(50), 0.9), clock::get);
+        RateLimitFilter filter = new RateLimitFilter(properties(new RateLimitProperties.Bucket(100, 50), Map.of()),
+                limiter, objectMapper, new SimpleMeterRegistry(), clock::get);
+        Sinks.Empty<Void> inFlight = Sinks.empty();
+        filter.filter(get("/users/1", "10.0.0.1"), exchange -> inFlight.asMono()).subscribe();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, run(filter, accepting("10.0.0.2", MediaType.ALL)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+                run(filter, accepting("10.0.0.3", MediaType.parseMediaType("application/*"))));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, run(filter, accepting("10.0.0.4")), "no Accept header");
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, run(filter, MockServerWebExchange.from(
+                MockServerHttpRequest.post("/users/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .remoteAddress(new InetSocketAddress("10.0.0.5", 40000)))), "NDJSON uploads are limited");
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, run(filter, MockServerWebExchange.from(
+                MockServerHttpRequest.post("/users")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .remoteAddress(new InetSocketAddress("10.0.0.8", 40000)))), "writes are limited whatever they accept");
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, run(filter, MockServerWebExchange.from(
+                MockServerHttpRequest.get("/users/1")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .remoteAddress(new InetSocketAddress("10.0.0.9", 40000)))), "single reads are limited");
+        assertNull(run(filter, accepting("10.0.0.6", MediaType.APPLICATION_NDJSON)));
+        assertNull(run(filter, accepting("10.0.0.7", MediaType.TEXT_EVENT_STREAM)));
+        assertNull(run(filter, get("/users/changes", "10.0.0.10")));
+
+        inFlight.tryEmitEmpty();
+    }
+
+    @Test
+    void testClientHeaderIdentifiesClient() {
+        RateLimitProperties properties = new RateLimitProperties(true, "X-Forwarded-For", 100,
+                new RateLimitProperties.Bucket(1, 1), Map.of(), UNLIMITED);
+        RateLimitFilter filter = new RateLimitFilter(properties, limiter(), objectMapper, new SimpleMeterRegistry(), clock::get);
+
+        assertNull(run(filter, MockServerWebExchange.from(MockServerHttpRequest.get("/users/1")
+                .header("X-Forwarded-For", "203.0.113.7, 10.0.0.1"))));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, run(filter, MockServerWebExchange.from(MockServerHttpRequest.get("/users/1")
+                .header("X-Forwarded-For", "203.0.113.7"))));
+    }
+
+    @Test
+    void testOtherPathsAreNotLimited() {
+        RateLimitFilter filter = filter(new RateLimitProperties.Bucket(1, 1), Map.of(), UNLIMITED);
+
+        assertNull(run(filter, get("/actuator/health", "10.0.0.1")));
+        assertNull(run(filter, get("/actuator/health", "10.0.0.1")));
+    }
+
+    private HttpStatus run(RateLimitFilter filter, MockServerWebExchange exchange) {
+        filter.filter(exchange, OK).block();
+        return exchange.getResponse().getStatusCode() == null
+                ? null
+                : HttpStatus.valueOf(exchange.getResponse().getStatusCode().value());
+    }
+
+    private RateLimitFilter filter(RateLimitProperties.Bucket perClient, Map<String, RateLimitProperties.Bucket> routes,
+                                   RateLimitProperties.Concurrency concurrency) {
+        return new RateLimitFilter(new RateLimitProperties(true, null, 100, perClient, routes, concurrency),
+                limiter(), objectMapper, new SimpleMeterRegistry(), clock::get);
+    }
+
+    private AdaptiveConcurrencyLimiter limiter() {
+        return new AdaptiveConcurrencyLimiter(UNLIMITED, clock::get);
+    }
+
+    private static RateLimitProperties properties(RateLimitProperties.Bucket perClient,
+                                                  Map<String, RateLimitProperties.Bucket> routes) {
+        return new RateLimitProperties(true, null, 100, perClient, routes, UNLIMITED);
+    }
+
+    private static MockServerWebExchange get(String path, String client) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path)
+                .accept(MediaType.APPLICATION_JSON)
+                .remoteAddress(new InetSocketAddress(client, 40000)));
+    }
+
+    private static MockServerWebExchange accepting(String client, MediaType... accept) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/users")
+                .remoteAddress(new InetSocketAddress(client, 40000));
+        if (accept.length > 0) {
+            request.accept(accept);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private static MockServerWebExchange post(String path, String client) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .remoteAddress(new InetSocketAddress(client, 40000)));
+    }
+}
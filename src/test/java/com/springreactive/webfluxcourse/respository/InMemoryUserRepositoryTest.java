@@ -0,0 +1,185 @@
+package com.springreactive.webfluxcourse.respository;
+
+import com.springreactive.webfluxcourse.entity.User;
+import com.springreactive.webfluxcourse.service.exception.InvalidPageTokenException;
+import com.springreactive.webfluxcourse.utils.ResumeToken;
+import com.springreactive.webfluxcourse.utils.SearchCursor;
+import com.springreactive.webfluxcourse.utils.SearchField;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InMemoryUserRepositoryTest {
+
+    private final InMemoryUserRepository repository = new InMemoryUserRepository(100);
+
+    @Test
+    void testSaveAssignsIdAndVersion() {
+        User saved = repository.save(user("Ademir", "ademir@email.com")).block();
+
+        assertEquals(0L, saved.getVersion());
+        StepVerifier.create(repository.findById(saved.getId()))
+                .expectNextMatches(found -> "ademir@email.com".equals(found.getEmail())
+                        && "hashed".equals(found.getPassword()) && found.getVersion() == 0L)
+                .verifyComplete();
+    }
+
+    @Test
+    void testSaveWithRegisteredEmail() {
+        repository.save(user("Ademir", "ademir@email.com")).block();
+
+        StepVerifier.create(repository.save(user("Other", "ademir@email.com")))
+                .expectErrorMatches(ex -> ex instanceof DuplicateKeyException && ex.getMessage().contains("email dup key"))
+                .verify();
+    }
+
+    @Test
+    void testSaveWithStaleVersion() {
+        User saved = repository.save(user("Ademir", "ademir@email.com")).block();
+        repository.findAndModify(saved.getId(), User.builder().name("Changed").build(), null).block();
+
+        StepVerifier.create(repository.save(saved.toBuilder().version(0L).build()))
+                .expectError(OptimisticLockingFailureException.class)
+                .verify();
+    }
+
+    @Test
+    void testInsertAllReportsDuplicatesByPosition() {
+        repository.save(user("Ademir", "ademir@email.com")).block();
+
+        StepVerifier.create(repository.insertAll(List.of(
+                        user("One", "one@email.com"),
+                        user("Two", "ademir@email.com"),
+                        user("Three", "one@email.com"))))
+                .expectNextMatches(failures -> failures.size() == 2
+                        && failures.get(0).index() == 1 && failures.get(0).isDuplicateKey()
+                        && failures.get(1).index() == 2)
+                .verifyComplete();
+        StepVerifier.create(repository.existsByEmail("one@email.com")).expectNext(true).verifyComplete();
+    }
+
+    @Test
+    void testFindAndModifyMovesTheEmailIndex() {
+        User saved = repository.save(user("Ademir", "ademir@email.com")).block();
+
+        StepVerifier.create(repository.findAndModify(saved.getId(), User.builder().email("new@email.com").build(), 0L))
+                .expectNextMatches(updated -> "new@email.com".equals(updated.getEmail()) && updated.getVersion() == 1L)
+                .verifyComplete();
+        StepVerifier.create(repository.findByEmail("ademir@email.com")).verifyComplete();
+        StepVerifier.create(repository.findByEmail("new@email.com")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(repository.save(user("Other", "ademir@email.com"))).expectNextCount(1).verifyComplete();
+    }
+
+    @Test
+    void testFindAndModifyWithStaleVersion() {
+        User saved = repository.save(user("Ademir", "ademir@email.com")).block();
+
+        StepVerifier.create(repository.findAndModify(saved.getId(), User.builder().name("Changed").build(), 5L))
+                .verifyComplete();
+        StepVerifier.create(repository.findById(saved.getId()))
+                .expectNextMatches(found -> "Ademir".equals(found.getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindAndRemove() {
+        User saved = repository.save(user("Ademir", "ademir@email.com")).block();
+
+        StepVerifier.create(repository.findAndRemove(saved.getId(), 3L)).verifyComplete();
+        StepVerifier.create(repository.findAndRemove(saved.getId(), 0L)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(repository.findById(saved.getId())).verifyComplete();
+        StepVerifier.create(repository.existsByEmail("ademir@email.com")).expectNext(false).verifyComplete();
+        StepVerifier.create(repository.search(SearchField.NAME, "ad", null, 10, Set.of())).verifyComplete();
+    }
+
+    @Test
+    void testFindPageIsOrderedById() {
+        User first = repository.save(user("A", "a@email.com").toBuilder().id("0000000000000000000000a1").build()).block();
+        User second = repository.save(user("B", "b@email.com").toBuilder().id("0000000000000000000000a2").build()).block();
+        repository.save(user("C", "c@email.com").toBuilder().id("0000000000000000000000a3").build()).block();
+
+        StepVerifier.create(repository.findPage(null, 2, Set.of("name")))
+                .expectNextMatches(user -> first.getId().equals(user.getId()) && user.getEmail() == null)
+                .expectNextMatches(user -> second.getId().equals(user.getId()))
+                .verifyComplete();
+        StepVerifier.create(repository.findPage(second.getId(), 2, Set.of()))
+                .expectNextMatches(user -> "C".equals(user.getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testSearchByNameIsCaseInsensitiveAndResumable() {
+        repository.save(user("ana", "ana@email.com").toBuilder().id("0000000000000000000000a1").build()).block();
+        repository.save(user("Ana", "ana2@email.com").toBuilder().id("0000000000000000000000a2").build()).block();
+        repository.save(user("Bruno", "bruno@email.com")).block();
+
+        StepVerifier.create(repository.search(SearchField.NAME, "AN", null, 1, Set.of("email")))
+                .expectNextMatches(user -> "ana".equals(user.getName()) && "ana@email.com".equals(user.getEmail()))
+                .verifyComplete();
+        StepVerifier.create(repository.search(SearchField.NAME, "AN",
+                        new SearchCursor("ana", "0000000000000000000000a1"), 10, Set.of()))
+                .expectNextMatches(user -> "Ana".equals(user.getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testSearchByEmailPrefix() {
+        repository.save(user("Ana", "ana@email.com")).block();
+        repository.save(user("Ana", "anna@email.com")).block();
+        repository.save(user("Bruno", "bruno@email.com")).block();
+
+        StepVerifier.create(repository.search(SearchField.EMAIL, "an", new SearchCursor("ana@email.com", null), 10, Set.of()))
+                .expectNextMatches(user -> "anna@email.com".equals(user.getEmail()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testWatchResumesAfterToken() {
+        User saved = repository.save(user("Ademir", "ademir@email.com")).block();
+        UserChange created = repository.watch(ResumeToken.decode("0000000000000000")).blockFirst();
+        repository.findAndRemove(saved.getId(), null).block();
+
+        assertEquals(UserChange.Operation.CREATED, created.operation());
+        StepVerifier.create(repository.watch(ResumeToken.decode(created.resumeToken())).take(1))
+                .expectNextMatches(change -> change.operation() == UserChange.Operation.DELETED
+                        && saved.getId().equals(change.id()) && change.user() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void testWatchRejectsTokenOlderThanChangeHistory() {
+        InMemoryUserRepository shortHistory = new InMemoryUserRepository(2);
+        shortHistory.save(user("Ademir", "ademir@email.com")).block();
+        shortHistory.save(user("Bruna", "bruna@email.com")).block();
+        shortHistory.save(user("Carla", "carla@email.com")).block();
+
+        StepVerifier.create(shortHistory.watch(ResumeToken.decode("0000000000000000")))
+                .expectError(InvalidPageTokenException.class)
+                .verify();
+        StepVerifier.create(shortHistory.watch(ResumeToken.decode("0000000000000001")).take(2))
+                .expectNextMatches(change -> "bruna@email.com".equals(change.user().getEmail()))
+                .expectNextMatches(change -> "carla@email.com".equals(change.user().getEmail()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testCodecRoundTrip() {
+        User user = User.builder().id("1").name("Ãdemir").email("ademir@email.com").version(7L).build();
+
+        User decoded = UserRecordCodec.decode(UserRecordCodec.encode(user));
+
+        assertEquals(user, decoded);
+        assertNull(decoded.getPassword());
+    }
+
+    private static User user(final String name, final String email) {
+        return User.builder().name(name).email(email).password("hashed").build();
+    }
+}
@@ -0,0 +1,70 @@
+package com.springreactive.webfluxcourse.respository;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.springreactive.webfluxcourse.entity.User;
+import com.springreactive.webfluxcourse.service.exception.InvalidPageTokenException;
+import com.springreactive.webfluxcourse.utils.ResumeToken;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MongoUserRepositoryTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Test
+    void testExpiredResumeTokenIsInvalid() {
+        changeStreamFails(commandError(286, "Resume of change stream was not possible"));
+
+        StepVerifier.create(new MongoUserRepository(mongoTemplate).watch(ResumeToken.decode("8263A1")))
+                .expectError(InvalidPageTokenException.class)
+                .verify();
+    }
+
+    @Test
+    void testTranslatedMalformedResumeTokenIsInvalid() {
+        changeStreamFails(new UncategorizedMongoDbException("Command failed", commandError(260, "Invalid resume token")));
+
+        StepVerifier.create(new MongoUserRepository(mongoTemplate).watch(ResumeToken.decode("00")))
+                .expectError(InvalidPageTokenException.class)
+                .verify();
+    }
+
+    @Test
+    void testOtherErrorsAreNotMapped() {
+        changeStreamFails(commandError(40573, "The $changeStream stage is only supported on replica sets"));
+
+        StepVerifier.create(new MongoUserRepository(mongoTemplate).watch(ResumeToken.decode("8263A1")))
+                .expectError(MongoCommandException.class)
+                .verify();
+    }
+
+    private void changeStreamFails(final Throwable error) {
+        when(mongoTemplate.getCollectionName(User.class)).thenReturn("user");
+        when(mongoTemplate.changeStream(eq("user"), any(ChangeStreamOptions.class), eq(User.class)))
+                .thenReturn(Flux.error(error));
+    }
+
+    private static MongoCommandException commandError(final int code, final String message) {
+        return new MongoCommandException(new BsonDocument("ok", new BsonDouble(0))
+                .append("code", new BsonInt32(code))
+                .append("errmsg", new BsonString(message)), new ServerAddress());
+    }
+}
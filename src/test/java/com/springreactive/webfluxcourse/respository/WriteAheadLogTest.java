@@ -0,0 +1,100 @@
+package com.springreactive.webfluxcourse.respository;
+
+import com.springreactive.webfluxcourse.entity.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteAheadLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReopenReplaysEntriesInOrder() {
+        WriteAheadLog log = WriteAheadLog.open(directory, SEGMENT_SIZE, entry -> { });
+        log.append(UserChange.Operation.CREATED, "1", user("1", 0L));
+        log.append(UserChange.Operation.UPDATED, "1", user("1", 1L));
+        log.append(UserChange.Operation.DELETED, "2", null);
+        log.close();
+
+        List<WriteAheadLog.Entry> entries = new ArrayList<>();
+        WriteAheadLog reopened = WriteAheadLog.open(directory, SEGMENT_SIZE, entries::add);
+
+        assertEquals(List.of(1L, 2L, 3L), entries.stream().map(WriteAheadLog.Entry::sequence).toList());
+        assertEquals(UserChange.Operation.UPDATED, entries.get(1).operation());
+        assertEquals(1L, entries.get(1).user().getVersion());
+        assertEquals("1@email.com", entries.get(1).user().getEmail());
+        assertEquals("2", entries.get(2).id());
+        assertNull(entries.get(2).user());
+        assertEquals(4L, reopened.append(UserChange.Operation.CREATED, "3", user("3", 0L)));
+    }
+
+    @Test
+    void testTornEntryEndsTheLog() throws IOException {
+        WriteAheadLog log = WriteAheadLog.open(directory, SEGMENT_SIZE, entry -> { });
+        log.append(UserChange.Operation.CREATED, "1", user("1", 0L));
+        log.append(UserChange.Operation.CREATED, "2", user("2", 0L));
+        log.close();
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            final int second = Integer.BYTES * 2 + file.readInt();
+            file.seek(second + Integer.BYTES * 2 + Long.BYTES + 4);
+            final int value = file.read();
+            file.seek(second + Integer.BYTES * 2 + Long.BYTES + 4);
+            file.write(value ^ 0xFF);
+        }
+
+        List<WriteAheadLog.Entry> entries = new ArrayList<>();
+        WriteAheadLog reopened = WriteAheadLog.open(directory, SEGMENT_SIZE, entries::add);
+        assertEquals(List.of("1"), entries.stream().map(WriteAheadLog.Entry::id).toList());
+        assertEquals(2L, reopened.append(UserChange.Operation.CREATED, "3", user("3", 0L)));
+        reopened.close();
+
+        entries.clear();
+        WriteAheadLog.open(directory, SEGMENT_SIZE, entries::add);
+        assertEquals(List.of("1", "3"), entries.stream().map(WriteAheadLog.Entry::id).toList());
+    }
+
+    @Test
+    void testTruncateDeletesSealedSegments() throws IOException {
+        WriteAheadLog log = WriteAheadLog.open(directory, 256, entry -> { });
+        for (int i = 0; i < 20; i++) {
+            log.append(UserChange.Operation.CREATED, String.valueOf(i), user(String.valueOf(i), 0L));
+        }
+        assertTrue(log.sealedSegments() > 0);
+        final long activeFirst = log.activeFirstSequence();
+
+        log.truncateBefore(activeFirst);
+        log.close();
+
+        assertEquals(0, log.sealedSegments());
+        assertEquals(1, segments().size());
+        List<WriteAheadLog.Entry> entries = new ArrayList<>();
+        WriteAheadLog.open(directory, 256, entries::add);
+        assertEquals(activeFirst, entries.get(0).sequence());
+        assertEquals(20L, entries.get(entries.size() - 1).sequence());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static User user(final String id, final Long version) {
+        return User.builder().id(id).name("User " + id).email(id + "@email.com").password("hashed").version(version).build();
+    }
+}
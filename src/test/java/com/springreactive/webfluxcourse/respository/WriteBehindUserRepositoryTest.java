@@ -0,0 +1,150 @@
+package com.springreactive.webfluxcourse.respository;
+
+import com.springreactive.webfluxcourse.config.WriteBehindProperties;
+import com.springreactive.webfluxcourse.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindUserRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private MongoUserRepository remote;
+
+    @Test
+    void testFlushCoalescesWritesIntoOneBulkWrite() {
+        when(remote.findAll(500, Set.of())).thenReturn(Flux.empty());
+        when(remote.writeAll(anyList(), anyList())).thenReturn(Mono.just(List.of()));
+        WriteBehindUserRepository repository = started();
+        User kept = repository.save(user("ademir@email.com")).block();
+        User removed = repository.save(user("ana@email.com")).block();
+        repository.findAndModify(kept.getId(), User.builder().name("Changed").build(), 0L).block();
+        repository.findAndModify(kept.getId(), User.builder().name("Changed again").build(), 1L).block();
+        repository.findAndRemove(removed.getId(), null).block();
+
+        repository.flush().block();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<User>> users = ArgumentCaptor.forClass(List.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> deleted = ArgumentCaptor.forClass(List.class);
+        verify(remote).writeAll(users.capture(), deleted.capture());
+        assertEquals(1, users.getValue().size());
+        assertEquals("Changed again", users.getValue().get(0).getName());
+        assertEquals(2L, users.getValue().get(0).getVersion());
+        assertEquals(List.of(removed.getId()), deleted.getValue());
+        assertEquals(0, repository.pending());
+        repository.stop();
+    }
+
+    @Test
+    void testFailedWritesStayPending() {
+        when(remote.findAll(500, Set.of())).thenReturn(Flux.empty());
+        when(remote.writeAll(anyList(), anyList()))
+                .thenReturn(Mono.just(List.of(new BulkWriteFailure(0, 6, "host unreachable"))))
+                .thenReturn(Mono.just(List.of()));
+        WriteBehindUserRepository repository = started();
+        repository.save(user("ademir@email.com")).block();
+
+        repository.flush().block();
+        assertEquals(1, repository.pending());
+
+        repository.flush().block();
+        assertEquals(0, repository.pending());
+        repository.stop();
+    }
+
+    @Test
+    void testRestartReplaysWritesNotYetInMongo() {
+        User stale = user("ademir@email.com").toBuilder().id("6650f1a2b3c4d5e6f7a8b9c0").version(0L).build();
+        when(remote.findAll(500, Set.of())).thenReturn(Flux.just(stale.toBuilder().build()));
+        WriteBehindUserRepository crashed = started();
+        crashed.findAndModify(stale.getId(), User.builder().name("Changed").build(), 0L).block();
+        User created = crashed.save(user("ana@email.com")).block();
+
+        when(remote.writeAll(anyList(), anyList())).thenReturn(Mono.just(List.of()));
+        WriteBehindUserRepository restarted = started();
+
+        assertEquals(2, restarted.pending());
+        StepVerifier.create(restarted.findById(stale.getId()))
+                .expectNextMatches(user -> "Changed".equals(user.getName()) && user.getVersion() == 1L)
+                .verifyComplete();
+        StepVerifier.create(restarted.findByEmail("ana@email.com"))
+                .expectNextMatches(user -> created.getId().equals(user.getId()))
+                .verifyComplete();
+        restarted.stop();
+        assertEquals(0, restarted.pending());
+    }
+
+    @Test
+    void testFlushRacingInsertsWritesEveryUser() throws Exception {
+        when(remote.findAll(500, Set.of())).thenReturn(Flux.empty());
+        Map<String, User> written = new ConcurrentHashMap<>();
+        when(remote.writeAll(anyList(), anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            List<String> deleted = invocation.getArgument(1);
+            users.forEach(user -> written.put(user.getId(), user));
+            deleted.forEach(written::remove);
+            return Mono.just(List.of());
+        });
+        WriteBehindUserRepository repository = started();
+        AtomicBoolean inserting = new AtomicBoolean(true);
+        CompletableFuture<Void> flushing = CompletableFuture.runAsync(() -> {
+            while (inserting.get()) {
+                repository.flush().block();
+            }
+        });
+
+        List<User> saved = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            saved.add(repository.save(user("user" + i + "@email.com")).block());
+        }
+        inserting.set(false);
+        flushing.get(10, TimeUnit.SECONDS);
+        repository.stop();
+
+        assertEquals(0, repository.pending());
+        assertEquals(saved.size(), written.size());
+        saved.forEach(user -> assertEquals(user.getEmail(), written.get(user.getId()).getEmail()));
+    }
+
+    private WriteBehindUserRepository started() {
+        WriteBehindProperties properties = new WriteBehindProperties(
+                true, directory.toString(), DataSize.ofKilobytes(4), Duration.ofHours(1), 500, 4);
+        WriteBehindUserRepository repository = new WriteBehindUserRepository(remote, properties, 100,
+                new SimpleMeterRegistry());
+        repository.start();
+        return repository;
+    }
+
+    private static User user(final String email) {
+        return User.builder().name("Ademir").email(email).password("hashed").build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.springreactive.webfluxcourse.service;
+
+import com.springreactive.webfluxcourse.config.EmailFilterProperties;
+import com.springreactive.webfluxcourse.config.StreamingProperties;
+import com.springreactive.webfluxcourse.respository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailBloomFilterTest {
+
+    private static final StreamingProperties STREAMING = new StreamingProperties(256, Duration.ofMillis(100), 512);
+
+    @Mock
+    private UserRepository repository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testEveryEmailMayExistUntilRebuilt() {
+        EmailBloomFilter filter = filter(true);
+
+        assertTrue(filter.mightContain("nobody@email.com"));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void testRebuildLoadsRegisteredEmails() {
+        when(repository.findAllEmails(512)).thenReturn(Flux.just("ademir@email.com", "ana@email.com"));
+        EmailBloomFilter filter = filter(true);
+
+        StepVerifier.create(filter.rebuild()).expectNext(2L).verifyComplete();
+
+        assertTrue(filter.mightContain("ademir@email.com"));
+        assertTrue(filter.mightContain("ana@email.com"));
+        assertFalse(filter.mightContain("nobody@email.com"));
+    }
+
+    @Test
+    void testEmailsRegisteredAfterRebuildAreVisible() {
+        when(repository.findAllEmails(512)).thenReturn(Flux.empty());
+        EmailBloomFilter filter = filter(true);
+        filter.rebuild().block();
+
+        filter.put("ademir@email.com");
+
+        assertTrue(filter.mightContain("ademir@email.com"));
+    }
+
+    @Test
+    void testFalsePositiveRateStaysNearConfiguredRate() {
+        when(repository.findAllEmails(512)).thenReturn(Flux.range(0, 10_000).map(i -> "user" + i + "@email.com"));
+        EmailBloomFilter filter = filter(true);
+        filter.rebuild().block();
+
+        long falsePositives = IntStream.range(0, 10_000)
+                .filter(i -> filter.mightContain("other" + i + "@email.com"))
+                .count();
+
+        assertTrue(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("user" + i + "@email.com")));
+        assertTrue(falsePositives < 300, () -> falsePositives + " false positives");
+    }
+
+    @Test
+    void testDisabledFilterNeverRejects() {
+        EmailBloomFilter filter = filter(false);
+
+        StepVerifier.create(filter.rebuild()).verifyComplete();
+        assertTrue(filter.mightContain("nobody@email.com"));
+    }
+
+    private EmailBloomFilter filter(boolean enabled) {
+        return new EmailBloomFilter(repository, new EmailFilterProperties(enabled, 10_000, 0.01), STREAMING, meterRegistry);
+    }
+}
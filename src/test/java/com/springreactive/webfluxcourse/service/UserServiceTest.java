@@ -1,20 +1,49 @@
 package com.springreactive.webfluxcourse.service;
 
+import com.springreactive.webfluxcourse.config.BatchGetProperties;
+import com.springreactive.webfluxcourse.config.BulkProperties;
+import com.springreactive.webfluxcourse.config.PaginationProperties;
+import com.springreactive.webfluxcourse.config.StreamingProperties;
 import com.springreactive.webfluxcourse.entity.User;
 import com.springreactive.webfluxcourse.mapper.UserMapper;
 import com.springreactive.webfluxcourse.model.request.UserRequest;
+import com.springreactive.webfluxcourse.respository.BulkWriteFailure;
+import com.springreactive.webfluxcourse.respository.UserChange;
 import com.springreactive.webfluxcourse.respository.UserRepository;
+import com.springreactive.webfluxcourse.service.cache.SingleFlight;
+import com.springreactive.webfluxcourse.service.cache.UserCache;
+import com.springreactive.webfluxcourse.service.exception.EmailAlreadyRegisteredException;
+import com.springreactive.webfluxcourse.service.exception.InvalidBatchRequestException;
+import com.springreactive.webfluxcourse.service.exception.InvalidPageTokenException;
+import com.springreactive.webfluxcourse.service.exception.InvalidSearchException;
 import com.springreactive.webfluxcourse.service.exception.ObjectNotFoundException;
+import com.springreactive.webfluxcourse.service.exception.PreconditionFailedException;
+import com.springreactive.webfluxcourse.utils.FieldSelection;
+import com.springreactive.webfluxcourse.utils.PageToken;
+import com.springreactive.webfluxcourse.utils.SearchCursor;
+import com.springreactive.webfluxcourse.utils.SearchField;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
@@ -27,6 +56,33 @@ class UserServiceTest {
     @Mock
     private UserMapper mapper;
 
+    @Spy
+    private PaginationProperties pagination = new PaginationProperties(2, 100);
+
+    @Spy
+    private StreamingProperties streaming = new StreamingProperties(256, Duration.ofMillis(100), 512);
+
+    @Spy
+    private BulkProperties bulk = new BulkProperties(10, Duration.ofMillis(50), 1);
+
+    @Spy
+    private BatchGetProperties batchGet = new BatchGetProperties(3);
+
+    @Mock
+    private Validator validator;
+
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private EmailBloomFilter emailFilter;
+
+    @Spy
+    private SingleFlight<String, List<User>> firstPages = new SingleFlight<>("test", true, 100, new SimpleMeterRegistry());
+
     @InjectMocks
     private UserService service;
 
@@ -36,21 +92,106 @@ class UserServiceTest {
         User entity = User.builder().build();
 
         when(mapper.toEntity(any(UserRequest.class))).thenReturn(entity);
-        when(repository.save(any(User.class))).thenReturn(Mono.just(User.builder().build()));
+        when(passwordHasher.hash(anyString())).thenReturn(Mono.just("hashed"));
+        when(repository.save(any(User.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
 
         Mono<User> result = service.save(request);
 
         StepVerifier.create(result)
-                .expectNextMatches(user -> user.getClass() == User.class)
+                .expectNextMatches(user -> "hashed".equals(user.getPassword()))
                 .expectComplete()
                 .verify();
 
+        Mockito.verify(passwordHasher, times(1)).hash("Ad123456789@");
         Mockito.verify(repository, times(1)).save(any(User.class));
     }
 
+    @Test
+    void testSaveWithRegisteredEmail() {
+        UserRequest request = new UserRequest("Ademir", "ademir@email.com", "Ad123456789@");
+
+        when(emailFilter.mightContain("ademir@email.com")).thenReturn(true);
+        when(repository.existsByEmail("ademir@email.com")).thenReturn(Mono.just(true));
+
+        StepVerifier.create(service.save(request))
+                .expectError(EmailAlreadyRegisteredException.class)
+                .verify();
+
+        Mockito.verify(passwordHasher, never()).hash(anyString());
+        Mockito.verify(repository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testSaveWithNewEmailSkipsExistenceCheck() {
+        UserRequest request = new UserRequest("Ademir", "ademir@email.com", "Ad123456789@");
+
+        when(emailFilter.mightContain("ademir@email.com")).thenReturn(false);
+        when(mapper.toEntity(any(UserRequest.class))).thenReturn(User.builder().email("ademir@email.com").build());
+        when(passwordHasher.hash(anyString())).thenReturn(Mono.just("hashed"));
+        when(repository.save(any(User.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(service.save(request))
+                .expectNextCount(1)
+                .expectComplete()
+                .verify();
+
+        Mockito.verify(repository, never()).existsByEmail(anyString());
+        Mockito.verify(emailFilter).put("ademir@email.com");
+    }
+
+    @Test
+    void testFindByEmail() {
+        when(userCache.findByEmail("ademir@email.com")).thenReturn(Mono.just(User.builder().email("ademir@email.com").build()));
+
+        StepVerifier.create(service.findByEmail("ademir@email.com"))
+                .expectNextMatches(user -> "ademir@email.com".equals(user.getEmail()))
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    void testFindByUnknownEmailIsCheckedAgainstStoreNotFilter() {
+        when(userCache.findByEmail("nobody@email.com")).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.findByEmail("nobody@email.com"))
+                .expectErrorMatches(ex -> ex instanceof ObjectNotFoundException
+                        && "Object not found. Email: nobody@email.com, Type User".equals(ex.getMessage()))
+                .verify();
+
+        Mockito.verify(emailFilter, never()).mightContain(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSaveAll() {
+        UserRequest valid = new UserRequest("Ademir", "ademir@email.com", "Ad123456789@");
+        UserRequest invalid = new UserRequest("Ademir", "invalid", "Ad123456789@");
+        UserRequest duplicated = new UserRequest("Ademir", "ademir@email.com", "Ad123456789@");
+        ConstraintViolation<UserRequest> violation = mock(ConstraintViolation.class);
+
+        when(validator.validate(any(UserRequest.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0) == invalid ? Set.of(violation) : Set.of());
+        when(mapper.toEntity(any(UserRequest.class))).thenAnswer(invocation -> User.builder().build());
+        when(passwordHasher.hash(anyString())).thenReturn(Mono.just("hashed"));
+        when(repository.insertAll(anyList())).thenReturn(Mono.just(List.of(
+                new BulkWriteFailure(1, 11000, "E11000 duplicate key error index: email dup key"))));
+
+        StepVerifier.create(service.saveAll(Flux.just(valid, invalid, duplicated)))
+                .expectNextMatches(result -> result.index() == 0
+                        && result.status() == BulkImportResult.Status.CREATED && result.id() != null)
+                .expectNextMatches(result -> result.index() == 1
+                        && result.status() == BulkImportResult.Status.INVALID && result.violations().contains(violation))
+                .expectNextMatches(result -> result.index() == 2
+                        && result.status() == BulkImportResult.Status.DUPLICATED)
+                .expectComplete()
+                .verify();
+
+        Mockito.verify(repository, times(1)).insertAll(argThat(users -> users.size() == 2));
+    }
+
     @Test
     void testFindById() {
-        when(repository.findById(anyString())).thenReturn(Mono.just(User.builder().build()));
+        when(userCache.findById(anyString())).thenReturn(Mono.just(User.builder().build()));
 
         Mono<User> result = service.findById("1");
 
@@ -59,21 +200,154 @@ class UserServiceTest {
                 .expectComplete()
                 .verify();
 
-        Mockito.verify(repository, times(1)).findById(anyString());
+        Mockito.verify(userCache, times(1)).findById(anyString());
+    }
+
+    @Test
+    void testFindAllByIdKeepsRequestOrder() {
+        when(userCache.findAllById(Set.of("1", "2", "3"))).thenReturn(Mono.just(Map.of(
+                "1", User.builder().id("1").build(),
+                "3", User.builder().id("3").build())));
+
+        StepVerifier.create(service.findAllById(List.of("3", "2", "1", "3")))
+                .expectNextMatches(result -> "3".equals(result.id()) && result.found())
+                .expectNextMatches(result -> "2".equals(result.id()) && !result.found())
+                .expectNextMatches(result -> "1".equals(result.id()) && result.found())
+                .expectNextMatches(result -> "3".equals(result.id()) && result.found())
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    void testFindAllByIdWithTooManyIds() {
+        StepVerifier.create(service.findAllById(List.of("1", "2", "3", "4")))
+                .expectError(InvalidBatchRequestException.class)
+                .verify();
+
+        Mockito.verify(userCache, never()).findAllById(anySet());
+    }
+
+    @Test
+    void testChangesResumeAfterToken() {
+        UserChange change = new UserChange("82AC", UserChange.Operation.CREATED, "1", User.builder().id("1").build());
+        when(repository.watch(new BsonDocument("_data", new BsonString("82AB")))).thenReturn(Flux.just(change));
+
+        StepVerifier.create(service.changes("82AB"))
+                .expectNext(change)
+                .verifyComplete();
+    }
+
+    @Test
+    void testChangesWithInvalidToken() {
+        StepVerifier.create(service.changes("not a token"))
+                .expectError(InvalidPageTokenException.class)
+                .verify();
+
+        Mockito.verify(repository, never()).watch(any());
     }
 
     @Test
     void testFindALL() {
-        when(repository.findAll()).thenReturn(Flux.just(User.builder().build()));
+        when(repository.findAll(anyInt(), anySet())).thenReturn(Flux.just(User.builder().build()));
 
-        Flux<User> result = service.findAll();
+        Flux<User> result = service.findAll(FieldSelection.ALL);
 
         StepVerifier.create(result)
                 .expectNextMatches(user -> user.getClass() == User.class)
                 .expectComplete()
                 .verify();
 
-        Mockito.verify(repository, times(1)).findAll();
+        Mockito.verify(repository, times(1)).findAll(512, Set.of());
+    }
+
+    @Test
+    void testFindPageWithNextPageToken() {
+        User first = User.builder().id("1").build();
+        User second = User.builder().id("2").build();
+        User third = User.builder().id("3").build();
+        when(repository.findPage(isNull(), eq(3), eq(Set.of()))).thenReturn(Flux.just(first, second, third));
+
+        StepVerifier.create(service.findPage(null, null, FieldSelection.ALL))
+                .expectNextMatches(page -> page.content().size() == 2
+                        && PageToken.encode("2").equals(page.nextPageToken()))
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    void testConcurrentFirstPagesShareOneQuery() {
+        Sinks.Many<User> pending = Sinks.many().unicast().onBackpressureBuffer();
+        when(repository.findPage(isNull(), eq(3), eq(Set.of()))).thenReturn(pending.asFlux());
+
+        StepVerifier first = StepVerifier.create(service.findPage(null, null, FieldSelection.ALL))
+                .expectNextMatches(page -> page.content().size() == 1)
+                .expectComplete()
+                .verifyLater();
+        StepVerifier second = StepVerifier.create(service.findPage(null, null, FieldSelection.ALL))
+                .expectNextMatches(page -> page.content().size() == 1)
+                .expectComplete()
+                .verifyLater();
+        pending.tryEmitNext(User.builder().id("1").build());
+        pending.tryEmitComplete();
+
+        first.verify();
+        second.verify();
+        Mockito.verify(repository, times(1)).findPage(isNull(), eq(3), eq(Set.of()));
+    }
+
+    @Test
+    void testFindPageLastPage() {
+        when(repository.findPage(eq("2"), eq(3), anySet())).thenReturn(Flux.just(User.builder().id("3").build()));
+
+        StepVerifier.create(service.findPage(PageToken.encode("2"), 2, FieldSelection.parse("name")))
+                .expectNextMatches(page -> page.content().size() == 1 && page.nextPageToken() == null)
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    void testFindPageWithInvalidToken() {
+        StepVerifier.create(service.findPage("%%%", null, FieldSelection.ALL))
+                .expectError(InvalidPageTokenException.class)
+                .verify();
+
+        Mockito.verify(repository, never()).findPage(any(), anyInt(), anySet());
+    }
+
+    @Test
+    void testSearchWithNextPageToken() {
+        User first = User.builder().id("1").name("Ademir").build();
+        User second = User.builder().id("2").name("adriana").build();
+        User third = User.builder().id("3").name("Adriano").build();
+        when(repository.search(eq(SearchField.NAME), eq("ad"), isNull(), eq(3), eq(Set.of())))
+                .thenReturn(Flux.just(first, second, third));
+
+        StepVerifier.create(service.search(" ad ", SearchField.NAME, null, null, FieldSelection.ALL))
+                .expectNextMatches(page -> page.content().size() == 2
+                        && new SearchCursor("adriana", "2").encode().equals(page.nextPageToken()))
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    void testSearchResumesFromCursor() {
+        SearchCursor cursor = new SearchCursor("ana@email.com", "7");
+        when(repository.search(eq(SearchField.EMAIL), eq("a"), eq(cursor), eq(3), anySet()))
+                .thenReturn(Flux.just(User.builder().id("8").email("ane@email.com").build()));
+
+        StepVerifier.create(service.search("a", SearchField.EMAIL, cursor.encode(), 2, FieldSelection.parse("id")))
+                .expectNextMatches(page -> page.content().size() == 1 && page.nextPageToken() == null)
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    void testSearchWithBlankQuery() {
+        StepVerifier.create(service.search("  ", SearchField.NAME, null, null, FieldSelection.ALL))
+                .expectError(InvalidSearchException.class)
+                .verify();
+
+        Mockito.verify(repository, never()).search(any(), any(), any(), anyInt(), anySet());
     }
 
     @Test
@@ -81,38 +355,126 @@ class UserServiceTest {
         UserRequest request = new UserRequest("Ademir", "ademir@email.com", "Ad123456789@");
         User entity = User.builder().build();
 
-        when(mapper.toEntity(any(UserRequest.class), any(User.class))).thenReturn(entity);
-        when(repository.findById(anyString())).thenReturn(Mono.just(entity));
-        when(repository.save(any(User.class))).thenReturn(Mono.just(entity));
+        when(mapper.toEntity(any(UserRequest.class))).thenReturn(entity);
+        when(passwordHasher.hash(anyString())).thenReturn(Mono.just("hashed"));
+        when(repository.findAndModify(anyString(), any(User.class), isNull())).thenReturn(Mono.just(entity));
+        when(userCache.invalidate(anyString())).thenReturn(Mono.empty());
 
-        Mono<User> result = service.update("1", request);
+        Mono<User> result = service.update("1", request, null);
 
         StepVerifier.create(result)
                 .expectNextMatches(user -> user.getClass() == User.class)
                 .expectComplete()
                 .verify();
 
-        Mockito.verify(repository, times(1)).save(any(User.class));
+        Mockito.verify(repository, times(1)).findAndModify(eq("1"), argThat(changes -> "hashed".equals(changes.getPassword())), isNull());
+        Mockito.verify(repository, never()).findById(anyString());
+        Mockito.verify(repository, never()).save(any(User.class));
+        Mockito.verify(userCache, times(1)).invalidate("1");
+    }
+
+    @Test
+    void testUpdateNotFound() {
+        UserRequest request = new UserRequest("Ademir", null, null);
+
+        when(mapper.toEntity(any(UserRequest.class))).thenReturn(User.builder().name("Ademir").build());
+        when(repository.findAndModify(anyString(), any(User.class), isNull())).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.update("1", request, null))
+                .expectError(ObjectNotFoundException.class)
+                .verify();
+
+        Mockito.verify(repository, never()).findById(anyString());
+        Mockito.verify(userCache, never()).invalidate(anyString());
+    }
+
+    @Test
+    void testUpdateWithStaleVersion() {
+        UserRequest request = new UserRequest("Ademir", null, null);
+
+        when(mapper.toEntity(any(UserRequest.class))).thenReturn(User.builder().name("Ademir").build());
+        when(repository.findAndModify(anyString(), any(User.class), eq(1L))).thenReturn(Mono.empty());
+        when(repository.findById("1")).thenReturn(Mono.just(User.builder().id("1").version(2L).build()));
+
+        StepVerifier.create(service.update("1", request, 1L))
+                .expectError(PreconditionFailedException.class)
+                .verify();
+
+        Mockito.verify(userCache, never()).invalidate(anyString());
+    }
+
+    @Test
+    void testDeleteWithStaleVersionOfMissingUser() {
+        when(repository.findAndRemove("1", 1L)).thenReturn(Mono.empty());
+        when(repository.findById("1")).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.delete("1", 1L))
+                .expectError(ObjectNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void testVerifyPassword() {
+        when(userCache.findById(anyString())).thenReturn(Mono.just(User.builder().password("hashed").build()));
+        when(passwordHasher.isHashed("hashed")).thenReturn(true);
+        when(passwordHasher.matches("Ad123456789@", "hashed")).thenReturn(Mono.just(true));
+
+        StepVerifier.create(service.verifyPassword("1", "Ad123456789@"))
+                .expectNext(true)
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    void testVerifyLegacyPlaintextPasswordRehashesIt() {
+        User legacy = User.builder().id("1").password("Ad123456789@").version(3L).build();
+        when(userCache.findById("1")).thenReturn(Mono.just(legacy));
+        when(passwordHasher.isHashed("Ad123456789@")).thenReturn(false);
+        when(passwordHasher.hash("Ad123456789@")).thenReturn(Mono.just("hashed"));
+        when(repository.findAndModify(eq("1"), argThat(changes -> "hashed".equals(changes.getPassword())), eq(3L)))
+                .thenReturn(Mono.just(legacy.toBuilder().password("hashed").version(4L).build()));
+        when(userCache.invalidate("1")).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.verifyPassword("1", "Ad123456789@"))
+                .expectNext(true)
+                .verifyComplete();
+
+        verify(userCache).invalidate("1");
+    }
+
+    @Test
+    void testVerifyWrongLegacyPlaintextPasswordLeavesItAlone() {
+        when(userCache.findById("1")).thenReturn(Mono.just(User.builder().id("1").password("Ad123456789@").build()));
+        when(passwordHasher.isHashed("Ad123456789@")).thenReturn(false);
+
+        StepVerifier.create(service.verifyPassword("1", "wrong"))
+                .expectNext(false)
+                .verifyComplete();
+
+        verify(passwordHasher, never()).hash(anyString());
+        verify(repository, never()).findAndModify(anyString(), any(), any());
     }
 
     @Test
     void testDelete() {
         User entity = User.builder().build();
-        when(repository.findAndRemove(anyString())).thenReturn(Mono.just(entity));
+        when(repository.findAndRemove(anyString(), isNull())).thenReturn(Mono.just(entity));
+        when(userCache.invalidate(anyString())).thenReturn(Mono.empty());
 
-        Mono<User> result = service.delete("1");
+        Mono<User> result = service.delete("1", null);
 
         StepVerifier.create(result)
                 .expectNextMatches(user -> user.getClass() == User.class)
                 .expectComplete()
                 .verify();
 
-        Mockito.verify(repository, times(1)).findAndRemove(anyString());
+        Mockito.verify(repository, times(1)).findAndRemove(anyString(), isNull());
+        Mockito.verify(userCache, times(1)).invalidate("1");
     }
 
     @Test
     void testHandleNotFound() {
-        when(repository.findById(anyString())).thenReturn(Mono.empty());
+        when(userCache.findById(anyString())).thenReturn(Mono.empty());
 
         try {
             service.findById("1").block();
@@ -0,0 +1,111 @@
+package com.springreactive.webfluxcourse.service.cache;
+
+import com.springreactive.webfluxcourse.config.MicroBatchProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchLoaderTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(1);
+
+    private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    private final List<Set<String>> batches = new CopyOnWriteArrayList<>();
+    private final AtomicInteger singleLoads = new AtomicInteger();
+
+    @Test
+    void testLoadsWithinTheWindowShareOneBulkLoad() {
+        BatchLoader<String, String> loader = loader(true, 10);
+
+        StepVerifier first = StepVerifier.create(loader.load("1")).expectNext("1").expectComplete().verifyLater();
+        StepVerifier second = StepVerifier.create(loader.load("2")).expectNext("2").expectComplete().verifyLater();
+        StepVerifier missing = StepVerifier.create(loader.load("missing")).expectComplete().verifyLater();
+        assertEquals(0, batches.size());
+
+        scheduler.advanceTimeBy(WINDOW);
+
+        first.verify();
+        second.verify();
+        missing.verify();
+        assertEquals(List.of(Set.of("1", "2", "missing")), batches);
+    }
+
+    @Test
+    void testFullBatchIsDispatchedWithoutWaiting() {
+        BatchLoader<String, String> loader = loader(true, 2);
+
+        StepVerifier first = StepVerifier.create(loader.load("1")).expectNext("1").expectComplete().verifyLater();
+        StepVerifier second = StepVerifier.create(loader.load("2")).expectNext("2").expectComplete().verifyLater();
+
+        first.verify();
+        second.verify();
+        assertEquals(List.of(Set.of("1", "2")), batches);
+
+        scheduler.advanceTimeBy(WINDOW);
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void testSameKeyTakesOneSlot() {
+        BatchLoader<String, String> loader = loader(true, 2);
+
+        StepVerifier first = StepVerifier.create(loader.load("1")).expectNext("1").expectComplete().verifyLater();
+        StepVerifier second = StepVerifier.create(loader.load("1")).expectNext("1").expectComplete().verifyLater();
+        assertEquals(0, batches.size());
+
+        scheduler.advanceTimeBy(WINDOW);
+
+        first.verify();
+        second.verify();
+        assertEquals(List.of(Set.of("1")), batches);
+    }
+
+    @Test
+    void testBulkErrorReachesEveryCaller() {
+        BatchLoader<String, String> loader = new BatchLoader<>("test", new MicroBatchProperties(true, WINDOW, 10),
+                keys -> Flux.error(new IllegalStateException("boom")), value -> value, Mono::just, scheduler,
+                new SimpleMeterRegistry());
+
+        StepVerifier first = StepVerifier.create(loader.load("1")).expectError(IllegalStateException.class).verifyLater();
+        StepVerifier second = StepVerifier.create(loader.load("2")).expectError(IllegalStateException.class).verifyLater();
+        scheduler.advanceTimeBy(WINDOW);
+
+        first.verify();
+        second.verify();
+    }
+
+    @Test
+    void testDisabledLoadsOneByOne() {
+        BatchLoader<String, String> loader = loader(false, 10);
+
+        StepVerifier.create(loader.load("1")).expectNext("1").verifyComplete();
+
+        assertEquals(0, batches.size());
+        assertEquals(1, singleLoads.get());
+    }
+
+    private BatchLoader<String, String> loader(final boolean enabled, final int maxBatchSize) {
+        return new BatchLoader<>("test", new MicroBatchProperties(enabled, WINDOW, maxBatchSize),
+                keys -> {
+                    batches.add(keys);
+                    return Flux.fromIterable(keys).filter(key -> !"missing".equals(key));
+                },
+                value -> value,
+                key -> {
+                    singleLoads.incrementAndGet();
+                    return Mono.just(key);
+                },
+                scheduler, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,101 @@
+package com.springreactive.webfluxcourse.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springreactive.webfluxcourse.config.DistributedCacheProperties;
+import com.springreactive.webfluxcourse.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KeyValueDistributedUserCacheTest {
+
+    private static final User USER = User.builder().id("1").name("Ademir").email("ademir@email.com").password("hash").build();
+
+    private KeyValueDistributedUserCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new KeyValueDistributedUserCache(new InMemoryKeyValueStore(100), new ObjectMapper(),
+                new DistributedCacheProperties(true, "in-memory", Duration.ofMinutes(30), 100));
+        loads = new AtomicInteger();
+    }
+
+    private Function<String, Mono<User>> loader(User user) {
+        return id -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return user;
+        });
+    }
+
+    @Test
+    void testSnapshotIsReusedUntilInvalidated() {
+        StepVerifier.create(cache.findById("1", loader(USER))).expectNext(USER).verifyComplete();
+        StepVerifier.create(cache.findById("1", loader(USER))).expectNext(USER).verifyComplete();
+        assertEquals(1, loads.get());
+
+        cache.invalidate("1").block();
+
+        StepVerifier.create(cache.findById("1", loader(USER))).expectNext(USER).verifyComplete();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testLoadRacingWithUpdateDoesNotResurrectStaleSnapshot() {
+        Sinks.One<User> slowLoad = Sinks.one();
+        StepVerifier staleRead = StepVerifier.create(cache.findById("1", id -> slowLoad.asMono()))
+                .expectNext(USER)
+                .expectComplete()
+                .verifyLater();
+
+        cache.invalidate("1").block();
+        slowLoad.tryEmitValue(USER);
+        staleRead.verify();
+
+        User updated = USER.toBuilder().name("Updated").build();
+        StepVerifier.create(cache.findById("1", loader(updated)))
+                .expectNextMatches(user -> "Updated".equals(user.getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testExpiredGenerationDoesNotRestartUnderLiveSnapshot() {
+        AtomicLong clock = new AtomicLong();
+        KeyValueDistributedUserCache cache = new KeyValueDistributedUserCache(new InMemoryKeyValueStore(100, clock::get),
+                new ObjectMapper(), new DistributedCacheProperties(true, "in-memory", Duration.ofMinutes(30), 100));
+        cache.invalidate("1").block();
+        clock.addAndGet(Duration.ofMinutes(50).toNanos());
+        StepVerifier.create(cache.findById("1", loader(USER))).expectNext(USER).verifyComplete();
+
+        // past the counter's original ttl, while the snapshot written under it is still alive
+        clock.addAndGet(Duration.ofMinutes(20).toNanos());
+        cache.invalidate("1").block();
+
+        User updated = USER.toBuilder().name("Updated").build();
+        StepVerifier.create(cache.findById("1", loader(updated)))
+                .expectNextMatches(user -> "Updated".equals(user.getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testEmailLookupFollowsIdGeneration() {
+        StepVerifier.create(cache.findByEmail(USER.getEmail(), loader(USER), loader(USER)))
+                .expectNext(USER)
+                .verifyComplete();
+
+        User renamed = USER.toBuilder().email("other@email.com").build();
+        cache.invalidate("1").block();
+
+        StepVerifier.create(cache.findByEmail(USER.getEmail(), email -> Mono.empty(), loader(renamed)))
+                .verifyComplete();
+    }
+}
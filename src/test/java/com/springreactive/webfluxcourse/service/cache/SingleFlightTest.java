@@ -0,0 +1,108 @@
+package com.springreactive.webfluxcourse.service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", true, 2, new SimpleMeterRegistry());
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void testConcurrentCallersShareOneLoad() {
+        Sinks.One<String> pending = Sinks.one();
+
+        StepVerifier first = StepVerifier.create(singleFlight.execute("1", () -> load(pending))).expectNext("user").expectComplete().verifyLater();
+        StepVerifier second = StepVerifier.create(singleFlight.execute("1", () -> load(pending))).expectNext("user").expectComplete().verifyLater();
+        pending.tryEmitValue("user");
+
+        first.verify();
+        second.verify();
+        assertEquals(1, loads.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void testCompletedFlightIsNotReused() {
+        StepVerifier.create(singleFlight.execute("1", () -> load(Mono.just("old")))).expectNext("old").verifyComplete();
+        StepVerifier.create(singleFlight.execute("1", () -> load(Mono.just("new")))).expectNext("new").verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testForgottenFlightIsNotJoined() {
+        Sinks.One<String> pending = Sinks.one();
+
+        StepVerifier first = StepVerifier.create(singleFlight.execute("1", () -> load(pending))).expectNext("old").expectComplete().verifyLater();
+        singleFlight.forget("1");
+        StepVerifier.create(singleFlight.execute("1", () -> load(Mono.just("new")))).expectNext("new").verifyComplete();
+        pending.tryEmitValue("old");
+
+        first.verify();
+        assertEquals(2, loads.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void testErrorReachesEveryCallerAndClearsTheKey() {
+        Sinks.One<String> pending = Sinks.one();
+
+        StepVerifier first = StepVerifier.create(singleFlight.execute("1", () -> load(pending))).expectError(IllegalStateException.class).verifyLater();
+        StepVerifier second = StepVerifier.create(singleFlight.execute("1", () -> load(pending))).expectError(IllegalStateException.class).verifyLater();
+        pending.tryEmitError(new IllegalStateException("boom"));
+
+        first.verify();
+        second.verify();
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void testLoadIsCancelledOnlyWhenEveryCallerCancels() {
+        AtomicInteger cancelled = new AtomicInteger();
+        Mono<String> never = Mono.<String>never().doOnCancel(cancelled::incrementAndGet);
+
+        var first = singleFlight.execute("1", () -> load(never)).subscribe();
+        var second = singleFlight.execute("1", () -> load(never)).subscribe();
+
+        first.dispose();
+        assertEquals(0, cancelled.get());
+        assertEquals(1, singleFlight.inFlight());
+
+        second.dispose();
+        assertEquals(1, cancelled.get());
+        assertEquals(0, singleFlight.inFlight());
+
+        StepVerifier.create(singleFlight.execute("1", () -> load(Mono.just("user")))).expectNext("user").verifyComplete();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testCallersBeyondTheKeyBoundLoadOnTheirOwn() {
+        singleFlight.execute("1", () -> load(Mono.never())).subscribe();
+        singleFlight.execute("2", () -> load(Mono.never())).subscribe();
+
+        StepVerifier.create(singleFlight.execute("3", () -> load(Mono.just("user")))).expectNext("user").verifyComplete();
+        StepVerifier.create(singleFlight.execute("3", () -> load(Mono.just("user")))).expectNext("user").verifyComplete();
+
+        assertEquals(4, loads.get());
+        assertTrue(singleFlight.inFlight() <= 2);
+    }
+
+    private Mono<String> load(Sinks.One<String> pending) {
+        return load(pending.asMono());
+    }
+
+    private Mono<String> load(Mono<String> source) {
+        loads.incrementAndGet();
+        return source;
+    }
+}
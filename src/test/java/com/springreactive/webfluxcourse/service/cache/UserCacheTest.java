@@ -0,0 +1,160 @@
+package com.springreactive.webfluxcourse.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springreactive.webfluxcourse.config.CacheProperties;
+import com.springreactive.webfluxcourse.config.DistributedCacheProperties;
+import com.springreactive.webfluxcourse.config.MicroBatchProperties;
+import com.springreactive.webfluxcourse.entity.User;
+import com.springreactive.webfluxcourse.respository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserCacheTest {
+
+    @Mock
+    private UserRepository repository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private UserCache cache;
+
+    @BeforeEach
+    void setUp() {
+        KeyValueDistributedUserCache disabledTier = new KeyValueDistributedUserCache(new InMemoryKeyValueStore(100),
+                new ObjectMapper(), new DistributedCacheProperties(false, "in-memory", Duration.ofMinutes(30), 100));
+        cache = new UserCache(repository, disabledTier, new SingleFlight<>("test", true, 100, meterRegistry), passThrough(),
+                new CacheProperties(true, 100, Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ofSeconds(5)),
+                meterRegistry);
+    }
+
+    @Test
+    void testFindByIdIsServedFromCache() {
+        when(repository.findById("1")).thenReturn(Mono.just(User.builder().id("1").build()));
+
+        StepVerifier.create(cache.findById("1")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.findById("1")).expectNextCount(1).verifyComplete();
+
+        verify(repository, times(1)).findById("1");
+    }
+
+    @Test
+    void testFindAllByIdLoadsOnlyMissesAndFeedsFindById() {
+        when(repository.findById("1")).thenReturn(Mono.just(User.builder().id("1").build()));
+        when(repository.findAllById(anyCollection())).thenReturn(Flux.just(User.builder().id("2").build()));
+
+        StepVerifier.create(cache.findById("1")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.findAllById(Set.of("1", "2", "3")))
+                .expectNextMatches(users -> users.keySet().equals(Set.of("1", "2")))
+                .verifyComplete();
+        StepVerifier.create(cache.findById("2")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.findById("3")).verifyComplete();
+
+        verify(repository, times(1)).findAllById(Set.of("2", "3"));
+        verify(repository, never()).findById("2");
+        verify(repository, never()).findById("3");
+    }
+
+    @Test
+    void testConcurrentMissesShareOneLoad() {
+        Sinks.One<User> pending = Sinks.one();
+        when(repository.findById("1")).thenReturn(pending.asMono());
+
+        StepVerifier first = StepVerifier.create(cache.findById("1")).expectNextCount(1).expectComplete().verifyLater();
+        StepVerifier second = StepVerifier.create(cache.findById("1")).expectNextCount(1).expectComplete().verifyLater();
+        pending.tryEmitValue(User.builder().id("1").build());
+
+        first.verify();
+        second.verify();
+        verify(repository, times(1)).findById("1");
+    }
+
+    @Test
+    void testConcurrentReadsShareOneLoadWhenCacheIsDisabled() {
+        KeyValueDistributedUserCache disabledTier = new KeyValueDistributedUserCache(new InMemoryKeyValueStore(100),
+                new ObjectMapper(), new DistributedCacheProperties(false, "in-memory", Duration.ofMinutes(30), 100));
+        UserCache uncached = new UserCache(repository, disabledTier, new SingleFlight<>("test", true, 100, meterRegistry), passThrough(),
+                new CacheProperties(false, 100, Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ofSeconds(5)),
+                meterRegistry);
+        Sinks.One<User> pending = Sinks.one();
+        when(repository.findById("1")).thenReturn(pending.asMono());
+
+        StepVerifier first = StepVerifier.create(uncached.findById("1")).expectNextCount(1).expectComplete().verifyLater();
+        StepVerifier second = StepVerifier.create(uncached.findById("1")).expectNextCount(1).expectComplete().verifyLater();
+        pending.tryEmitValue(User.builder().id("1").build());
+
+        first.verify();
+        second.verify();
+        verify(repository, times(1)).findById("1");
+    }
+
+    @Test
+    void testMissingIdIsCachedAsAbsent() {
+        when(repository.findById("2")).thenReturn(Mono.empty());
+
+        StepVerifier.create(cache.findById("2")).verifyComplete();
+        StepVerifier.create(cache.findById("2")).verifyComplete();
+
+        verify(repository, times(1)).findById("2");
+    }
+
+    @Test
+    void testInvalidateForcesReload() {
+        when(repository.findById("1")).thenReturn(Mono.just(User.builder().id("1").build()));
+
+        StepVerifier.create(cache.findById("1")).expectNextCount(1).verifyComplete();
+        cache.invalidate("1").block();
+        StepVerifier.create(cache.findById("1")).expectNextCount(1).verifyComplete();
+
+        verify(repository, times(2)).findById("1");
+    }
+
+    @Test
+    void testInvalidateDetachesLoadStartedBeforeTheWrite() {
+        Sinks.One<User> stale = Sinks.one();
+        when(repository.findById("1"))
+                .thenReturn(stale.asMono())
+                .thenReturn(Mono.just(User.builder().id("1").name("Changed").build()));
+
+        StepVerifier before = StepVerifier.create(cache.findById("1")).expectNextCount(1).expectComplete().verifyLater();
+        cache.invalidate("1").block();
+        StepVerifier.create(cache.findById("1"))
+                .expectNextMatches(user -> "Changed".equals(user.getName()))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+        stale.tryEmitValue(User.builder().id("1").name("Ademir").build());
+
+        before.verify();
+        verify(repository, times(2)).findById("1");
+    }
+
+    @Test
+    void testReturnedEntityIsACopy() {
+        when(repository.findById("1")).thenReturn(Mono.just(User.builder().id("1").name("Ademir").build()));
+
+        cache.findById("1").doOnNext(user -> user.setName("Changed")).block();
+
+        StepVerifier.create(cache.findById("1"))
+                .expectNextMatches(user -> "Ademir".equals(user.getName()))
+                .verifyComplete();
+    }
+
+    private BatchLoader<String, User> passThrough() {
+        return new BatchLoader<>("test", new MicroBatchProperties(false, Duration.ofMillis(1), 100),
+                repository::findAllById, User::getId, repository::findById, Schedulers.parallel(), meterRegistry);
+    }
+}